@@ -0,0 +1,29 @@
+package ru.mephi.apigateway.config;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Per-route in-flight limits of {@code ConcurrencyLimitGlobalFilter}, by gateway route id; routes
+ * without an entry are not limited. A route starts at {@code initial} concurrent requests and moves
+ * between {@code min} and {@code max}: up while each endpoint's latency stays within {@code
+ * tolerance} times the lowest it showed over the last one to two {@code latencyWindow}s, down by at
+ * most {@code backoff} when it rises above that or the upstream fails. Requests to {@code
+ * unsampled} paths (long polls) and NDJSON streams hold a slot but are not latency samples. Shed
+ * requests are told to come back after {@code retryAfter}.
+ */
+@ConfigurationProperties(prefix = "gateway.concurrency-limit")
+public record ConcurrencyLimitProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue("2.0") double tolerance,
+    @DefaultValue("0.5") double backoff,
+    @DefaultValue("10s") Duration latencyWindow,
+    @DefaultValue("1s") Duration retryAfter,
+    @DefaultValue("/booking/*/completion") List<String> unsampled,
+    @DefaultValue Map<String, Limit> routes) {
+
+  public record Limit(int initial, int min, int max) {}
+}
@@ -0,0 +1,22 @@
+package ru.mephi.apigateway.config;
+
+import java.time.Duration;
+import java.util.Map;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Per-route request limits of {@code RateLimitGlobalFilter}, by gateway route id; routes without an
+ * entry are not limited. Each caller of a route gets {@code perSecond} requests a second on average
+ * and bursts of up to {@code burst}. A caller's bucket is dropped once it has been full for {@code
+ * idleEviction}; beyond {@code maxBuckets} callers, new ones share one bucket per route.
+ */
+@ConfigurationProperties(prefix = "gateway.rate-limit")
+public record RateLimitProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue("5m") Duration idleEviction,
+    @DefaultValue("100000") int maxBuckets,
+    @DefaultValue Map<String, Limit> routes) {
+
+  public record Limit(double perSecond, int burst) {}
+}
@@ -0,0 +1,20 @@
+package ru.mephi.apigateway.config;
+
+import java.time.Duration;
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Read routes answered from the gateway's memory by {@code ResponseCacheGlobalFilter}: GETs of
+ * exactly {@code paths}, for {@code ttl} at most, up to {@code maxEntries} responses of no more than {@code
+ * maxEntrySize} each. A successful write under any of the paths empties the cache.
+ */
+@ConfigurationProperties(prefix = "gateway.response-cache")
+public record ResponseCacheProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue({"/api/hotels", "/api/rooms"}) List<String> paths,
+    @DefaultValue("30s") Duration ttl,
+    @DefaultValue("1000") int maxEntries,
+    @DefaultValue("256KB") DataSize maxEntrySize) {}
@@ -1,6 +1,11 @@
 package ru.mephi.apigateway.config;
 
+import ru.mephi.commonlib.support.VerifiedJwtCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
@@ -8,6 +13,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.convert.converter.Converter;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AbstractAuthenticationToken;
 import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
@@ -30,11 +36,29 @@ public class SecurityConfig {
   private static final String HMAC_ALGORITHM = "HmacSHA256";
   private static final String DEFAULT_ROLE = "ROLE_USER";
 
+  /**
+   * Verifies each distinct bearer token once per {@code auth.jwt.cache.max-ttl-seconds} (or until
+   * its {@code exp}) instead of on every request; see {@link VerifiedJwtCache}.
+   */
   @Bean
-  ReactiveJwtDecoder gatewayJwtDecoder(@Value("${auth.jwt.secret}") String jwtSecret) {
+  ReactiveJwtDecoder gatewayJwtDecoder(
+      @Value("${auth.jwt.secret}") String jwtSecret,
+      @Value("${auth.jwt.cache.enabled:true}") boolean cacheEnabled,
+      @Value("${auth.jwt.cache.max-entries:10000}") int cacheMaxEntries,
+      @Value("${auth.jwt.cache.max-ttl-seconds:300}") long cacheMaxTtlSeconds,
+      MeterRegistry meters) {
     byte[] secretBytes = jwtSecret.getBytes(StandardCharsets.UTF_8);
     SecretKey secretKey = new SecretKeySpec(secretBytes, HMAC_ALGORITHM);
-    return NimbusReactiveJwtDecoder.withSecretKey(secretKey).macAlgorithm(MacAlgorithm.HS256).build();
+    ReactiveJwtDecoder decoder =
+        NimbusReactiveJwtDecoder.withSecretKey(secretKey).macAlgorithm(MacAlgorithm.HS256).build();
+    if (!cacheEnabled) return decoder;
+
+    VerifiedJwtCache cache =
+        new VerifiedJwtCache(cacheMaxEntries, Duration.ofSeconds(cacheMaxTtlSeconds));
+    FunctionCounter.builder("auth.jwt.cache.hits", cache, VerifiedJwtCache::hits).register(meters);
+    FunctionCounter.builder("auth.jwt.cache.misses", cache, VerifiedJwtCache::misses).register(meters);
+    Gauge.builder("auth.jwt.cache.size", cache, VerifiedJwtCache::size).register(meters);
+    return cache.caching(decoder);
   }
 
   @Bean
@@ -58,6 +82,7 @@ public class SecurityConfig {
 
     http.authorizeExchange(exchanges -> exchanges
         .pathMatchers("/user/register", "/user/auth").permitAll()
+        .pathMatchers(HttpMethod.POST, "/actuator/responsecache").hasRole("ADMIN")
         .pathMatchers("/actuator/**").permitAll()
         .anyExchange().authenticated()
     );
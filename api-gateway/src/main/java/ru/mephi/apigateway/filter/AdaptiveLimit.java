@@ -0,0 +1,120 @@
+package ru.mephi.apigateway.filter;
+
+import ru.mephi.apigateway.config.ConcurrencyLimitProperties.Limit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A concurrency limit that follows the latency of what it guards, the way TCP follows a network
+ * (AIMD). Each finished request is a sample. While its latency stays within {@code tolerance} times
+ * the no-load latency of its endpoint and the limit is actually in use, the limit grows by about
+ * one per round trip. When the latency exceeds that, the limit is cut to the share of it the
+ * upstream served without queueing, but by no more than {@code backoff}; when the upstream failed,
+ * it is multiplied by {@code backoff}. Either cut happens once per round trip, as the requests
+ * already in flight were admitted under the old limit. With {@code backoff} at most {@code
+ * 1/tolerance}, a cut drains the queue and the next samples show the no-load latency again.
+ *
+ * <p>The no-load latency is kept per endpoint, so a route mixing fast reads with slow ones judges
+ * each against itself. It is the lowest over the current and the previous {@code windowNanos}, so
+ * an upstream that has become lastingly slower is taken as it is after at most two windows.
+ * Acquiring is one compare-and-set; only the update after a request is synchronized.
+ */
+class AdaptiveLimit {
+  /** Endpoints told apart; samples of any further ones share {@link #OTHER}. */
+  private static final int MAX_ENDPOINTS = 256;
+
+  private static final String OTHER = "*";
+
+  private final int min;
+  private final int max;
+  private final double tolerance;
+  private final double backoff;
+  private final long windowNanos;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private volatile double limit;
+
+  // guarded by this
+  private long windowStart;
+  /** Lowest latency by endpoint: in the current window, then in the previous one. */
+  private final Map<String, long[]> noLoad = new HashMap<>();
+  private long backedOffAt;
+
+  AdaptiveLimit(Limit limit, double tolerance, double backoff, long windowNanos, long now) {
+    this.min = limit.min();
+    this.max = limit.max();
+    this.tolerance = tolerance;
+    this.backoff = backoff;
+    this.windowNanos = windowNanos;
+    this.limit = Math.max(min, Math.min(max, limit.initial()));
+    this.windowStart = now;
+    this.backedOffAt = now;
+  }
+
+  /** Takes a slot, or returns false when the limit is reached. */
+  boolean tryAcquire() {
+    while (true) {
+      int current = inFlight.get();
+      if (current >= (int) limit) return false;
+      if (inFlight.compareAndSet(current, current + 1)) return true;
+    }
+  }
+
+  /**
+   * Gives back the slot of a request to {@code endpoint} admitted at {@code started} and finished at
+   * {@code now}, {@code failed} if the upstream could not serve it.
+   */
+  void release(String endpoint, long started, long now, boolean failed) {
+    int inUse = inFlight.getAndDecrement();
+    long nanos = now - started;
+    synchronized (this) {
+      if (now - windowStart >= windowNanos) {
+        noLoad
+            .values()
+            .removeIf(
+                mins -> {
+                  mins[1] = mins[0];
+                  mins[0] = Long.MAX_VALUE;
+                  return mins[1] == Long.MAX_VALUE;
+                });
+        windowStart = now;
+      }
+      double cut = backoff;
+      if (!failed) {
+        long[] mins = noLoad.get(endpoint);
+        if (mins == null) {
+          if (noLoad.size() >= MAX_ENDPOINTS) endpoint = OTHER;
+          mins =
+              noLoad.computeIfAbsent(endpoint, e -> new long[] {Long.MAX_VALUE, Long.MAX_VALUE});
+        }
+        mins[0] = Math.min(mins[0], nanos);
+        double unloaded = Math.min(mins[0], mins[1]);
+        cut = nanos > unloaded * tolerance ? Math.max(backoff, unloaded / nanos) : 1;
+      }
+      if (cut < 1) {
+        if (started - backedOffAt > 0) {
+          limit = Math.max(min, limit * cut);
+          backedOffAt = now;
+        }
+      } else if (inUse * 2 >= limit) {
+        limit = Math.min(max, limit + 1 / limit);
+      }
+    }
+  }
+
+  /**
+   * Gives back a slot of a request that tells nothing about the upstream's load, e.g. cancelled, or
+   * a long poll or stream that takes as long as it is meant to.
+   */
+  void release() {
+    inFlight.decrementAndGet();
+  }
+
+  int limit() {
+    return (int) limit;
+  }
+
+  int inFlight() {
+    return inFlight.get();
+  }
+}
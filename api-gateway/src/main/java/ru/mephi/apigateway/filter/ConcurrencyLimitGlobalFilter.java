@@ -0,0 +1,156 @@
+package ru.mephi.apigateway.filter;
+
+import ru.mephi.apigateway.config.ConcurrencyLimitProperties;
+import ru.mephi.commonlib.error.exceptions.OverloadedException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Caps the requests in flight to each route configured under {@code gateway.concurrency-limit},
+ * with a limit that adapts to the route's latency (see {@link AdaptiveLimit}). When an upstream
+ * slows down, the limit drops and the excess is answered 503 with {@code Retry-After} at once,
+ * instead of queueing behind it. A 502, 503 or 504 from the upstream, or no answer at all, counts
+ * as overload. Cancelled requests, long polls ({@code unsampled} paths) and NDJSON streams hold a
+ * slot but are not latency samples: they take as long as the client keeps them, not as long as the
+ * upstream needs. Other samples are judged per endpoint, the path with its numeric segments
+ * generalized. Limits are per gateway instance.
+ *
+ * <p>Exposes {@code gateway.concurrency.limit}, {@code gateway.concurrency.in-flight} and {@code
+ * gateway.concurrency.rejected}, by route.
+ */
+@Component
+public class ConcurrencyLimitGlobalFilter implements GlobalFilter, Ordered {
+
+  /** After the per-caller rate limit, so one caller's flood is not shed as everyone's. */
+  private static final int FILTER_ORDER = -55;
+
+  private static final Pattern NUMERIC_SEGMENT = Pattern.compile("/\\d+(?=/|$)");
+
+  private final boolean enabled;
+  private final List<PathPattern> unsampled;
+  private final String retryAfter;
+  private final Map<String, AdaptiveLimit> limits = new HashMap<>();
+  private final LongSupplier nanoTime;
+  private final MeterRegistry meters;
+
+  @Autowired
+  public ConcurrencyLimitGlobalFilter(ConcurrencyLimitProperties props, MeterRegistry meters) {
+    this(props, meters, System::nanoTime);
+  }
+
+  ConcurrencyLimitGlobalFilter(
+      ConcurrencyLimitProperties props, MeterRegistry meters, LongSupplier nanoTime) {
+    this.enabled = props.enabled();
+    this.unsampled =
+        props.unsampled().stream().map(PathPatternParser.defaultInstance::parse).toList();
+    this.retryAfter = Long.toString(Math.max(1, props.retryAfter().toSeconds()));
+    this.nanoTime = nanoTime;
+    this.meters = meters;
+    long now = nanoTime.getAsLong();
+    props
+        .routes()
+        .forEach(
+            (route, limit) -> {
+              AdaptiveLimit adaptive =
+                  new AdaptiveLimit(
+                      limit,
+                      props.tolerance(),
+                      props.backoff(),
+                      props.latencyWindow().toNanos(),
+                      now);
+              limits.put(route, adaptive);
+              Gauge.builder("gateway.concurrency.limit", adaptive, AdaptiveLimit::limit)
+                  .tag("route", route)
+                  .register(meters);
+              Gauge.builder("gateway.concurrency.in-flight", adaptive, AdaptiveLimit::inFlight)
+                  .tag("route", route)
+                  .register(meters);
+            });
+  }
+
+  @Override
+  public int getOrder() {
+    return FILTER_ORDER;
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain filterChain) {
+    Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+    AdaptiveLimit limit = !enabled || route == null ? null : limits.get(route.getId());
+    if (limit == null) return filterChain.filter(exchange);
+
+    return Mono.defer(
+        () -> {
+          if (!limit.tryAcquire()) {
+            meters.counter("gateway.concurrency.rejected", "route", route.getId()).increment();
+            exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, retryAfter);
+            return Mono.error(new OverloadedException());
+          }
+          if (!sampled(exchange.getRequest())) {
+            return filterChain.filter(exchange).doFinally(signal -> limit.release());
+          }
+          String endpoint = endpoint(exchange.getRequest());
+          long started = nanoTime.getAsLong();
+          return filterChain
+              .filter(exchange)
+              .doFinally(
+                  signal -> {
+                    if (signal == SignalType.CANCEL) limit.release();
+                    else
+                      limit.release(
+                          endpoint,
+                          started,
+                          nanoTime.getAsLong(),
+                          signal == SignalType.ON_ERROR
+                              || overloaded(exchange.getResponse().getStatusCode()));
+                  });
+        });
+  }
+
+  private boolean sampled(ServerHttpRequest request) {
+    for (MediaType accepted : request.getHeaders().getAccept()) {
+      if (MediaType.APPLICATION_NDJSON.equalsTypeAndSubtype(accepted)) return false;
+    }
+    PathContainer path = request.getPath().pathWithinApplication();
+    for (PathPattern pattern : unsampled) {
+      if (pattern.matches(path)) return false;
+    }
+    return true;
+  }
+
+  private static String endpoint(ServerHttpRequest request) {
+    return request.getMethod().name()
+        + ' '
+        + NUMERIC_SEGMENT.matcher(request.getPath().value()).replaceAll("/*");
+  }
+
+  private static boolean overloaded(HttpStatusCode status) {
+    return status != null
+        && (status.isSameCodeAs(HttpStatus.BAD_GATEWAY)
+            || status.isSameCodeAs(HttpStatus.SERVICE_UNAVAILABLE)
+            || status.isSameCodeAs(HttpStatus.GATEWAY_TIMEOUT));
+  }
+}
@@ -0,0 +1,74 @@
+package ru.mephi.apigateway.filter;
+
+import ru.mephi.commonlib.support.IdentityHeader;
+import java.time.Duration;
+import java.time.Instant;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Forwards the caller the gateway has verified as a signed {@link IdentityHeader}, valid until the
+ * token's {@code exp} or for {@code auth.identity.ttl-seconds}, whichever is sooner, and only
+ * together with the bearer token it was signed for. Services with {@code auth.identity.enabled}
+ * authenticate from it instead of verifying the bearer token again. Whatever {@value IdentityHeader#HEADER} the client sent is dropped.
+ */
+@Component
+public class IdentityHeaderGlobalFilter implements GlobalFilter, Ordered {
+
+  private static final int FILTER_ORDER = -40;
+
+  private final boolean enabled;
+  private final IdentityHeader identities;
+  private final Duration ttl;
+
+  public IdentityHeaderGlobalFilter(
+      @Value("${auth.identity.enabled:false}") boolean enabled,
+      @Value("${auth.identity.secret}") String secret,
+      @Value("${auth.identity.ttl-seconds:60}") long ttlSeconds) {
+    this.enabled = enabled;
+    this.identities = new IdentityHeader(secret);
+    this.ttl = Duration.ofSeconds(ttlSeconds);
+  }
+
+  @Override
+  public int getOrder() {
+    return FILTER_ORDER;
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain filterChain) {
+    ServerHttpRequest stripped =
+        exchange.getRequest().mutate().headers(h -> h.remove(IdentityHeader.HEADER)).build();
+    if (!enabled) return filterChain.filter(exchange.mutate().request(stripped).build());
+
+    return exchange
+        .getPrincipal()
+        .ofType(JwtAuthenticationToken.class)
+        .map(auth -> stripped.mutate().header(IdentityHeader.HEADER, sign(auth.getToken())).build())
+        .defaultIfEmpty(stripped)
+        .flatMap(request -> filterChain.filter(exchange.mutate().request(request).build()));
+  }
+
+  private String sign(Jwt jwt) {
+    Instant expiresAt = Instant.now().plus(ttl);
+    if (jwt.getExpiresAt() != null && jwt.getExpiresAt().isBefore(expiresAt)) {
+      expiresAt = jwt.getExpiresAt();
+    }
+    Object uid = jwt.getClaims().get("uid");
+    return identities.sign(
+        new IdentityHeader.Identity(
+            jwt.getSubject(),
+            uid instanceof Number n ? n.longValue() : null,
+            (String) jwt.getClaims().getOrDefault("role", "ROLE_USER"),
+            expiresAt),
+        jwt.getTokenValue());
+  }
+}
@@ -0,0 +1,91 @@
+package ru.mephi.apigateway.filter;
+
+import ru.mephi.apigateway.config.RateLimitProperties;
+import ru.mephi.commonlib.error.exceptions.RateLimitedException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.net.InetSocketAddress;
+import java.security.Principal;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Limits the requests of each caller per route, as configured under {@code gateway.rate-limit}: an
+ * authenticated caller by principal name, an anonymous one by client address. A request over the
+ * limit is answered 429 with {@code Retry-After} and never reaches the route. Buckets live in this
+ * instance's memory, so each gateway replica enforces the limits on its own.
+ *
+ * <p>Exposes {@code gateway.rate-limit.rejected} by route and {@code gateway.rate-limit.buckets}.
+ */
+@Component
+public class RateLimitGlobalFilter implements GlobalFilter, Ordered {
+
+  private static final int FILTER_ORDER = -60;
+  private static final String ANONYMOUS = "anonymous";
+
+  private final RateLimitProperties limits;
+  private final TokenBuckets buckets;
+  private final LongSupplier nanoTime;
+  private final MeterRegistry meters;
+
+  @Autowired
+  public RateLimitGlobalFilter(RateLimitProperties limits, MeterRegistry meters) {
+    this(limits, meters, System::nanoTime);
+  }
+
+  RateLimitGlobalFilter(RateLimitProperties limits, MeterRegistry meters, LongSupplier nanoTime) {
+    this.limits = limits;
+    this.nanoTime = nanoTime;
+    this.meters = meters;
+    this.buckets =
+        new TokenBuckets(
+            limits.idleEviction().toNanos(), limits.maxBuckets(), nanoTime.getAsLong());
+    Gauge.builder("gateway.rate-limit.buckets", buckets, TokenBuckets::size).register(meters);
+  }
+
+  @Override
+  public int getOrder() {
+    return FILTER_ORDER;
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain filterChain) {
+    Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+    RateLimitProperties.Limit limit =
+        !limits.enabled() || route == null ? null : limits.routes().get(route.getId());
+    if (limit == null) return filterChain.filter(exchange);
+
+    return exchange
+        .getPrincipal()
+        .map(Principal::getName)
+        .defaultIfEmpty(clientAddress(exchange))
+        .flatMap(
+            caller -> {
+              long wait =
+                  buckets.take(
+                      route.getId() + '\n' + caller, route.getId(), limit, nanoTime.getAsLong());
+              if (wait == 0) return filterChain.filter(exchange);
+              meters.counter("gateway.rate-limit.rejected", "route", route.getId()).increment();
+              long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + 999_999_999L));
+              exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+              return Mono.error(new RateLimitedException());
+            });
+  }
+
+  private static String clientAddress(ServerWebExchange exchange) {
+    InetSocketAddress remote = exchange.getRequest().getRemoteAddress();
+    return remote == null || remote.getAddress() == null
+        ? ANONYMOUS
+        : remote.getAddress().getHostAddress();
+  }
+}
@@ -0,0 +1,82 @@
+package ru.mephi.apigateway.filter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.http.MediaType;
+
+/**
+ * Responses by key, a bounded LRU of {@code maxEntries}. An entry is dropped when read after its
+ * expiry. {@link #invalidate()} empties the cache and starts a new generation; a response fetched
+ * under an older generation is not stored, so a read racing a write cannot put back what the write
+ * changed.
+ */
+class ResponseCache {
+  private final Map<String, Entry> entries;
+  private long generation;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  ResponseCache(int maxEntries) {
+    this.entries =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxEntries;
+          }
+        };
+  }
+
+  Entry get(String key, long now) {
+    Entry e;
+    synchronized (entries) {
+      e = entries.get(key);
+      if (e != null && now - e.expiresAt() >= 0) {
+        entries.remove(key);
+        e = null;
+      }
+    }
+    (e == null ? misses : hits).increment();
+    return e;
+  }
+
+  /** The generation to pass to {@link #put} for a response about to be fetched. */
+  long generation() {
+    synchronized (entries) {
+      return generation;
+    }
+  }
+
+  void put(String key, Entry entry, long fetchedIn) {
+    synchronized (entries) {
+      if (fetchedIn == generation) entries.put(key, entry);
+    }
+  }
+
+  /** Drops every entry; returns how many there were. */
+  int invalidate() {
+    synchronized (entries) {
+      generation++;
+      int dropped = entries.size();
+      entries.clear();
+      return dropped;
+    }
+  }
+
+  long hits() {
+    return hits.sum();
+  }
+
+  long misses() {
+    return misses.sum();
+  }
+
+  int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  record Entry(byte[] body, MediaType contentType, String etag, long expiresAt) {}
+}
@@ -0,0 +1,31 @@
+package ru.mephi.apigateway.filter;
+
+import java.util.Map;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code GET /actuator/responsecache} shows how many responses are cached, {@code POST} (admins
+ * only) drops them all, e.g. after the catalog was changed other than through this gateway.
+ */
+@Component
+@Endpoint(id = "responsecache")
+public class ResponseCacheEndpoint {
+  private final ResponseCacheGlobalFilter cache;
+
+  public ResponseCacheEndpoint(ResponseCacheGlobalFilter cache) {
+    this.cache = cache;
+  }
+
+  @ReadOperation
+  public Map<String, Object> size() {
+    return Map.of("entries", cache.size());
+  }
+
+  @WriteOperation
+  public Map<String, Object> invalidate() {
+    return Map.of("dropped", cache.invalidate());
+  }
+}
@@ -0,0 +1,245 @@
+package ru.mephi.apigateway.filter;
+
+import ru.mephi.apigateway.config.ResponseCacheProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Answers GETs of the slowly changing catalog lists ({@code gateway.response-cache.paths}, matched
+ * exactly, so not e.g. the date-specific {@code /api/rooms/recommend} below them) from memory
+ * for up to {@code ttl}, keyed by the caller's role, the path and the query, so a repeated read
+ * does not reach hotel-api and its database. Only uncompressed 200 responses without {@code
+ * no-store} are kept, so a miss asks the route for an uncompressed body. Every 200 of the paths
+ * carries a strong {@code ETag}, and a request whose {@code If-None-Match} names it gets 304
+ * without a body, cached or not.
+ *
+ * <p>A successful POST, PUT, PATCH or DELETE under the paths passing through this gateway empties
+ * the cache; changes made another way are picked up after {@code ttl}, or at once through {@code
+ * POST /actuator/responsecache}. {@code X-Cache} tells a hit from a miss.
+ *
+ * <p>Exposes {@code gateway.response-cache.hits}, {@code .misses} and {@code .size}.
+ */
+@Component
+public class ResponseCacheGlobalFilter implements GlobalFilter, Ordered {
+
+  public static final String CACHE_HEADER = "X-Cache";
+
+  /** After the per-caller rate limit, before the upstream concurrency limit a hit does not use. */
+  private static final int FILTER_ORDER = -58;
+
+  private final ResponseCacheProperties props;
+  private final ResponseCache cache;
+  private final LongSupplier nanoTime;
+
+  @Autowired
+  public ResponseCacheGlobalFilter(ResponseCacheProperties props, MeterRegistry meters) {
+    this(props, meters, System::nanoTime);
+  }
+
+  ResponseCacheGlobalFilter(
+      ResponseCacheProperties props, MeterRegistry meters, LongSupplier nanoTime) {
+    this.props = props;
+    this.cache = new ResponseCache(props.maxEntries());
+    this.nanoTime = nanoTime;
+    FunctionCounter.builder("gateway.response-cache.hits", cache, ResponseCache::hits)
+        .register(meters);
+    FunctionCounter.builder("gateway.response-cache.misses", cache, ResponseCache::misses)
+        .register(meters);
+    Gauge.builder("gateway.response-cache.size", cache, ResponseCache::size).register(meters);
+  }
+
+  @Override
+  public int getOrder() {
+    return FILTER_ORDER;
+  }
+
+  /** Empties the cache; returns how many responses were dropped. */
+  public int invalidate() {
+    return cache.invalidate();
+  }
+
+  public int size() {
+    return cache.size();
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain filterChain) {
+    ServerHttpRequest request = exchange.getRequest();
+    String path = request.getPath().value();
+    if (!props.enabled() || !underPaths(path)) return filterChain.filter(exchange);
+    HttpMethod method = request.getMethod();
+    if (method == HttpMethod.HEAD || method == HttpMethod.OPTIONS) {
+      return filterChain.filter(exchange);
+    }
+    // only the lists themselves: below them are per-date reads such as /api/rooms/recommend
+    if (method == HttpMethod.GET && !props.paths().contains(path)) {
+      return filterChain.filter(exchange);
+    }
+    if (method != HttpMethod.GET) {
+      return filterChain
+          .filter(exchange)
+          .doOnSuccess(
+              done -> {
+                HttpStatusCode status = exchange.getResponse().getStatusCode();
+                if (status != null && status.is2xxSuccessful()) cache.invalidate();
+              });
+    }
+
+    return exchange
+        .getPrincipal()
+        .map(ResponseCacheGlobalFilter::role)
+        .defaultIfEmpty("")
+        .flatMap(
+            role -> {
+              String key = role + ' ' + request.getURI().getRawPath() + '?' + rawQuery(request);
+              ResponseCache.Entry hit = cache.get(key, nanoTime.getAsLong());
+              if (hit != null) return answer(exchange, hit);
+              long generation = cache.generation();
+              // stored bytes are replayed to any client, so they must not be compressed for one
+              ServerHttpRequest identity =
+                  request.mutate().headers(h -> h.remove(HttpHeaders.ACCEPT_ENCODING)).build();
+              return filterChain.filter(
+                  exchange
+                      .mutate()
+                      .request(identity)
+                      .response(new Capturing(exchange, key, generation))
+                      .build());
+            });
+  }
+
+  private boolean underPaths(String path) {
+    for (String prefix : props.paths()) {
+      if (path.equals(prefix) || path.startsWith(prefix + "/")) return true;
+    }
+    return false;
+  }
+
+  private static Mono<Void> answer(ServerWebExchange exchange, ResponseCache.Entry hit) {
+    ServerHttpResponse response = exchange.getResponse();
+    HttpHeaders headers = response.getHeaders();
+    headers.setETag(hit.etag());
+    headers.set(CACHE_HEADER, "HIT");
+    if (notModified(exchange.getRequest(), hit.etag())) {
+      response.setStatusCode(HttpStatus.NOT_MODIFIED);
+      return response.setComplete();
+    }
+    response.setStatusCode(HttpStatus.OK);
+    if (hit.contentType() != null) headers.setContentType(hit.contentType());
+    headers.setContentLength(hit.body().length);
+    return response.writeWith(Mono.just(response.bufferFactory().wrap(hit.body())));
+  }
+
+  private static boolean notModified(ServerHttpRequest request, String etag) {
+    List<String> wanted = request.getHeaders().getIfNoneMatch();
+    return wanted.contains(etag) || wanted.contains("*");
+  }
+
+  private static String role(Principal principal) {
+    if (!(principal instanceof Authentication auth)) return "";
+    return auth.getAuthorities().stream()
+        .map(GrantedAuthority::getAuthority)
+        .sorted()
+        .collect(Collectors.joining(","));
+  }
+
+  private static String rawQuery(ServerHttpRequest request) {
+    String query = request.getURI().getRawQuery();
+    return query == null ? "" : query;
+  }
+
+  private static String etag(byte[] body) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+      return '"' + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + '"';
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** Buffers a 200 from the route, to store it and to answer 304 when the client has it already. */
+  private final class Capturing extends ServerHttpResponseDecorator {
+    private final ServerHttpRequest request;
+    private final String key;
+    private final long generation;
+
+    Capturing(ServerWebExchange exchange, String key, long generation) {
+      super(exchange.getResponse());
+      this.request = exchange.getRequest();
+      this.key = key;
+      this.generation = generation;
+    }
+
+    @Override
+    public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+      HttpStatusCode status = getStatusCode();
+      if (status == null || status.value() != HttpStatus.OK.value()) return super.writeWith(body);
+
+      return DataBufferUtils.join(body)
+          .map(
+              joined -> {
+                byte[] bytes = new byte[joined.readableByteCount()];
+                joined.read(bytes);
+                DataBufferUtils.release(joined);
+                return bytes;
+              })
+          .defaultIfEmpty(new byte[0])
+          .flatMap(this::write);
+    }
+
+    private Mono<Void> write(byte[] bytes) {
+      HttpHeaders headers = getHeaders();
+      String etag = etag(bytes);
+      if (bytes.length <= props.maxEntrySize().toBytes()
+          && !noStore(headers)
+          && !headers.containsKey(HttpHeaders.CONTENT_ENCODING)) {
+        long expiresAt = nanoTime.getAsLong() + props.ttl().toNanos();
+        cache.put(
+            key,
+            new ResponseCache.Entry(bytes, headers.getContentType(), etag, expiresAt),
+            generation);
+      }
+      headers.setETag(etag);
+      headers.set(CACHE_HEADER, "MISS");
+      if (notModified(request, etag)) {
+        setStatusCode(HttpStatus.NOT_MODIFIED);
+        headers.remove(HttpHeaders.CONTENT_TYPE);
+        headers.remove(HttpHeaders.CONTENT_LENGTH);
+        return setComplete();
+      }
+      headers.setContentLength(bytes.length);
+      return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+    }
+
+    private static boolean noStore(HttpHeaders headers) {
+      String control = headers.getCacheControl();
+      return control != null && control.contains("no-store");
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package ru.mephi.apigateway.filter;
+
+import ru.mephi.apigateway.config.RateLimitProperties.Limit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets by key, without locks. A bucket is a single timestamp, the instant at which it will
+ * be full again: taking a token pushes it one refill interval later, and is refused while that
+ * would put it more than {@code burst} intervals ahead of now. So the refill and the take are one
+ * compare-and-set, and a bucket whose timestamp has passed is full and can be dropped at no cost
+ * to the caller.
+ *
+ * <p>Buckets full for longer than {@code idleNanos} are swept out at most once per {@code
+ * idleNanos}, by whichever caller notices first. While {@code maxBuckets} are in use, keys that
+ * have no bucket yet share {@code overflowKey}'s.
+ */
+class TokenBuckets {
+  private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+  private final AtomicLong lastSweep;
+  private final long idleNanos;
+  private final int maxBuckets;
+
+  TokenBuckets(long idleNanos, int maxBuckets, long now) {
+    this.idleNanos = idleNanos;
+    this.maxBuckets = maxBuckets;
+    this.lastSweep = new AtomicLong(now);
+  }
+
+  /**
+   * Takes a token from the bucket of {@code key}. Returns 0 when taken, or else the nanoseconds
+   * until one will be available.
+   */
+  long take(String key, String overflowKey, Limit limit, long now) {
+    long sweptAt = lastSweep.get();
+    if (now - sweptAt >= idleNanos && lastSweep.compareAndSet(sweptAt, now)) sweep(now);
+
+    AtomicLong fullAt = buckets.get(key);
+    if (fullAt == null) {
+      // not swept here: with many new keys that would scan the map on every request
+      if (buckets.size() >= maxBuckets) key = overflowKey;
+      fullAt = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+    }
+
+    long interval = (long) (1_000_000_000L / limit.perSecond());
+    long window = interval * limit.burst();
+    while (true) {
+      long current = fullAt.get();
+      long next = Math.max(current, now) + interval;
+      long ahead = next - now;
+      if (ahead > window) return ahead - window;
+      if (fullAt.compareAndSet(current, next)) return 0;
+    }
+  }
+
+  int size() {
+    return buckets.size();
+  }
+
+  private void sweep(long now) {
+    buckets.values().removeIf(fullAt -> now - fullAt.get() >= idleNanos);
+  }
+}
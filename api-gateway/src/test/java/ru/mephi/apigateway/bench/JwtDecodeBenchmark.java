@@ -0,0 +1,107 @@
+package ru.mephi.apigateway.bench;
+
+import ru.mephi.commonlib.support.VerifiedJwtCache;
+import com.nimbusds.jose.jwk.source.ImmutableSecret;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of authenticating a request at the gateway: verifying the HS256 bearer token with the Nimbus
+ * decoder every time versus through {@link VerifiedJwtCache}, with {@code tokens} distinct clients
+ * sending requests in random order. Not part of the regular test run (surefire only picks up
+ * {@code *Test}); start it explicitly:
+ *
+ * <pre>
+ * mvn -pl api-gateway test -Dtest=JwtDecodeBenchmark -Dbench.threads=16
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtDecodeBenchmark {
+
+    private static final String SECRET = "bench-secret-bench-secret-bench-secret-bench-secret-bench";
+
+    @Param({"100", "10000"})
+    public int tokens;
+
+    private String[] bearers;
+    private ReactiveJwtDecoder nimbus;
+    private ReactiveJwtDecoder cached;
+
+    @Setup
+    public void setUp() {
+        SecretKey key = new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        JwtEncoder encoder = new NimbusJwtEncoder(new ImmutableSecret<>(key));
+        JwsHeader header = JwsHeader.with(MacAlgorithm.HS256).build();
+        Instant now = Instant.now();
+        bearers = new String[tokens];
+        for (int i = 0; i < tokens; i++) {
+            JwtClaimsSet claims = JwtClaimsSet.builder()
+                    .subject("user-" + i)
+                    .claim("role", "ROLE_USER")
+                    .issuedAt(now)
+                    .expiresAt(now.plusSeconds(3600))
+                    .build();
+            bearers[i] = encoder.encode(JwtEncoderParameters.from(header, claims)).getTokenValue();
+        }
+        nimbus = NimbusReactiveJwtDecoder.withSecretKey(key).macAlgorithm(MacAlgorithm.HS256).build();
+        cached = new VerifiedJwtCache(10_000, Duration.ofMinutes(5)).caching(nimbus);
+    }
+
+    private String anyBearer() {
+        return bearers[ThreadLocalRandom.current().nextInt(tokens)];
+    }
+
+    @Benchmark
+    public Jwt verifyEveryRequest() {
+        return nimbus.decode(anyBearer()).block();
+    }
+
+    @Benchmark
+    public Jwt verifiedCache() {
+        return cached.decode(anyBearer()).block();
+    }
+
+    @Test
+    void run() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(JwtDecodeBenchmark.class.getName())
+                .threads(Integer.getInteger("bench.threads", 8))
+                .forks(1)
+                .warmupIterations(2)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(3)
+                .measurementTime(TimeValue.seconds(Integer.getInteger("bench.seconds", 2)))
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,100 @@
+package ru.mephi.apigateway.bench;
+
+import ru.mephi.apigateway.config.RateLimitProperties;
+import ru.mephi.apigateway.filter.RateLimitGlobalFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time {@link RateLimitGlobalFilter} adds to a request on a limited route, against passing the
+ * request straight to the chain, with {@code callers} distinct principals and {@code bench.threads}
+ * concurrent requests. At 50k rps a request arrives every 20 µs; the filter's cost should be a small
+ * fraction of that. The limit is high enough that every request passes, so the chain always runs.
+ * Not part of the regular test run (surefire only picks up {@code *Test}); start it explicitly:
+ *
+ * <pre>
+ * mvn -pl api-gateway test -Dtest=RateLimitFilterBenchmark -Dbench.threads=16
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RateLimitFilterBenchmark {
+
+    @Param({"100", "10000"})
+    public int callers;
+
+    private ServerWebExchange[] exchanges;
+    private RateLimitGlobalFilter filter;
+    private final GatewayFilterChain chain = exchange -> Mono.empty();
+
+    @Setup
+    public void setUp() {
+        var limits = new RateLimitProperties(true, Duration.ofMinutes(5), 100_000,
+                Map.of("booking-api", new RateLimitProperties.Limit(1_000_000, 1_000_000)));
+        filter = new RateLimitGlobalFilter(limits, new SimpleMeterRegistry());
+        Route route = Route.async().id("booking-api").uri(URI.create("http://localhost")).predicate(e -> true).build();
+        exchanges = new ServerWebExchange[callers];
+        for (int i = 0; i < callers; i++) {
+            var principal = new UsernamePasswordAuthenticationToken("user-" + i, null);
+            ServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/booking"))
+                    .mutate().principal(Mono.just(principal)).build();
+            exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+            exchanges[i] = exchange;
+        }
+    }
+
+    private ServerWebExchange anyExchange() {
+        return exchanges[ThreadLocalRandom.current().nextInt(callers)];
+    }
+
+    @Benchmark
+    public Void withoutFilter() {
+        return chain.filter(anyExchange()).block();
+    }
+
+    @Benchmark
+    public Void rateLimited() {
+        return filter.filter(anyExchange(), chain).block();
+    }
+
+    @Test
+    void run() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(RateLimitFilterBenchmark.class.getName())
+                .threads(Integer.getInteger("bench.threads", 8))
+                .forks(1)
+                .warmupIterations(2)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(3)
+                .measurementTime(TimeValue.seconds(Integer.getInteger("bench.seconds", 2)))
+                .build();
+        new Runner(options).run();
+    }
+}
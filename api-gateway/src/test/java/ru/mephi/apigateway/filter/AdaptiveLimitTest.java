@@ -0,0 +1,244 @@
+package ru.mephi.apigateway.filter;
+
+import ru.mephi.apigateway.config.ConcurrencyLimitProperties.Limit;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveLimitTest {
+
+    private static final long MS = 1_000_000L;
+
+    private static final long SECOND = 1000 * MS;
+    private static final String READ = "GET /bookings";
+    private static final String LOGIN = "POST /user/auth";
+
+    private static AdaptiveLimit limit(int initial) {
+        return new AdaptiveLimit(new Limit(initial, 2, 50), 2.0, 0.5, 10 * SECOND, 0);
+    }
+
+    @Test
+    void refusesAtLimit_untilSlotReleased() {
+        AdaptiveLimit limit = limit(2);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+
+        limit.release();
+        assertTrue(limit.tryAcquire());
+        assertEquals(2, limit.inFlight());
+    }
+
+    @Test
+    void growsAboutOnePerRoundTrip_whileFastAndInUse() {
+        AdaptiveLimit limit = limit(4);
+        for (int i = 0; i < 4; i++) limit.tryAcquire();
+
+        // a round trip of four requests, each replaced as it finishes
+        for (long t = 10; t < 50; t += 10) {
+            limit.release(READ, t * MS - 10 * MS, t * MS, false);
+            limit.tryAcquire();
+        }
+
+        assertEquals(4, limit.limit());
+        limit.release(READ, 40 * MS, 50 * MS, false);
+        assertEquals(5, limit.limit());
+    }
+
+    @Test
+    void cutsByAtMostBackoff_oncePerRoundTrip() {
+        AdaptiveLimit limit = limit(8);
+        for (int i = 0; i < 8; i++) limit.tryAcquire();
+        limit.release(READ, 1 * MS, 11 * MS, false);
+
+        // 10 s against 10 ms without load still only halves it; the next was admitted before the cut
+        limit.release(READ, 2 * MS, 10_002 * MS, false);
+        limit.release(READ, 3 * MS, 10_003 * MS, false);
+        assertEquals(4, limit.limit());
+
+        limit.release(READ, 10_005 * MS, 10_006 * MS, true);
+        assertEquals(2, limit.limit());
+    }
+
+    @Test
+    void cutsToUnqueuedShare_whenGentlerThanBackoff() {
+        AdaptiveLimit limit = new AdaptiveLimit(new Limit(10, 2, 50), 1.5, 0.5, 10 * SECOND, 0);
+        for (int i = 0; i < 10; i++) limit.tryAcquire();
+        limit.release(READ, 1 * MS, 11 * MS, false);
+
+        // 16 ms against 10 ms: 10 x 10/16
+        limit.release(READ, 2 * MS, 18 * MS, false);
+
+        assertEquals(6, limit.limit());
+    }
+
+    @Test
+    void judgesEachEndpointAgainstItself() {
+        AdaptiveLimit limit = limit(10);
+        for (int i = 0; i < 10; i++) limit.tryAcquire();
+        limit.release(READ, 0, 10 * MS, false);
+
+        // a login is always 20 times slower than a read, which is no sign of load
+        limit.release(LOGIN, 1 * MS, 201 * MS, false);
+        limit.release(LOGIN, 2 * MS, 212 * MS, false);
+        limit.release(READ, 3 * MS, 13 * MS, false);
+
+        assertTrue(limit.limit() >= 10, "limit " + limit.limit());
+    }
+
+    @Test
+    void doesNotGrow_whenMostlyIdle() {
+        AdaptiveLimit limit = limit(10);
+        limit.tryAcquire();
+
+        limit.release(READ, 0, 10 * MS, false);
+
+        assertEquals(10, limit.limit());
+    }
+
+    @Test
+    void takesSlowerUpstreamAsItIs_afterTwoWindows() {
+        AdaptiveLimit limit = limit(10);
+        for (int i = 0; i < 10; i++) limit.tryAcquire();
+        limit.release(READ, 0, 10 * MS, false);
+
+        // five times slower: overload for the rest of this window and the next
+        limit.release(READ, SECOND, SECOND + 50 * MS, false);
+        assertEquals(5, limit.limit());
+        limit.release(READ, 12 * SECOND, 12 * SECOND + 50 * MS, false);
+        assertEquals(2, limit.limit());
+
+        for (int i = 0; i < 3; i++) limit.release(READ, 22 * SECOND, 22 * SECOND + 50 * MS, false);
+        assertEquals(3, limit.limit());
+    }
+
+    /**
+     * Upstream stand-in: serves {@code workers} requests at a time and queues the rest, like a
+     * service on a fixed thread pool. A read takes {@code readMs}; every {@code loginEvery}-th
+     * request, if any, is a login taking {@code loginMs}.
+     */
+    private static final class Upstream {
+        private final int workers;
+        private int readMs;
+        private int loginMs;
+        private int loginEvery;
+        private long arrivals;
+        /** {admitted at, ms to serve} */
+        private final ArrayDeque<long[]> queued = new ArrayDeque<>();
+        /** {admitted at, done at, ms to serve} */
+        private final PriorityQueue<long[]> serving = new PriorityQueue<>((a, b) -> Long.compare(a[1], b[1]));
+
+        Upstream(int workers, int readMs) {
+            this.workers = workers;
+            this.readMs = readMs;
+        }
+
+        int nextServiceMs() {
+            return loginEvery > 0 && ++arrivals % loginEvery == 0 ? loginMs : readMs;
+        }
+    }
+
+    /** What the admitted reads saw over one phase of {@link #run}, and how low the limit went. */
+    private record Phase(int served, int shed, long maxReadLatencyMs, int lowestLimit) {}
+
+    /** Offers {@code perSecond} requests, evenly spread, for {@code ms}, through the limit. */
+    private static Phase run(AdaptiveLimit limit, Upstream upstream, long from, int ms, int perSecond) {
+        int served = 0, shed = 0, owed = 0;
+        long maxLatency = 0;
+        int lowestLimit = limit.limit();
+        for (long now = from; now < from + ms; now++) {
+            while (!upstream.serving.isEmpty() && upstream.serving.peek()[1] <= now) {
+                long[] done = upstream.serving.poll();
+                boolean read = done[2] == upstream.readMs;
+                limit.release(read ? READ : LOGIN, done[0] * MS, now * MS, false);
+                if (read) maxLatency = Math.max(maxLatency, now - done[0]);
+                served++;
+            }
+            for (owed += perSecond; owed >= 1000; owed -= 1000) {
+                if (limit.tryAcquire()) upstream.queued.add(new long[]{now, upstream.nextServiceMs()});
+                else shed++;
+            }
+            for (Iterator<long[]> it = upstream.queued.iterator();
+                 it.hasNext() && upstream.serving.size() < upstream.workers; ) {
+                long[] next = it.next();
+                upstream.serving.add(new long[]{next[0], now + next[1], next[1]});
+                it.remove();
+            }
+            lowestLimit = Math.min(lowestLimit, limit.limit());
+        }
+        return new Phase(served, shed, maxLatency, lowestLimit);
+    }
+
+    private static AdaptiveLimit simulated() {
+        return new AdaptiveLimit(new Limit(20, 4, 200), 2.0, 0.5, 2 * SECOND, 0);
+    }
+
+    @Test
+    void simulation_underOverload_keepsLatencyNearNoLoad_andThroughputNearCapacity() {
+        // 10 workers x 20 ms = 500 requests/s of capacity, offered 2000/s
+        AdaptiveLimit limit = simulated();
+        Upstream upstream = new Upstream(10, 20);
+
+        run(limit, upstream, 0, 5_000, 2000);
+        Phase steady = run(limit, upstream, 5_000, 10_000, 2000);
+
+        assertTrue(steady.maxReadLatencyMs() <= 3 * 20, "latency " + steady.maxReadLatencyMs());
+        assertTrue(steady.served() >= 0.9 * 500 * 10, "served " + steady.served());
+        assertTrue(upstream.queued.size() <= 20, "queued " + upstream.queued.size());
+    }
+
+    @Test
+    void simulation_upstreamSlowsDown_shedsInsteadOfQueueing() {
+        AdaptiveLimit limit = simulated();
+        Upstream upstream = new Upstream(10, 20);
+        run(limit, upstream, 0, 5_000, 2000);
+
+        // now 100 requests/s of capacity; without a limit the queue would grow by 1900 a second
+        upstream.readMs = 100;
+        Phase degrading = run(limit, upstream, 5_000, 4_000, 2000);
+        Phase degraded = run(limit, upstream, 9_000, 10_000, 2000);
+
+        assertTrue(degrading.maxReadLatencyMs() <= 3 * 100, "latency " + degrading.maxReadLatencyMs());
+        assertTrue(degraded.maxReadLatencyMs() <= 3 * 100, "latency " + degraded.maxReadLatencyMs());
+        assertTrue(degraded.served() >= 0.9 * 100 * 10, "served " + degraded.served());
+        assertTrue(upstream.queued.size() <= 20, "queued " + upstream.queued.size());
+    }
+
+    /** Reads of 2 ms and one login in ten of 100 ms: 10 workers serve about 850 requests/s. */
+    private static Upstream mixed() {
+        Upstream upstream = new Upstream(10, 2);
+        upstream.loginMs = 100;
+        upstream.loginEvery = 10;
+        return upstream;
+    }
+
+    @Test
+    void simulation_fastAndSlowEndpointsOnOneRoute_belowCapacity_shedsNothing() {
+        AdaptiveLimit limit = simulated();
+        Upstream upstream = mixed();
+
+        // at 80% of capacity; logins judged against reads would cut the limit to 5 and shed a fifth
+        Phase phase = run(limit, upstream, 0, 20_000, 700);
+
+        assertEquals(0, phase.shed());
+        assertTrue(phase.lowestLimit() >= 20, "lowest limit " + phase.lowestLimit());
+    }
+
+    @Test
+    void simulation_fastAndSlowEndpointsOnOneRoute_overloaded_keepsThroughput() {
+        AdaptiveLimit limit = simulated();
+        Upstream upstream = mixed();
+
+        run(limit, upstream, 0, 5_000, 2000);
+        Phase loaded = run(limit, upstream, 5_000, 10_000, 2000);
+
+        assertTrue(loaded.lowestLimit() > 4, "lowest limit " + loaded.lowestLimit());
+        assertTrue(loaded.served() >= 0.8 * 850 * 10, "served " + loaded.served());
+        assertTrue(loaded.maxReadLatencyMs() <= 100, "latency " + loaded.maxReadLatencyMs());
+    }
+}
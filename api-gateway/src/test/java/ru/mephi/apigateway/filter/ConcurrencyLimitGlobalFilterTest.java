@@ -0,0 +1,142 @@
+package ru.mephi.apigateway.filter;
+
+import ru.mephi.apigateway.config.ConcurrencyLimitProperties;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class ConcurrencyLimitGlobalFilterTest {
+
+    @Autowired
+    WebTestClient web;
+
+    @Autowired
+    MeterRegistry meters;
+
+    @LocalServerPort
+    int port;
+
+    /** Stands in for both services, slow or failing as each test stubs it; public paths spare the tokens. */
+    @RegisterExtension
+    static WireMockExtension upstream = WireMockExtension.newInstance().options(wireMockConfig().dynamicPort()).build();
+
+    @DynamicPropertySource
+    static void routes(DynamicPropertyRegistry r) {
+        r.add("spring.cloud.gateway.routes[0].id", () -> "booking-api");
+        r.add("spring.cloud.gateway.routes[0].uri", () -> "http://localhost:" + upstream.getPort());
+        r.add("spring.cloud.gateway.routes[0].predicates[0]", () -> "Path=/user/auth");
+        r.add("spring.cloud.gateway.routes[1].id", () -> "hotel-api");
+        r.add("spring.cloud.gateway.routes[1].uri", () -> "http://localhost:" + upstream.getPort());
+        r.add("spring.cloud.gateway.routes[1].predicates[0]", () -> "Path=/user/register");
+        r.add("spring.cloud.gateway.routes[2].id", () -> "deny-internal");
+        r.add("spring.cloud.gateway.routes[2].uri", () -> "no://op");
+        r.add("spring.cloud.gateway.routes[2].predicates[0]", () -> "Path=/internal/**");
+
+        r.add("gateway.concurrency-limit.backoff", () -> "0.5");
+        r.add("gateway.concurrency-limit.routes.booking-api.initial", () -> "2");
+        r.add("gateway.concurrency-limit.routes.booking-api.min", () -> "2");
+        r.add("gateway.concurrency-limit.routes.booking-api.max", () -> "2");
+        r.add("gateway.concurrency-limit.routes.hotel-api.initial", () -> "10");
+        r.add("gateway.concurrency-limit.routes.hotel-api.min", () -> "2");
+        r.add("gateway.concurrency-limit.routes.hotel-api.max", () -> "10");
+    }
+
+    private double gauge(String name, String route) {
+        return meters.get(name).tag("route", route).gauge().value();
+    }
+
+    @Test
+    void slowUpstream_excessShedAtOnce_with503AndRetryAfter() {
+        upstream.stubFor(WireMock.post(urlPathEqualTo("/user/auth"))
+                .willReturn(aResponse().withStatus(200).withFixedDelay(1500)));
+        WebClient client = WebClient.create("http://localhost:" + port);
+
+        List<String> answers = Flux.range(0, 6)
+                .flatMap(i -> client.post().uri("/user/auth").exchangeToMono(response -> response.bodyToMono(String.class)
+                        .map(body -> body.contains("\"OVERLOADED\"") ? " OVERLOADED" : "")
+                        .defaultIfEmpty("")
+                        .map(code -> response.statusCode().value() + code + " "
+                                + response.headers().asHttpHeaders().getFirst(HttpHeaders.RETRY_AFTER))), 6)
+                .collectList()
+                .block();
+
+        Map<String, Long> byAnswer = answers.stream().collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+        assertEquals(Map.of("200 null", 2L, "503 OVERLOADED 1", 4L), byAnswer);
+        upstream.verify(2, postRequestedFor(urlPathEqualTo("/user/auth")));
+        await().atMost(Duration.ofSeconds(5))
+                .untilAsserted(() -> assertEquals(0, gauge("gateway.concurrency.in-flight", "booking-api")));
+    }
+
+    @Test
+    void upstreamUnavailable_backsLimitOff() {
+        upstream.stubFor(WireMock.post(urlPathEqualTo("/user/register")).willReturn(aResponse().withStatus(503)));
+
+        web.post().uri("/user/register").exchange().expectStatus().isEqualTo(503);
+
+        // the sample is taken once the response is written, which the client may see first
+        await().atMost(Duration.ofSeconds(5))
+                .untilAsserted(() -> assertEquals(5, gauge("gateway.concurrency.limit", "hotel-api")));
+    }
+
+    @Test
+    void longPollsAndStreams_holdSlotButAreNotSampled() {
+        AtomicLong clock = new AtomicLong();
+        MeterRegistry registry = new SimpleMeterRegistry();
+        var props = new ConcurrencyLimitProperties(true, 2.0, 0.5, Duration.ofSeconds(10), Duration.ofSeconds(1),
+                List.of("/booking/*/completion"), Map.of("booking-api", new ConcurrencyLimitProperties.Limit(8, 2, 8)));
+        var filter = new ConcurrencyLimitGlobalFilter(props, registry, clock::get);
+        Route route = Route.async().id("booking-api").uri("http://booking").predicate(exchange -> true).build();
+        BiConsumer<MockServerHttpRequest.BaseBuilder<?>, Duration> send = (request, takes) -> {
+            MockServerWebExchange exchange = MockServerWebExchange.from(request);
+            exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+            filter.filter(exchange, e -> Mono.fromRunnable(() -> clock.addAndGet(takes.toNanos()))).block();
+        };
+        DoubleSupplier limit = () -> registry.get("gateway.concurrency.limit").tag("route", "booking-api").gauge().value();
+
+        send.accept(MockServerHttpRequest.get("/bookings"), Duration.ofMillis(2));
+        send.accept(MockServerHttpRequest.get("/booking/7/completion"), Duration.ofSeconds(10));
+        send.accept(MockServerHttpRequest.get("/bookings").accept(MediaType.APPLICATION_NDJSON), Duration.ofSeconds(10));
+        assertEquals(8, limit.getAsDouble());
+
+        // an ordinary read as slow is overload, cut by no more than backoff
+        send.accept(MockServerHttpRequest.get("/bookings"), Duration.ofSeconds(10));
+        assertEquals(4, limit.getAsDouble());
+    }
+}
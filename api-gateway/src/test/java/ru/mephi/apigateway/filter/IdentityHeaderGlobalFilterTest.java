@@ -0,0 +1,99 @@
+package ru.mephi.apigateway.filter;
+
+import ru.mephi.commonlib.support.IdentityHeader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class IdentityHeaderGlobalFilterTest {
+
+    private static final String SECRET = "identity-test-identity-test-identity-test";
+
+    private final IdentityHeader identities = new IdentityHeader(SECRET);
+    private GatewayFilterChain chain;
+
+    @BeforeEach
+    void setUp() {
+        chain = mock(GatewayFilterChain.class);
+        when(chain.filter(any())).thenReturn(Mono.empty());
+    }
+
+    private static ServerWebExchange exchange(JwtAuthenticationToken principal) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.get("/bookings").header(IdentityHeader.HEADER, "forged-by-client"));
+        return principal == null ? exchange : exchange.mutate().principal(Mono.just(principal)).build();
+    }
+
+    private static JwtAuthenticationToken token(Instant expiresAt) {
+        Jwt jwt = Jwt.withTokenValue("user-token")
+                .header("alg", "HS256")
+                .subject("alice")
+                .claim("uid", 42)
+                .claim("role", "ROLE_ADMIN")
+                .issuedAt(expiresAt.minusSeconds(3600))
+                .expiresAt(expiresAt)
+                .build();
+        return new JwtAuthenticationToken(jwt);
+    }
+
+    private String forwarded() {
+        ArgumentCaptor<ServerWebExchange> sent = ArgumentCaptor.forClass(ServerWebExchange.class);
+        verify(chain).filter(sent.capture());
+        return sent.getValue().getRequest().getHeaders().getFirst(IdentityHeader.HEADER);
+    }
+
+    @Test
+    void signsVerifiedCaller_forTtlAtMost() {
+        var filter = new IdentityHeaderGlobalFilter(true, SECRET, 60);
+
+        filter.filter(exchange(token(Instant.now().plusSeconds(3600))), chain).block();
+
+        var identity = identities.verify(forwarded(), "user-token").orElseThrow();
+        assertEquals("alice", identity.subject());
+        assertEquals(42L, identity.uid());
+        assertEquals("ROLE_ADMIN", identity.role());
+        assertTrue(identity.expiresAt().isBefore(Instant.now().plusSeconds(61)));
+    }
+
+    @Test
+    void identityExpiresWithToken_whenSooner() {
+        var filter = new IdentityHeaderGlobalFilter(true, SECRET, 60);
+        Instant exp = Instant.now().plusSeconds(10).truncatedTo(ChronoUnit.SECONDS);
+
+        filter.filter(exchange(token(exp)), chain).block();
+
+        assertEquals(exp, identities.verify(forwarded(), "user-token").orElseThrow().expiresAt());
+    }
+
+    @Test
+    void anonymousRequest_forwardsNoIdentity() {
+        var filter = new IdentityHeaderGlobalFilter(true, SECRET, 60);
+
+        filter.filter(exchange(null), chain).block();
+
+        assertNull(forwarded());
+    }
+
+    @Test
+    void disabled_stillDropsClientHeader() {
+        var filter = new IdentityHeaderGlobalFilter(false, SECRET, 60);
+
+        filter.filter(exchange(token(Instant.now().plusSeconds(3600))), chain).block();
+
+        assertNull(forwarded());
+    }
+}
@@ -0,0 +1,61 @@
+package ru.mephi.apigateway.filter;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class RateLimitGlobalFilterTest {
+
+    @Autowired
+    WebTestClient web;
+
+    @RegisterExtension
+    static WireMockExtension booking = WireMockExtension.newInstance().options(wireMockConfig().dynamicPort()).build();
+
+    @DynamicPropertySource
+    static void routes(DynamicPropertyRegistry r) {
+        r.add("spring.cloud.gateway.routes[0].id", () -> "booking-api");
+        r.add("spring.cloud.gateway.routes[0].uri", () -> "http://localhost:" + booking.getPort());
+        r.add("spring.cloud.gateway.routes[0].predicates[0]", () -> "Path=/user/**");
+        r.add("spring.cloud.gateway.routes[1].id", () -> "hotel-api");
+        r.add("spring.cloud.gateway.routes[1].uri", () -> "http://localhost:" + booking.getPort());
+        r.add("spring.cloud.gateway.routes[1].predicates[0]", () -> "Path=/api/**");
+        r.add("spring.cloud.gateway.routes[2].id", () -> "deny-internal");
+        r.add("spring.cloud.gateway.routes[2].uri", () -> "no://op");
+        r.add("spring.cloud.gateway.routes[2].predicates[0]", () -> "Path=/internal/**");
+
+        // two requests, then one every 1000 s
+        r.add("gateway.rate-limit.routes.booking-api.per-second", () -> "0.001");
+        r.add("gateway.rate-limit.routes.booking-api.burst", () -> "2");
+    }
+
+    @Test
+    void overLimit_returns429WithRetryAfter_withoutCallingRoute() {
+        booking.stubFor(WireMock.post(urlPathEqualTo("/user/auth")).willReturn(aResponse().withStatus(200)));
+
+        for (int i = 0; i < 2; i++) {
+            web.post().uri("/user/auth").exchange().expectStatus().isOk();
+        }
+        web.post().uri("/user/auth").exchange()
+                .expectStatus().isEqualTo(429)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "1000")
+                .expectBody().jsonPath("$.code").isEqualTo("RATE_LIMITED");
+
+        booking.verify(2, postRequestedFor(urlPathEqualTo("/user/auth")));
+    }
+}
@@ -0,0 +1,195 @@
+package ru.mephi.apigateway.filter;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+import com.nimbusds.jose.jwk.source.ImmutableSecret;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class ResponseCacheGlobalFilterTest {
+
+    private static final String HOTELS = "[{\"id\":1,\"name\":\"Hilton\",\"city\":\"Moscow\"}]";
+
+    @Autowired
+    WebTestClient web;
+
+    @Autowired
+    ResponseCacheGlobalFilter cache;
+
+    @Value("${auth.jwt.secret}")
+    String secret;
+
+    @RegisterExtension
+    static WireMockExtension hotel = WireMockExtension.newInstance().options(wireMockConfig().dynamicPort()).build();
+
+    @DynamicPropertySource
+    static void routes(DynamicPropertyRegistry r) {
+        r.add("spring.cloud.gateway.routes[0].id", () -> "hotel-api");
+        r.add("spring.cloud.gateway.routes[0].uri", () -> "http://localhost:" + hotel.getPort());
+        r.add("spring.cloud.gateway.routes[0].predicates[0]", () -> "Path=/api/hotels/**,/api/rooms/**");
+        r.add("spring.cloud.gateway.routes[1].id", () -> "booking-api");
+        r.add("spring.cloud.gateway.routes[1].uri", () -> "no://op");
+        r.add("spring.cloud.gateway.routes[1].predicates[0]", () -> "Path=/user/**");
+        r.add("spring.cloud.gateway.routes[2].id", () -> "deny-internal");
+        r.add("spring.cloud.gateway.routes[2].uri", () -> "no://op");
+        r.add("spring.cloud.gateway.routes[2].predicates[0]", () -> "Path=/internal/**");
+    }
+
+    @BeforeEach
+    void emptyCache() {
+        cache.invalidate();
+    }
+
+    private String bearer(String role) {
+        var encoder = new NimbusJwtEncoder(new ImmutableSecret<>(
+                new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256")));
+        Instant now = Instant.now();
+        JwtClaimsSet claims = JwtClaimsSet.builder()
+                .subject("alice")
+                .claim("role", role)
+                .issuedAt(now)
+                .expiresAt(now.plusSeconds(600))
+                .build();
+        String token = encoder.encode(JwtEncoderParameters.from(JwsHeader.with(MacAlgorithm.HS256).build(), claims))
+                .getTokenValue();
+        return "Bearer " + token;
+    }
+
+    private WebTestClient.ResponseSpec get(String uri, String role) {
+        return web.get().uri(uri).header(HttpHeaders.AUTHORIZATION, bearer(role)).exchange();
+    }
+
+    @Test
+    void repeatedGet_isServedByGateway() {
+        hotel.stubFor(WireMock.get(urlPathEqualTo("/api/hotels")).willReturn(okJson(HOTELS)));
+
+        get("/api/hotels", "ROLE_USER").expectStatus().isOk()
+                .expectHeader().valueEquals(ResponseCacheGlobalFilter.CACHE_HEADER, "MISS")
+                .expectBody().json(HOTELS);
+        get("/api/hotels", "ROLE_USER").expectStatus().isOk()
+                .expectHeader().valueEquals(ResponseCacheGlobalFilter.CACHE_HEADER, "HIT")
+                .expectHeader().contentType("application/json")
+                .expectBody().json(HOTELS);
+
+        hotel.verify(1, getRequestedFor(urlPathEqualTo("/api/hotels")));
+    }
+
+    @Test
+    void matchingIfNoneMatch_gets304WithoutBody() {
+        hotel.stubFor(WireMock.get(urlPathEqualTo("/api/hotels")).willReturn(okJson(HOTELS)));
+        String etag = get("/api/hotels", "ROLE_USER").expectStatus().isOk()
+                .returnResult(String.class).getResponseHeaders().getETag();
+        assertNotNull(etag);
+
+        web.get().uri("/api/hotels")
+                .header(HttpHeaders.AUTHORIZATION, bearer("ROLE_USER"))
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, etag)
+                .expectBody().isEmpty();
+
+        // a client with an older copy gets the body
+        web.get().uri("/api/hotels")
+                .header(HttpHeaders.AUTHORIZATION, bearer("ROLE_USER"))
+                .header(HttpHeaders.IF_NONE_MATCH, "\"older\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json(HOTELS);
+    }
+
+    @Test
+    void queryAndRole_areSeparateEntries() {
+        hotel.stubFor(WireMock.get(urlPathEqualTo("/api/rooms")).willReturn(okJson("[]")));
+
+        for (int i = 0; i < 2; i++) {
+            get("/api/rooms?hotelId=1", "ROLE_USER").expectStatus().isOk();
+            get("/api/rooms?hotelId=2", "ROLE_USER").expectStatus().isOk();
+            get("/api/rooms?hotelId=1", "ROLE_ADMIN").expectStatus().isOk();
+        }
+
+        hotel.verify(3, getRequestedFor(urlPathEqualTo("/api/rooms")));
+    }
+
+    @Test
+    void recommend_isNotCached() {
+        hotel.stubFor(WireMock.get(urlPathEqualTo("/api/rooms/recommend")).willReturn(okJson("[]")));
+
+        for (int i = 0; i < 2; i++) {
+            get("/api/rooms/recommend?hotelId=1&start=2026-01-10&end=2026-01-12", "ROLE_USER")
+                    .expectStatus().isOk()
+                    .expectHeader().doesNotExist(ResponseCacheGlobalFilter.CACHE_HEADER)
+                    .expectHeader().doesNotExist(HttpHeaders.ETAG);
+        }
+
+        hotel.verify(2, getRequestedFor(urlPathEqualTo("/api/rooms/recommend")));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void failedResponse_isNotCached() {
+        hotel.stubFor(WireMock.get(urlPathEqualTo("/api/hotels")).willReturn(aResponse().withStatus(500)));
+
+        get("/api/hotels", "ROLE_USER").expectStatus().is5xxServerError();
+        get("/api/hotels", "ROLE_USER").expectStatus().is5xxServerError();
+
+        hotel.verify(2, getRequestedFor(urlPathEqualTo("/api/hotels")));
+    }
+
+    @Test
+    void writeThroughGateway_emptiesCache() {
+        hotel.stubFor(WireMock.get(urlPathEqualTo("/api/hotels")).willReturn(okJson(HOTELS)));
+        hotel.stubFor(WireMock.post(urlPathEqualTo("/api/hotels")).willReturn(aResponse().withStatus(201)));
+        get("/api/hotels", "ROLE_USER").expectStatus().isOk();
+
+        web.post().uri("/api/hotels").header(HttpHeaders.AUTHORIZATION, bearer("ROLE_ADMIN"))
+                .bodyValue("{\"name\":\"Ritz\",\"city\":\"Paris\"}")
+                .exchange().expectStatus().isCreated();
+
+        get("/api/hotels", "ROLE_USER").expectStatus().isOk()
+                .expectHeader().valueEquals(ResponseCacheGlobalFilter.CACHE_HEADER, "MISS");
+        hotel.verify(2, getRequestedFor(urlPathEqualTo("/api/hotels")));
+    }
+
+    @Test
+    void actuatorInvalidation_isForAdminsOnly() {
+        hotel.stubFor(WireMock.get(urlPathEqualTo("/api/hotels")).willReturn(okJson(HOTELS)));
+        get("/api/hotels", "ROLE_USER").expectStatus().isOk();
+
+        web.post().uri("/actuator/responsecache").exchange().expectStatus().isUnauthorized();
+        web.post().uri("/actuator/responsecache").header(HttpHeaders.AUTHORIZATION, bearer("ROLE_USER"))
+                .exchange().expectStatus().isForbidden();
+        web.post().uri("/actuator/responsecache").header(HttpHeaders.AUTHORIZATION, bearer("ROLE_ADMIN"))
+                .exchange().expectStatus().isOk()
+                .expectBody().jsonPath("$.dropped").isEqualTo(1);
+
+        assertEquals(0, cache.size());
+    }
+}
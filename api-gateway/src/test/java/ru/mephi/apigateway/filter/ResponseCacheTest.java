@@ -0,0 +1,51 @@
+package ru.mephi.apigateway.filter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+
+    private static ResponseCache.Entry entry(String body, long expiresAt) {
+        return new ResponseCache.Entry(body.getBytes(), MediaType.APPLICATION_JSON, '"' + body + '"', expiresAt);
+    }
+
+    @Test
+    void entryExpires_atItsTime() {
+        ResponseCache cache = new ResponseCache(10);
+        cache.put("a", entry("[]", 100), cache.generation());
+
+        assertNotNull(cache.get("a", 99));
+        assertNull(cache.get("a", 100));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void dropsLeastRecentlyRead_beyondMaxEntries() {
+        ResponseCache cache = new ResponseCache(2);
+        cache.put("a", entry("a", 100), cache.generation());
+        cache.put("b", entry("b", 100), cache.generation());
+        cache.get("a", 0);
+
+        cache.put("c", entry("c", 100), cache.generation());
+
+        assertNotNull(cache.get("a", 0));
+        assertNull(cache.get("b", 0));
+        assertNotNull(cache.get("c", 0));
+    }
+
+    @Test
+    void responseFetchedBeforeInvalidation_isNotStored() {
+        ResponseCache cache = new ResponseCache(10);
+        cache.put("a", entry("old", 100), cache.generation());
+        long fetching = cache.generation();
+
+        assertEquals(1, cache.invalidate());
+        cache.put("b", entry("old", 100), fetching);
+
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,96 @@
+package ru.mephi.apigateway.filter;
+
+import ru.mephi.apigateway.config.RateLimitProperties.Limit;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketsTest {
+
+    private static final long SECOND = 1_000_000_000L;
+    private static final long START = 5 * SECOND;
+    private static final Limit TEN_PER_SECOND = new Limit(10, 3);
+
+    @Test
+    void allowsBurst_thenRefillsOneTokenPerInterval() {
+        TokenBuckets buckets = new TokenBuckets(60 * SECOND, 100, START);
+
+        for (int i = 0; i < 3; i++) assertEquals(0, buckets.take("a", "*", TEN_PER_SECOND, START));
+        assertEquals(SECOND / 10, buckets.take("a", "*", TEN_PER_SECOND, START));
+
+        assertEquals(SECOND / 20, buckets.take("a", "*", TEN_PER_SECOND, START + SECOND / 20));
+        assertEquals(0, buckets.take("a", "*", TEN_PER_SECOND, START + SECOND / 10));
+        assertEquals(SECOND / 10, buckets.take("a", "*", TEN_PER_SECOND, START + SECOND / 10));
+    }
+
+    @Test
+    void neverHoldsMoreThanBurst_afterLongIdle() {
+        TokenBuckets buckets = new TokenBuckets(600 * SECOND, 100, START);
+        long later = START + 100 * SECOND;
+
+        for (int i = 0; i < 3; i++) assertEquals(0, buckets.take("a", "*", TEN_PER_SECOND, later));
+        assertTrue(buckets.take("a", "*", TEN_PER_SECOND, later) > 0);
+    }
+
+    @Test
+    void keysAreIndependent() {
+        TokenBuckets buckets = new TokenBuckets(60 * SECOND, 100, START);
+        for (int i = 0; i < 3; i++) buckets.take("a", "*", TEN_PER_SECOND, START);
+
+        assertTrue(buckets.take("a", "*", TEN_PER_SECOND, START) > 0);
+        assertEquals(0, buckets.take("b", "*", TEN_PER_SECOND, START));
+    }
+
+    @Test
+    void sweepsBucketsFullForIdleTime() {
+        TokenBuckets buckets = new TokenBuckets(60 * SECOND, 100, START);
+        buckets.take("a", "*", TEN_PER_SECOND, START);
+        buckets.take("b", "*", TEN_PER_SECOND, START + 30 * SECOND);
+        assertEquals(2, buckets.size());
+
+        buckets.take("c", "*", TEN_PER_SECOND, START + 61 * SECOND);
+
+        // "a" has been full for a minute; "b" for half of one
+        assertEquals(2, buckets.size());
+    }
+
+    @Test
+    void beyondMaxBuckets_newKeysShareOverflowBucket() {
+        TokenBuckets buckets = new TokenBuckets(60 * SECOND, 2, START);
+        buckets.take("a", "*", TEN_PER_SECOND, START);
+        buckets.take("b", "*", TEN_PER_SECOND, START);
+
+        for (int i = 0; i < 3; i++) assertEquals(0, buckets.take("c" + i, "*", TEN_PER_SECOND, START));
+        assertTrue(buckets.take("d", "*", TEN_PER_SECOND, START) > 0);
+        assertEquals(3, buckets.size());
+    }
+
+    @Test
+    void concurrentTakes_neverExceedBurst() throws Exception {
+        TokenBuckets buckets = new TokenBuckets(60 * SECOND, 100, START);
+        Limit limit = new Limit(1, 100);
+        AtomicInteger taken = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch go = new CountDownLatch(1);
+        for (int t = 0; t < 8; t++) {
+            pool.submit(() -> {
+                go.await();
+                for (int i = 0; i < 1_000; i++) {
+                    if (buckets.take("a", "*", limit, START) == 0) taken.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        go.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(100, taken.get());
+    }
+}
@@ -9,7 +9,9 @@ import org.springframework.http.MediaType;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 import reactor.util.retry.Retry;
 
 @Component
@@ -24,7 +26,12 @@ public class AccommodationClient {
             .baseUrl(baseUrl)
             .clientConnector(
                 new ReactorClientHttpConnector(
-                    HttpClient.create()
+                    HttpClient.create(
+                            ConnectionProvider.builder("hotel-api")
+                                .maxConnections(p.maxConnections())
+                                .pendingAcquireMaxCount(-1)
+                                .pendingAcquireTimeout(Duration.ofMillis(p.pendingAcquireTimeoutMs()))
+                                .build())
                         .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, p.connectTimeoutMs())
                         .responseTimeout(Duration.ofMillis(p.readTimeoutMs()))))
             .defaultHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
@@ -35,7 +42,13 @@ public class AccommodationClient {
   }
 
   public void confirm(String token, Long roomId, String requestId, String start, String end) {
-    client
+    confirmAsync(token, roomId, requestId, start, end).block();
+  }
+
+  /** Non-blocking {@link #confirm}: completes empty once hotel-api has reserved the room. */
+  public Mono<Void> confirmAsync(
+      String token, Long roomId, String requestId, String start, String end) {
+    return client
         .post()
         .uri("/internal/rooms/{id}/confirm-availability", roomId)
         .header(HttpHeaders.AUTHORIZATION, token)
@@ -44,7 +57,30 @@ public class AccommodationClient {
         .retrieve()
         .toBodilessEntity()
         .retryWhen(retry)
-        .block();
+        .then();
+  }
+
+  /**
+   * Reserves the least booked free room of the hotel in one call and returns its id. Idempotent by
+   * {@code requestId}: a repeated call returns the room reserved by the first one.
+   */
+  public Long pick(String token, Long hotelId, String requestId, String start, String end) {
+    return pickAsync(token, hotelId, requestId, start, end).block();
+  }
+
+  /** Non-blocking {@link #pick}. */
+  public Mono<Long> pickAsync(
+      String token, Long hotelId, String requestId, String start, String end) {
+    return client
+        .post()
+        .uri("/internal/rooms/pick")
+        .header(HttpHeaders.AUTHORIZATION, token)
+        .header("X-Request-Id", requestId)
+        .bodyValue(new Pick(hotelId, start, end))
+        .retrieve()
+        .bodyToMono(Picked.class)
+        .retryWhen(retry)
+        .map(Picked::roomId);
   }
 
   public List<?> recommend(String token, Long hotelId, String start, String end, int limit) {
@@ -66,15 +102,39 @@ public class AccommodationClient {
   }
 
   public void release(String token, Long roomId, String requestId) {
-    client
+    releaseAsync(token, roomId, requestId).block();
+  }
+
+  /** Non-blocking {@link #release}; not retried, and gives up after two seconds. */
+  public Mono<Void> releaseAsync(String token, Long roomId, String requestId) {
+    return client
         .post()
         .uri(uri -> uri.path("/internal/rooms/{id}/release").build(roomId))
         .header(HttpHeaders.AUTHORIZATION, token)
         .header("X-Request-Id", requestId)
         .retrieve()
         .toBodilessEntity()
-        .block(Duration.ofSeconds(2));
+        .timeout(Duration.ofSeconds(2))
+        .then();
+  }
+
+  /** Releases the holds made under {@code requestIds}, whatever rooms they are on. */
+  public void releaseBatch(String token, List<String> requestIds) {
+    client
+        .post()
+        .uri("/internal/rooms/release-batch")
+        .header(HttpHeaders.AUTHORIZATION, token)
+        .bodyValue(new ReleaseBatch(requestIds))
+        .retrieve()
+        .toBodilessEntity()
+        .block();
   }
 
   private record Confirm(String start, String end, String requestId) {}
+
+  private record Pick(Long hotelId, String start, String end) {}
+
+  private record Picked(Long roomId) {}
+
+  private record ReleaseBatch(List<String> requestIds) {}
 }
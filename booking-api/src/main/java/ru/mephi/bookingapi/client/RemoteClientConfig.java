@@ -1,7 +1,27 @@
 package ru.mephi.bookingapi.client;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.ConstructorBinding;
+import org.springframework.boot.context.properties.bind.DefaultValue;
 
+/**
+ * {@code maxConnections} bounds the pool towards hotel-api; callers beyond it wait up to {@code
+ * pendingAcquireTimeoutMs} for a connection. With virtual threads the request pool no longer caps
+ * concurrent calls, so this pool is the limit.
+ */
 @ConfigurationProperties(prefix = "hotel.client")
 public record RemoteClientConfig(
-    int connectTimeoutMs, int readTimeoutMs, int retries, int backoffMs) {}
+    int connectTimeoutMs,
+    int readTimeoutMs,
+    int retries,
+    int backoffMs,
+    @DefaultValue("500") int maxConnections,
+    @DefaultValue("5000") int pendingAcquireTimeoutMs) {
+
+  @ConstructorBinding
+  public RemoteClientConfig {}
+
+  public RemoteClientConfig(int connectTimeoutMs, int readTimeoutMs, int retries, int backoffMs) {
+    this(connectTimeoutMs, readTimeoutMs, retries, backoffMs, 500, 5000);
+  }
+}
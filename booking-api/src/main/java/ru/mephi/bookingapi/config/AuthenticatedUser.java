@@ -0,0 +1,14 @@
+package ru.mephi.bookingapi.config;
+
+import java.security.Principal;
+
+/**
+ * Caller of a booking-api request, taken from the JWT. {@code id} is the {@code uid} claim and is
+ * {@code null} for tokens issued before the claim existed; {@link UserIdCache#resolve} fills it in.
+ */
+public record AuthenticatedUser(Long id, String username) implements Principal {
+  @Override
+  public String getName() {
+    return username;
+  }
+}
@@ -0,0 +1,22 @@
+package ru.mephi.bookingapi.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Threads the reactive booking endpoints hand their JDBC calls to. Sized like the connection pool,
+ * so a burst of bookings queues here instead of parking threads on Hikari; requests beyond {@code
+ * queue} are rejected rather than buffered without bound.
+ */
+@Configuration
+public class BlockingCallScheduler {
+  @Bean(destroyMethod = "dispose")
+  public Scheduler bookingDbScheduler(
+      @Value("${booking.reactive.db-threads:10}") int threads,
+      @Value("${booking.reactive.db-queue:1000}") int queue) {
+    return Schedulers.newBoundedElastic(threads, queue, "booking-db");
+  }
+}
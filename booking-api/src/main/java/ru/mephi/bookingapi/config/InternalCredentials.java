@@ -0,0 +1,97 @@
+package ru.mephi.bookingapi.config;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bearer token booking-api presents to hotel-api. One token is signed and shared by all callers
+ * until {@code refresh-ahead-seconds} before it expires; from then on the first caller schedules a
+ * replacement in the background while everyone keeps using the still valid token. Only a caller
+ * that finds no usable token at all (first call, or a refresh that kept failing) signs inline.
+ */
+@Slf4j
+@Component
+public class InternalCredentials {
+  static final String SUBJECT = "booking-api";
+  static final String ROLE = "ROLE_ADMIN";
+
+  private final TokenProvider tokens;
+  private final long ttlSeconds;
+  private final long refreshAheadSeconds;
+  private final Clock clock;
+  private final ExecutorService refresher =
+      Executors.newSingleThreadExecutor(
+          r -> {
+            Thread t = new Thread(r, "internal-token-refresh");
+            t.setDaemon(true);
+            return t;
+          });
+  private final AtomicBoolean refreshing = new AtomicBoolean();
+
+  private volatile Token current;
+
+  @Autowired
+  public InternalCredentials(
+      TokenProvider tokens,
+      @Value("${auth.internal-token.ttl-seconds:300}") long ttlSeconds,
+      @Value("${auth.internal-token.refresh-ahead-seconds:60}") long refreshAheadSeconds) {
+    this(tokens, ttlSeconds, refreshAheadSeconds, Clock.systemUTC());
+  }
+
+  InternalCredentials(
+      TokenProvider tokens, long ttlSeconds, long refreshAheadSeconds, Clock clock) {
+    this.tokens = tokens;
+    this.ttlSeconds = ttlSeconds;
+    this.refreshAheadSeconds = Math.min(refreshAheadSeconds, ttlSeconds / 2);
+    this.clock = clock;
+  }
+
+  /** {@code Authorization} header value for internal hotel-api calls. */
+  public String bearer() {
+    Instant now = clock.instant();
+    Token t = current;
+    if (t == null || !now.isBefore(t.expiresAt())) return issueNow(now);
+    if (!now.isBefore(t.refreshAt()) && refreshing.compareAndSet(false, true)) {
+      refresher.execute(this::refresh);
+    }
+    return t.bearer();
+  }
+
+  private synchronized String issueNow(Instant now) {
+    Token t = current;
+    if (t != null && now.isBefore(t.expiresAt())) return t.bearer();
+    return (current = sign()).bearer();
+  }
+
+  private void refresh() {
+    try {
+      current = sign();
+    } catch (RuntimeException e) {
+      log.warn("Internal token refresh failed, keeping the current token", e);
+    } finally {
+      refreshing.set(false);
+    }
+  }
+
+  private Token sign() {
+    Instant issuedAt = clock.instant();
+    String jwt = tokens.issue(SUBJECT, ROLE, ttlSeconds);
+    Instant expiresAt = issuedAt.plusSeconds(ttlSeconds);
+    return new Token("Bearer " + jwt, expiresAt.minusSeconds(refreshAheadSeconds), expiresAt);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    refresher.shutdownNow();
+  }
+
+  private record Token(String bearer, Instant refreshAt, Instant expiresAt) {}
+}
@@ -0,0 +1,29 @@
+package ru.mephi.bookingapi.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Spring Boot silently ignores {@code spring.threads.virtual.enabled} below Java 21; say so, so a
+ * deployment that asked for virtual threads does not quietly run on the bounded Tomcat pool.
+ */
+@Slf4j
+@Component
+class ThreadingModeCheck {
+  @EventListener(ApplicationReadyEvent.class)
+  void report(ApplicationReadyEvent event) {
+    Environment env = event.getApplicationContext().getEnvironment();
+    boolean requested = env.getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+    if (Threading.VIRTUAL.isActive(env)) {
+      log.info("Serving requests on virtual threads");
+    } else if (requested) {
+      log.warn(
+          "spring.threads.virtual.enabled is set but Java {} has no virtual threads; serving requests on the platform thread pool",
+          Runtime.version().feature());
+    }
+  }
+}
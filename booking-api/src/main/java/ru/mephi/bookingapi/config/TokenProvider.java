@@ -12,6 +12,9 @@ import org.springframework.stereotype.Service;
 
 @Service
 public class TokenProvider {
+  /** Numeric user id, so services can skip the username lookup. */
+  public static final String UID_CLAIM = "uid";
+
   private final Key key;
 
   public TokenProvider(@Value("${auth.jwt.secret}") String secret) {
@@ -19,10 +22,19 @@ public class TokenProvider {
   }
 
   public String issue(String subject, String role, long ttlSeconds) {
+    return issue(subject, role, Map.of(), ttlSeconds);
+  }
+
+  public String issue(Long userId, String subject, String role, long ttlSeconds) {
+    return issue(subject, role, Map.of(UID_CLAIM, userId), ttlSeconds);
+  }
+
+  private String issue(String subject, String role, Map<String, Object> claims, long ttlSeconds) {
     Instant now = Instant.now();
     return Jwts.builder()
         .setSubject(subject)
         .addClaims(Map.of("role", role))
+        .addClaims(claims)
         .setIssuedAt(Date.from(now))
         .setExpiration(Date.from(now.plusSeconds(ttlSeconds)))
         .signWith(key, SignatureAlgorithm.HS256)
@@ -0,0 +1,50 @@
+package ru.mephi.bookingapi.config;
+
+import ru.mephi.bookingapi.domain.User;
+import ru.mephi.bookingapi.repo.UserRepository;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Username to id mapping for tokens without a {@code uid} claim. Bounded LRU; only hits are
+ * cached, and entries are evicted when the user is renamed or deleted through {@code /user}.
+ */
+@Component
+public class UserIdCache {
+  private final UserRepository users;
+  private final Map<String, Long> ids;
+
+  public UserIdCache(
+      UserRepository users, @Value("${auth.user-id-cache.max-size:10000}") int maxSize) {
+    this.users = users;
+    this.ids =
+        Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+              @Override
+              protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxSize;
+              }
+            });
+  }
+
+  public Optional<Long> resolve(AuthenticatedUser user) {
+    if (user.id() != null) return Optional.of(user.id());
+    Long id = ids.get(user.username());
+    if (id != null) return Optional.of(id);
+    Optional<Long> found = users.findByUsername(user.username()).map(User::getId);
+    found.ifPresent(v -> ids.put(user.username(), v));
+    return found;
+  }
+
+  public void evict(String username) {
+    ids.remove(username);
+  }
+
+  public void clear() {
+    ids.clear();
+  }
+}
@@ -0,0 +1,21 @@
+package ru.mephi.bookingapi.config;
+
+import java.util.Collection;
+import java.util.Map;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.AbstractOAuth2TokenAuthenticationToken;
+
+/** A verified JWT whose principal is an {@link AuthenticatedUser} instead of the raw token. */
+public class UserJwtAuthenticationToken extends AbstractOAuth2TokenAuthenticationToken<Jwt> {
+  public UserJwtAuthenticationToken(
+      Jwt jwt, AuthenticatedUser user, Collection<? extends GrantedAuthority> authorities) {
+    super(jwt, user, jwt, authorities);
+    setAuthenticated(true);
+  }
+
+  @Override
+  public Map<String, Object> getTokenAttributes() {
+    return getToken().getClaims();
+  }
+}
@@ -7,7 +7,10 @@ import lombok.*;
 @Entity
 @Table(
     name = "bookings",
-    indexes = @Index(name = "ux_booking_request", columnList = "request_id", unique = true))
+    indexes = {
+      @Index(name = "ux_booking_request", columnList = "request_id", unique = true),
+      @Index(name = "ix_booking_user_id", columnList = "user_id, id")
+    })
 @Getter
 @Setter
 @NoArgsConstructor
@@ -15,7 +18,8 @@ import lombok.*;
 @Builder
 public class Booking {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bookings_seq")
+  @SequenceGenerator(name = "bookings_seq", sequenceName = "bookings_seq", allocationSize = 50)
   private Long id;
 
   @Column(name = "user_id", nullable = false)
@@ -0,0 +1,51 @@
+package ru.mephi.bookingapi.domain;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+import lombok.*;
+
+/**
+ * A pending release of the hotel-api hold made under {@code requestId}, written in the same
+ * transaction as the booking state change that calls for it. {@code roomId} is known for explicit
+ * bookings and after a successful pick, and orders releases of one room.
+ */
+@Entity
+@Table(
+    name = "booking_outbox",
+    indexes = {
+      @Index(name = "ix_outbox_next_attempt", columnList = "next_attempt_at"),
+      @Index(name = "ix_outbox_request", columnList = "request_id")
+    })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxEvent {
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "booking_outbox_seq")
+  @SequenceGenerator(
+      name = "booking_outbox_seq",
+      sequenceName = "booking_outbox_seq",
+      allocationSize = 50)
+  private Long id;
+
+  @Column(name = "request_id", nullable = false)
+  private String requestId;
+
+  @Column(name = "room_id")
+  private Long roomId;
+
+  /** When the release first became due; lag is measured from here. */
+  @Column(name = "due_at", nullable = false)
+  private Instant dueAt;
+
+  @Column(name = "next_attempt_at", nullable = false)
+  private Instant nextAttemptAt;
+
+  @Column(nullable = false)
+  private int attempts;
+
+  @Column(name = "last_error")
+  private String lastError;
+}
@@ -1,11 +1,63 @@
 package ru.mephi.bookingapi.repo;
 
 import ru.mephi.bookingapi.domain.Booking;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 public interface BookingRepository extends JpaRepository<Booking, Long> {
   Optional<Booking> findByRequestId(String requestId);
 
   List<Booking> findByUserId(Long userId);
+
+  /**
+   * Bookings of the user with an id above {@code after}, in id order; the null filters match
+   * everything. A keyset page: it reads {@code page.getPageSize()} rows of {@code (user_id, id)}
+   * however deep the cursor is.
+   */
+  @Query(HISTORY)
+  List<Booking> findHistory(
+      Long userId,
+      long after,
+      Booking.Status status,
+      LocalDate from,
+      LocalDate to,
+      Pageable page);
+
+  /** All of {@link #findHistory} as a cursor; closing the stream closes it. */
+  @Query(HISTORY)
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  Stream<Booking> streamHistory(
+      Long userId, long after, Booking.Status status, LocalDate from, LocalDate to);
+
+  String HISTORY =
+      "select b from Booking b where b.userId = :userId and b.id > :after"
+          + " and (:status is null or b.status = :status)"
+          + " and (cast(:from as LocalDate) is null or b.startDate >= :from)"
+          + " and (cast(:to as LocalDate) is null or b.startDate <= :to)"
+          + " order by b.id";
+
+  @Query("select b.requestId from Booking b")
+  Stream<String> streamRequestIds();
+
+  @Modifying
+  @Query(
+      "update Booking b set b.status = 'CONFIRMED', b.roomId = :roomId where b.id = :id and b.status = 'PENDING'")
+  int confirmIfPending(Long id, Long roomId);
+
+  @Modifying
+  @Query("update Booking b set b.status = 'CANCELLED' where b.id = :id and b.status <> 'CANCELLED'")
+  int cancel(Long id);
+
+  @Modifying
+  @Query(
+      "update Booking b set b.status = 'CANCELLED' where b.requestId in :requestIds and b.status = 'PENDING'")
+  int cancelPending(Collection<String> requestIds);
 }
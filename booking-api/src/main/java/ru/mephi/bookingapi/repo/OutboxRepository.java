@@ -0,0 +1,37 @@
+package ru.mephi.bookingapi.repo;
+
+import ru.mephi.bookingapi.domain.OutboxEvent;
+import java.time.Instant;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+public interface OutboxRepository extends JpaRepository<OutboxEvent, Long> {
+  /**
+   * Due events, oldest first. An event waits while an older event of the same room is backing
+   * off after a failed attempt, so releases of one room reach hotel-api in the order written.
+   */
+  @Query(
+      "select o from OutboxEvent o where o.nextAttemptAt <= :now and not exists ("
+          + "select p from OutboxEvent p where p.roomId = o.roomId and p.id < o.id and p.attempts > 0)"
+          + " order by o.id")
+  List<OutboxEvent> findDue(Instant now, Pageable page);
+
+  @Modifying
+  @Query("delete from OutboxEvent o where o.requestId = :requestId")
+  int deleteByRequestId(String requestId);
+
+  /** Makes the armed release of the request due now; returns 0 if there is none. */
+  @Modifying
+  @Query(
+      "update OutboxEvent o set o.dueAt = :now, o.nextAttemptAt = :now,"
+          + " o.roomId = coalesce(:roomId, o.roomId) where o.requestId = :requestId and o.dueAt > :now")
+  int fireNow(String requestId, Long roomId, Instant now);
+
+  long countByDueAtLessThanEqual(Instant now);
+
+  @Query("select min(o.dueAt) from OutboxEvent o where o.dueAt <= :now")
+  Instant oldestDue(Instant now);
+}
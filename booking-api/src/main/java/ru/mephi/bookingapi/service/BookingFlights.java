@@ -0,0 +1,84 @@
+package ru.mephi.bookingapi.service;
+
+import ru.mephi.bookingapi.web.dto.BookingResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Single-flight registry of booking requests in progress on this instance, by {@code
+ * X-Request-Id}. The first request for an id leads: it runs the saga and {@link #land lands} the
+ * flight with its result. Duplicates arriving meanwhile join the flight and wait up to {@code
+ * booking.single-flight.wait-ms} for that result instead of racing the leader to the insert and
+ * to hotel-api.
+ *
+ * <p>A follower whose wait runs out, or whose leader failed, goes on as if it had come alone; the
+ * unique request id still keeps it from creating a second booking. Duplicates spread over
+ * instances are not coalesced. Exposes {@code booking.single-flight.joined} and {@code
+ * booking.single-flight.in-flight}.
+ */
+@Component
+public class BookingFlights {
+  private final Map<String, CompletableFuture<BookingResult>> flights = new ConcurrentHashMap<>();
+  private final long waitMs;
+  private final Counter joined;
+
+  public BookingFlights(
+      MeterRegistry meters, @Value("${booking.single-flight.wait-ms:10000}") long waitMs) {
+    this.waitMs = waitMs;
+    this.joined = meters.counter("booking.single-flight.joined");
+    Gauge.builder("booking.single-flight.in-flight", flights, Map::size).register(meters);
+  }
+
+  /** Leads the flight of {@code requestId} if none is in progress, or joins the one that is. */
+  public Flight join(String requestId) {
+    CompletableFuture<BookingResult> mine = new CompletableFuture<>();
+    CompletableFuture<BookingResult> leader = flights.putIfAbsent(requestId, mine);
+    if (leader == null) return new Flight(requestId, mine, true);
+    joined.increment();
+    return new Flight(requestId, leader, false);
+  }
+
+  /** The leader's result; empty when it failed or did not finish in time. */
+  public Optional<BookingResult> await(Flight flight) {
+    try {
+      return Optional.of(flight.result().get(waitMs, TimeUnit.MILLISECONDS));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Optional.empty();
+    } catch (ExecutionException | TimeoutException e) {
+      return Optional.empty();
+    }
+  }
+
+  /** How long a follower waits for its leader. */
+  public Duration maxWait() {
+    return Duration.ofMillis(waitMs);
+  }
+
+  /** Hands {@code result} to the followers and ends the flight. No-op for followers. */
+  public void land(Flight flight, BookingResult result) {
+    if (!flight.leader()) return;
+    flights.remove(flight.requestId(), flight.result());
+    flight.result().complete(result);
+  }
+
+  /** Ends the flight without a result; followers go on by themselves. No-op for followers. */
+  public void abort(Flight flight, Throwable cause) {
+    if (!flight.leader()) return;
+    flights.remove(flight.requestId(), flight.result());
+    flight.result().completeExceptionally(cause);
+  }
+
+  public record Flight(String requestId, CompletableFuture<BookingResult> result, boolean leader) {}
+}
@@ -0,0 +1,51 @@
+package ru.mephi.bookingapi.service;
+
+import ru.mephi.bookingapi.domain.Booking;
+import ru.mephi.bookingapi.repo.BookingRepository;
+import jakarta.persistence.EntityManager;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Booking history of a user, read by keyset on {@code (user_id, id)}: either a page after an id
+ * cursor, or every matching row through a JDBC cursor for streaming responses.
+ */
+@Service
+@RequiredArgsConstructor
+public class BookingHistory {
+  private final BookingRepository bookings;
+  private final EntityManager em;
+
+  /** Up to {@code limit} bookings with an id above {@code after}, in id order. */
+  @Transactional(readOnly = true)
+  public List<Booking> page(Long userId, Filter filter, long after, int limit) {
+    return bookings.findHistory(
+        userId, after, filter.status(), filter.from(), filter.to(), PageRequest.ofSize(limit));
+  }
+
+  /**
+   * Hands every matching booking with an id above {@code after} to {@code sink}, in id order, as
+   * it is read. Each row is detached once handed over, so the persistence context stays small
+   * whatever the number of rows.
+   */
+  @Transactional(readOnly = true)
+  public void forEach(Long userId, Filter filter, long after, Consumer<Booking> sink) {
+    try (Stream<Booking> rows =
+        bookings.streamHistory(userId, after, filter.status(), filter.from(), filter.to())) {
+      rows.forEach(
+          b -> {
+            sink.accept(b);
+            em.detach(b);
+          });
+    }
+  }
+
+  /** Bookings of {@code status} starting between {@code from} and {@code to}; nulls match all. */
+  public record Filter(Booking.Status status, LocalDate from, LocalDate to) {}
+}
@@ -0,0 +1,105 @@
+package ru.mephi.bookingapi.service;
+
+import ru.mephi.bookingapi.domain.Booking;
+import ru.mephi.bookingapi.domain.OutboxEvent;
+import ru.mephi.bookingapi.repo.BookingRepository;
+import ru.mephi.bookingapi.repo.OutboxRepository;
+import ru.mephi.bookingapi.web.dto.BookingResult;
+import java.time.Duration;
+import java.time.Instant;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Booking state changes together with the hotel-api releases they imply, each in one transaction,
+ * so a crash can no longer leave a hold behind. {@link OutboxDispatcher} delivers the releases.
+ *
+ * <p>A booking is opened with its release already written but armed {@code
+ * booking.outbox.confirm-lease-seconds} into the future. Confirming removes it; cancelling fires it
+ * now. If the instance dies in between, the release fires when the lease runs out, and the
+ * dispatcher cancels the still PENDING booking before sending it.
+ *
+ * <p>The CONFIRMED or CANCELLED outcome goes into the {@link ReplayCache}.
+ */
+@Service
+public class BookingOutbox {
+  private final BookingRepository bookings;
+  private final OutboxRepository outbox;
+  private final SeenBookingRequests seenRequests;
+  private final ReplayCache replays;
+  private final Duration confirmLease;
+
+  public BookingOutbox(
+      BookingRepository bookings,
+      OutboxRepository outbox,
+      SeenBookingRequests seenRequests,
+      ReplayCache replays,
+      @Value("${booking.outbox.confirm-lease-seconds:300}") long confirmLeaseSeconds) {
+    this.bookings = bookings;
+    this.outbox = outbox;
+    this.seenRequests = seenRequests;
+    this.replays = replays;
+    this.confirmLease = Duration.ofSeconds(confirmLeaseSeconds);
+  }
+
+  /**
+   * Saves the PENDING booking; {@code roomId} is the room asked for, if any. A request id that is
+   * already taken fails the commit with {@link
+   * org.springframework.dao.DataIntegrityViolationException}.
+   */
+  @Transactional
+  public Booking open(Booking pending, Long roomId) {
+    seenRequests.record(pending.getRequestId());
+    Booking saved = bookings.save(pending);
+    Instant due = Instant.now().plus(confirmLease);
+    outbox.save(
+        OutboxEvent.builder()
+            .requestId(saved.getRequestId())
+            .roomId(roomId)
+            .dueAt(due)
+            .nextAttemptAt(due)
+            .build());
+    return saved;
+  }
+
+  /**
+   * PENDING to CONFIRMED on {@code roomId}, dropping the armed release. Returns {@code false} when
+   * the booking is no longer PENDING (cancelled by its owner, or its lease ran out); the caller
+   * then owns a hold nobody wants and must {@link #cancel} it.
+   */
+  @Transactional
+  public boolean confirm(Booking b, Long roomId) {
+    if (bookings.confirmIfPending(b.getId(), roomId) == 0) return false;
+    outbox.deleteByRequestId(b.getRequestId());
+    b.setRoomId(roomId);
+    b.setStatus(Booking.Status.CONFIRMED);
+    replays.put(b.getRequestId(), result(b));
+    return true;
+  }
+
+  /**
+   * Cancels the booking and queues the release of whatever hotel-api holds under its request id.
+   * {@code roomId} may be {@code null} when a pick failed before telling us the room.
+   */
+  @Transactional
+  public void cancel(Booking b, Long roomId) {
+    bookings.cancel(b.getId());
+    Instant now = Instant.now();
+    if (outbox.fireNow(b.getRequestId(), roomId, now) == 0) {
+      outbox.save(
+          OutboxEvent.builder()
+              .requestId(b.getRequestId())
+              .roomId(roomId)
+              .dueAt(now)
+              .nextAttemptAt(now)
+              .build());
+    }
+    b.setStatus(Booking.Status.CANCELLED);
+    replays.put(b.getRequestId(), result(b));
+  }
+
+  private static BookingResult result(Booking b) {
+    return new BookingResult(b.getId(), b.getStatus().name(), b.getRoomId());
+  }
+}
@@ -0,0 +1,185 @@
+package ru.mephi.bookingapi.service;
+
+import ru.mephi.bookingapi.client.AccommodationClient;
+import ru.mephi.bookingapi.config.InternalCredentials;
+import ru.mephi.bookingapi.domain.Booking;
+import ru.mephi.bookingapi.repo.BookingRepository;
+import ru.mephi.bookingapi.web.dto.BookingResult;
+import ru.mephi.bookingapi.web.dto.CreateBookingRequest;
+import jakarta.annotation.PreDestroy;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * Second half of a booking: reserves the room in hotel-api and moves the PENDING booking to
+ * CONFIRMED, or moves it to CANCELLED and queues the release of whatever may have been reserved
+ * (see {@link BookingOutbox}).
+ *
+ * <p>{@link #run} does this on the caller's thread. Its steps — {@link #reservation}, {@link
+ * #settle} and {@link #abandon} — are public so that the reactive controller composes the same
+ * saga without blocking. {@link #submit} queues it on {@code booking.saga.workers} threads behind
+ * a queue of {@code booking.saga.queue-capacity}, so a slow hotel-api backs up the queue rather
+ * than the request threads. Queued sagas live in memory only:
+ * a booking whose saga was queued when the instance stopped stays PENDING.
+ */
+@Slf4j
+@Service
+public class BookingSaga {
+  private final BookingRepository bookings;
+  private final BookingOutbox outbox;
+  private final AccommodationClient accommodationClient;
+  private final InternalCredentials internalCredentials;
+  private final ThreadPoolExecutor workers;
+  private final Map<Long, CompletableFuture<BookingResult>> inFlight = new ConcurrentHashMap<>();
+
+  public BookingSaga(
+      BookingRepository bookings,
+      BookingOutbox outbox,
+      AccommodationClient accommodationClient,
+      InternalCredentials internalCredentials,
+      @Value("${booking.saga.workers:8}") int workers,
+      @Value("${booking.saga.queue-capacity:1000}") int queueCapacity) {
+    this.bookings = bookings;
+    this.outbox = outbox;
+    this.accommodationClient = accommodationClient;
+    this.internalCredentials = internalCredentials;
+    AtomicInteger seq = new AtomicInteger();
+    this.workers =
+        new ThreadPoolExecutor(
+            workers,
+            workers,
+            0,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            r -> {
+              Thread t = new Thread(r, "booking-saga-" + seq.incrementAndGet());
+              t.setDaemon(true);
+              return t;
+            });
+  }
+
+  public BookingResult run(Booking b, CreateBookingRequest req) {
+    Long roomId = requestedRoom(req);
+    try {
+      roomId = reservation(b.getRequestId(), req).block();
+      return settle(b, roomId);
+    } catch (RuntimeException e) {
+      return abandon(b, roomId, e);
+    }
+  }
+
+  /** The room a booking is opened for: none with {@code autoSelect} until hotel-api picks one. */
+  public static Long requestedRoom(CreateBookingRequest req) {
+    return req.autoSelect() ? null : req.roomId();
+  }
+
+  /**
+   * Reserves the room in hotel-api and emits its id. Nothing is sent until subscribed; {@link #run}
+   * blocks on it, {@link ru.mephi.bookingapi.web.ReactiveBookingController} does not.
+   */
+  public Mono<Long> reservation(String requestId, CreateBookingRequest req) {
+    String start = req.start().toString();
+    String end = req.end().toString();
+    return Mono.defer(
+        () -> {
+          String serviceBearer = internalCredentials.bearer();
+          if (req.autoSelect()) {
+            // picks and reserves in one round-trip, so no room can be taken between the two
+            return accommodationClient.pickAsync(
+                serviceBearer, req.hotelId(), requestId, start, end);
+          }
+          if (req.roomId() == null) {
+            return Mono.error(new IllegalArgumentException("ROOM_ID_REQUIRED"));
+          }
+          return accommodationClient
+              .confirmAsync(serviceBearer, req.roomId(), requestId, start, end)
+              .thenReturn(req.roomId());
+        });
+  }
+
+  /** Moves the booking to CONFIRMED on the reserved room, unless it was cancelled meanwhile. */
+  public BookingResult settle(Booking b, Long roomId) {
+    if (outbox.confirm(b, roomId)) {
+      return new BookingResult(b.getId(), b.getStatus().name(), b.getRoomId());
+    }
+    // cancelled while the room was being reserved: the new hold must go back too
+    return release(b, roomId);
+  }
+
+  /**
+   * Moves the booking to CANCELLED after a failed step; the release of {@code roomId} (or of a lost
+   * pick) goes through the outbox.
+   */
+  public BookingResult abandon(Booking b, Long roomId, Throwable cause) {
+    log.debug("Booking {} not confirmed: {}", b.getId(), cause.toString());
+    return release(b, roomId);
+  }
+
+  private BookingResult release(Booking b, Long roomId) {
+    outbox.cancel(b, roomId);
+    return new BookingResult(b.getId(), b.getStatus().name(), roomId);
+  }
+
+  /**
+   * Queues {@link #run} for the saved PENDING booking. Returns {@code false} without queueing when
+   * the queue is full; the caller then runs the saga itself.
+   */
+  public boolean submit(Booking b, CreateBookingRequest req) {
+    CompletableFuture<BookingResult> done = new CompletableFuture<>();
+    inFlight.put(b.getId(), done);
+    try {
+      workers.execute(() -> complete(b, req, done));
+      return true;
+    } catch (RejectedExecutionException e) {
+      inFlight.remove(b.getId());
+      return false;
+    }
+  }
+
+  private void complete(Booking b, CreateBookingRequest req, CompletableFuture<BookingResult> done) {
+    MDC.put("requestId", b.getRequestId());
+    try {
+      // cancelled by its owner while queued: nothing was reserved yet, leave it be
+      var current = bookings.findById(b.getId()).orElse(b);
+      if (current.getStatus() != Booking.Status.PENDING) {
+        done.complete(new BookingResult(current.getId(), current.getStatus().name(), current.getRoomId()));
+        return;
+      }
+      done.complete(run(current, req));
+    } catch (RuntimeException e) {
+      log.error("Booking saga failed for booking {}", b.getId(), e);
+      done.completeExceptionally(e);
+    } finally {
+      inFlight.remove(b.getId());
+      MDC.clear();
+    }
+  }
+
+  /**
+   * Completes when the queued saga of the booking has finished; empty if none is queued or running
+   * on this instance, in which case the stored status is already final (or will never change here).
+   */
+  public Optional<CompletableFuture<BookingResult>> completion(Long bookingId) {
+    return Optional.ofNullable(inFlight.get(bookingId));
+  }
+
+  @PreDestroy
+  void shutdown() throws InterruptedException {
+    workers.shutdown();
+    if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+      log.warn("{} queued booking sagas dropped on shutdown", workers.shutdownNow().size());
+    }
+  }
+}
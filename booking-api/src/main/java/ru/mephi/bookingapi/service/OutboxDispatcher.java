@@ -0,0 +1,133 @@
+package ru.mephi.bookingapi.service;
+
+import ru.mephi.bookingapi.client.AccommodationClient;
+import ru.mephi.bookingapi.config.InternalCredentials;
+import ru.mephi.bookingapi.domain.OutboxEvent;
+import ru.mephi.bookingapi.repo.BookingRepository;
+import ru.mephi.bookingapi.repo.OutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Drains {@code booking_outbox} to hotel-api: due releases go out up to {@code batch-size} per
+ * {@code /internal/rooms/release-batch} call, and a failed batch is retried with exponential
+ * backoff from {@code backoff-ms} up to {@code max-backoff-ms}.
+ *
+ * <p>Exposes {@code booking.outbox.due} (releases waiting to be sent), {@code booking.outbox.lag}
+ * (seconds since the oldest of them became due) and delivered/failed counters.
+ */
+@Slf4j
+@Component
+public class OutboxDispatcher {
+  private final OutboxRepository outbox;
+  private final BookingRepository bookings;
+  private final AccommodationClient accommodationClient;
+  private final InternalCredentials internalCredentials;
+  private final TransactionTemplate tx;
+  private final boolean enabled;
+  private final int batchSize;
+  private final long backoffMs;
+  private final long maxBackoffMs;
+
+  private final Counter delivered;
+  private final Counter failed;
+  private final AtomicLong due = new AtomicLong();
+  private final AtomicLong lagSeconds = new AtomicLong();
+
+  public OutboxDispatcher(
+      OutboxRepository outbox,
+      BookingRepository bookings,
+      AccommodationClient accommodationClient,
+      InternalCredentials internalCredentials,
+      TransactionTemplate tx,
+      MeterRegistry meters,
+      @Value("${booking.outbox.enabled:true}") boolean enabled,
+      @Value("${booking.outbox.batch-size:100}") int batchSize,
+      @Value("${booking.outbox.backoff-ms:500}") long backoffMs,
+      @Value("${booking.outbox.max-backoff-ms:60000}") long maxBackoffMs) {
+    this.outbox = outbox;
+    this.bookings = bookings;
+    this.accommodationClient = accommodationClient;
+    this.internalCredentials = internalCredentials;
+    this.tx = tx;
+    this.enabled = enabled;
+    this.batchSize = batchSize;
+    this.backoffMs = backoffMs;
+    this.maxBackoffMs = maxBackoffMs;
+    this.delivered = meters.counter("booking.outbox.delivered");
+    this.failed = meters.counter("booking.outbox.failed");
+    Gauge.builder("booking.outbox.due", due, AtomicLong::get).register(meters);
+    Gauge.builder("booking.outbox.lag", lagSeconds, AtomicLong::get)
+        .baseUnit("seconds")
+        .register(meters);
+  }
+
+  @Scheduled(fixedDelayString = "${booking.outbox.poll-interval-ms:500}")
+  void poll() {
+    if (!enabled) return;
+    try {
+      while (dispatch() == batchSize) {
+        // a full batch went out; there may be more
+      }
+    } catch (RuntimeException e) {
+      log.warn("Outbox dispatch failed", e);
+    }
+    refreshLag();
+  }
+
+  /** Sends one batch of due releases and returns how many were delivered. */
+  public int dispatch() {
+    Instant now = Instant.now();
+    List<OutboxEvent> batch =
+        tx.execute(
+            s -> {
+              List<OutboxEvent> found = outbox.findDue(now, PageRequest.of(0, batchSize));
+              if (found.isEmpty()) return found;
+              // a release fired by an expired lease cancels its booking first, so a confirm
+              // still in flight finds it no longer PENDING; confirmed meanwhile drops it here
+              bookings.cancelPending(found.stream().map(OutboxEvent::getRequestId).toList());
+              return outbox.findAllById(found.stream().map(OutboxEvent::getId).toList());
+            });
+    if (batch.isEmpty()) return 0;
+    List<String> requestIds = batch.stream().map(OutboxEvent::getRequestId).distinct().toList();
+    try {
+      accommodationClient.releaseBatch(internalCredentials.bearer(), requestIds);
+    } catch (RuntimeException e) {
+      log.warn("Releasing {} holds failed, retrying with backoff: {}", requestIds.size(), e.toString());
+      failed.increment(batch.size());
+      Instant failedAt = Instant.now();
+      tx.executeWithoutResult(s -> outbox.saveAll(batch.stream().map(o -> backOff(o, failedAt, e)).toList()));
+      return 0;
+    }
+    tx.executeWithoutResult(s -> outbox.deleteAllByIdInBatch(batch.stream().map(OutboxEvent::getId).toList()));
+    delivered.increment(batch.size());
+    return batch.size();
+  }
+
+  private OutboxEvent backOff(OutboxEvent o, Instant now, RuntimeException error) {
+    o.setAttempts(o.getAttempts() + 1);
+    long delay = Math.min(maxBackoffMs, backoffMs << Math.min(o.getAttempts() - 1, 20));
+    o.setNextAttemptAt(now.plusMillis(delay));
+    String message = String.valueOf(error.getMessage());
+    o.setLastError(message.length() > 255 ? message.substring(0, 255) : message);
+    return o;
+  }
+
+  void refreshLag() {
+    Instant now = Instant.now();
+    due.set(outbox.countByDueAtLessThanEqual(now));
+    Instant oldest = outbox.oldestDue(now);
+    lagSeconds.set(oldest == null ? 0 : Duration.between(oldest, now).toSeconds());
+  }
+}
@@ -0,0 +1,106 @@
+package ru.mephi.bookingapi.service;
+
+import ru.mephi.bookingapi.web.dto.BookingResult;
+import ru.mephi.commonlib.support.TransactionHooks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Clock;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Final results of recent bookings by request id, so a client retrying {@code POST /booking} with
+ * the same {@code X-Request-Id} is answered without a query. Bounded LRU of {@code max-entries};
+ * entries older than {@code ttl-seconds} are dropped when next read. Only CONFIRMED and CANCELLED
+ * results are cached, each after the transaction that produced it has committed; a PENDING booking
+ * is still looked up.
+ *
+ * <p>Exposes hit/miss/eviction counters, {@code booking.replay.cache.size} and {@code
+ * booking.replay.cache.hit.ratio}.
+ */
+@Component
+public class ReplayCache {
+  private final long ttlMillis;
+  private final Clock clock;
+  private final Map<String, Entry> entries;
+
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter evictions;
+
+  @Autowired
+  public ReplayCache(
+      MeterRegistry meters,
+      @Value("${booking.replay-cache.max-entries:10000}") int maxEntries,
+      @Value("${booking.replay-cache.ttl-seconds:600}") long ttlSeconds) {
+    this(meters, maxEntries, ttlSeconds, Clock.systemUTC());
+  }
+
+  ReplayCache(MeterRegistry meters, int maxEntries, long ttlSeconds, Clock clock) {
+    this.ttlMillis = ttlSeconds * 1000;
+    this.clock = clock;
+    this.hits = meters.counter("booking.replay.cache.hits");
+    this.misses = meters.counter("booking.replay.cache.misses");
+    this.evictions = meters.counter("booking.replay.cache.evictions");
+    this.entries =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() <= maxEntries) return false;
+            evictions.increment();
+            return true;
+          }
+        };
+    Gauge.builder("booking.replay.cache.size", this, ReplayCache::size).register(meters);
+    Gauge.builder("booking.replay.cache.hit.ratio", this, ReplayCache::hitRatio).register(meters);
+  }
+
+  public Optional<BookingResult> get(String requestId) {
+    Entry e;
+    synchronized (entries) {
+      e = entries.get(requestId);
+      if (e != null && clock.millis() - e.storedAt() > ttlMillis) {
+        entries.remove(requestId);
+        evictions.increment();
+        e = null;
+      }
+    }
+    (e == null ? misses : hits).increment();
+    return e == null ? Optional.empty() : Optional.of(e.result());
+  }
+
+  /** Caches the final result of a booking once the surrounding transaction (if any) commits. */
+  public void put(String requestId, BookingResult result) {
+    TransactionHooks.afterCommit(
+        () -> {
+          synchronized (entries) {
+            entries.put(requestId, new Entry(result, clock.millis()));
+          }
+        });
+  }
+
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  public void clear() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+  private double hitRatio() {
+    double h = hits.count();
+    double total = h + misses.count();
+    return total == 0 ? 0 : h / total;
+  }
+
+  private record Entry(BookingResult result, long storedAt) {}
+}
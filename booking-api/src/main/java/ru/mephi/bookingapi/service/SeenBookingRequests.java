@@ -0,0 +1,80 @@
+package ru.mephi.bookingapi.service;
+
+import ru.mephi.bookingapi.domain.Booking;
+import ru.mephi.bookingapi.repo.BookingRepository;
+import ru.mephi.commonlib.support.SeenRequestIds;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * {@link SeenRequestIds} over {@code bookings.request_id}: answers the {@code X-Request-Id} replay
+ * check of a new booking without a query when the id is certainly new. Built on startup and
+ * rebuilt every {@code rebuild-interval-ms}, which also resizes it to the table.
+ *
+ * <p>Exposes {@code booking.requestid.filter.fpp} (observed false positive rate since the last
+ * rebuild), {@code booking.requestid.filter.expected.fpp} and skipped/false-positive counters.
+ */
+@Slf4j
+@Component
+public class SeenBookingRequests {
+  private final BookingRepository bookings;
+  private final TransactionTemplate tx;
+  private final boolean enabled;
+  private final SeenRequestIds seen;
+
+  public SeenBookingRequests(
+      BookingRepository bookings,
+      TransactionTemplate tx,
+      MeterRegistry meters,
+      @Value("${booking.request-filter.enabled:true}") boolean enabled,
+      @Value("${booking.request-filter.expected-insertions:1000000}") long expectedInsertions,
+      @Value("${booking.request-filter.fpp:0.01}") double fpp) {
+    this.bookings = bookings;
+    this.tx = tx;
+    this.enabled = enabled;
+    this.seen = new SeenRequestIds(expectedInsertions, fpp);
+    Gauge.builder("booking.requestid.filter.fpp", seen, SeenRequestIds::observedFalsePositiveRate)
+        .register(meters);
+    Gauge.builder(
+            "booking.requestid.filter.expected.fpp", seen, SeenRequestIds::expectedFalsePositiveRate)
+        .register(meters);
+    FunctionCounter.builder("booking.requestid.filter.skipped", seen, SeenRequestIds::skipped)
+        .register(meters);
+    FunctionCounter.builder(
+            "booking.requestid.filter.false.positives", seen, SeenRequestIds::falsePositives)
+        .register(meters);
+  }
+
+  /** The booking made under {@code requestId}, if any; skips the query for certainly new ids. */
+  public Optional<Booking> find(String requestId) {
+    return seen.lookup(requestId, bookings::findByRequestId);
+  }
+
+  /** Call before a booking under {@code requestId} is stored. */
+  public void record(String requestId) {
+    seen.record(requestId);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  @Scheduled(
+      fixedDelayString = "${booking.request-filter.rebuild-interval-ms:3600000}",
+      initialDelayString = "${booking.request-filter.rebuild-interval-ms:3600000}")
+  public void rebuild() {
+    if (!enabled) return;
+    try {
+      tx.executeWithoutResult(s -> seen.rebuild(bookings.count(), bookings::streamRequestIds));
+    } catch (RuntimeException e) {
+      // the previous filter (or none, meaning every id is looked up) stays in use
+      log.warn("Rebuilding the request id filter failed", e);
+    }
+  }
+}
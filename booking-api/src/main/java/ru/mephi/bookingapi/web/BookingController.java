@@ -1,116 +1,192 @@
 package ru.mephi.bookingapi.web;
 
-import ru.mephi.bookingapi.client.AccommodationClient;
-import ru.mephi.bookingapi.config.TokenProvider;
+import ru.mephi.bookingapi.config.AuthenticatedUser;
+import ru.mephi.bookingapi.config.UserIdCache;
 import ru.mephi.bookingapi.domain.Booking;
 import ru.mephi.bookingapi.repo.BookingRepository;
-import ru.mephi.bookingapi.repo.UserRepository;
+import ru.mephi.bookingapi.service.BookingOutbox;
+import ru.mephi.bookingapi.service.BookingFlights;
+import ru.mephi.bookingapi.service.BookingHistory;
+import ru.mephi.bookingapi.service.BookingSaga;
+import ru.mephi.bookingapi.service.ReplayCache;
+import ru.mephi.bookingapi.service.SeenBookingRequests;
 import ru.mephi.bookingapi.web.dto.*;
-import java.time.Duration;
-import java.security.Principal;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.LocalDate;
 import java.util.List;
-import java.util.Map;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.MDC;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 @RestController
 @RequiredArgsConstructor
 public class BookingController {
-  private static final long INTERNAL_TOKEN_TTL_SECONDS = Duration.ofMinutes(5).toSeconds();
+  static final String RESPOND_ASYNC = "respond-async";
+  static final String NDJSON = "application/x-ndjson";
+  static final int MAX_PAGE = 1000;
+
   private final BookingRepository bookings;
-  private final UserRepository users;
-  private final AccommodationClient accommodationClient;
-  private final TokenProvider tokenProvider;
+  private final UserIdCache userIds;
+  private final BookingOutbox outbox;
+  private final BookingSaga saga;
+  private final SeenBookingRequests seenRequests;
+  private final ReplayCache replays;
+  private final BookingFlights flights;
+  private final BookingHistory history;
+  private final ObjectMapper json;
 
   @PostMapping("/booking")
   @PreAuthorize("hasAnyRole('USER','ADMIN')")
   public ResponseEntity<BookingResult> create(
-      @RequestHeader("Authorization") String bearer,
       @RequestHeader("X-Request-Id") String requestId,
+      @RequestHeader(value = "Prefer", required = false) String prefer,
       @RequestBody CreateBookingRequest req,
-      Principal principal) {
-    var existing = bookings.findByRequestId(requestId);
-    if (existing.isPresent()) {
-      var b = existing.get();
-      return ResponseEntity.ok(new BookingResult(b.getId(), b.getStatus().name(), b.getRoomId()));
+      @AuthenticationPrincipal AuthenticatedUser principal) {
+    var cached = replays.get(requestId);
+    if (cached.isPresent()) return ResponseEntity.ok(cached.get());
+    var flight = flights.join(requestId);
+    if (!flight.leader()) {
+      // a duplicate of a request in progress here: its result is ours
+      var shared = flights.await(flight);
+      if (shared.isPresent()) return respond(shared.get());
+    }
+    try {
+      var response = start(requestId, prefer, req, principal);
+      // an accepted request lands at once with PENDING; duplicates then poll its completion
+      flights.land(flight, response.getBody());
+      return response;
+    } catch (RuntimeException e) {
+      flights.abort(flight, e);
+      throw e;
+    }
+  }
+
+  private ResponseEntity<BookingResult> start(
+      String requestId,
+      String prefer,
+      CreateBookingRequest req,
+      AuthenticatedUser principal) {
+    var existing = seenRequests.find(requestId);
+    if (existing.isPresent()) return respond(replay(existing.get()));
+    Long userId = userIds.resolve(principal).orElse(0L);
+    Booking b;
+    try {
+      b =
+          outbox.open(
+              Booking.builder()
+                  .userId(userId)
+                  .status(Booking.Status.PENDING)
+                  .startDate(req.start())
+                  .endDate(req.end())
+                  .requestId(requestId)
+                  .build(),
+              BookingSaga.requestedRoom(req));
+    } catch (DataIntegrityViolationException e) {
+      // a replay the request id filter did not know of, or a concurrent one
+      return respond(replay(bookings.findByRequestId(requestId).orElseThrow(() -> e)));
     }
     MDC.put("requestId", requestId);
-    
-    Long userId = users.findByUsername(principal.getName())
-        .map(u -> u.getId())
-        .orElse(0L);
-    
-    var b =
-        bookings.save(
-            Booking.builder()
-                .userId(userId)
-                .status(Booking.Status.PENDING)
-                .startDate(req.start())
-                .endDate(req.end())
-                .requestId(requestId)
-                .build());
-    Long roomId = req.roomId();
     try {
-      if (req.autoSelect()) {
-        var rec =
-            accommodationClient.recommend(bearer, req.hotelId(), req.start().toString(), req.end().toString(), 1);
-        if (rec.isEmpty()) throw new IllegalStateException("NO_RECOMMENDATION");
-        roomId = Long.valueOf(((Map<?, ?>) rec.get(0)).get("id").toString());
+      // a full saga queue falls back to confirming inline, as without the header
+      if (prefer != null && prefer.contains(RESPOND_ASYNC) && saga.submit(b, req)) {
+        return ResponseEntity.accepted()
+            .location(URI.create("/booking/" + b.getId()))
+            .header("Preference-Applied", RESPOND_ASYNC)
+            .body(new BookingResult(b.getId(), Booking.Status.PENDING.name(), null));
       }
-      if (roomId == null) throw new IllegalArgumentException("ROOM_ID_REQUIRED");
-      String serviceBearer = "Bearer " + tokenProvider.issue("booking-api", "ROLE_ADMIN", INTERNAL_TOKEN_TTL_SECONDS);
-      accommodationClient.confirm(serviceBearer, roomId, requestId, req.start().toString(), req.end().toString());
-      b.setRoomId(roomId);
-      b.setStatus(Booking.Status.CONFIRMED);
-      bookings.save(b);
-      return ResponseEntity.ok(new BookingResult(b.getId(), b.getStatus().name(), b.getRoomId()));
-    } catch (Exception e) {
-      if (roomId != null) {
-        try {
-          String serviceBearer = "Bearer " + tokenProvider.issue("booking-api", "ROLE_ADMIN", INTERNAL_TOKEN_TTL_SECONDS);
-          accommodationClient.release(serviceBearer, roomId, requestId);
-        } catch (Exception ignored) {
-        }
-      }
-      b.setStatus(Booking.Status.CANCELLED);
-      bookings.save(b);
-      return ResponseEntity.status(503)
-          .body(new BookingResult(b.getId(), b.getStatus().name(), roomId));
+      var result = saga.run(b, req);
+      return ResponseEntity.status(b.getStatus() == Booking.Status.CONFIRMED ? 200 : 503).body(result);
     } finally {
       MDC.clear();
     }
   }
 
+  /**
+   * A page of the caller's bookings in id order, after the {@code after} id cursor. When more rows
+   * match, a {@code Link: <...>; rel="next"} header carries the cursor of the next page.
+   */
   @GetMapping("/bookings")
   @PreAuthorize("hasAnyRole('USER','ADMIN')")
-  public ResponseEntity<List<BookingDetails>> listMyBookings(Principal principal) {
-    Long userId = users.findByUsername(principal.getName())
-        .map(u -> u.getId())
+  public ResponseEntity<List<BookingDetails>> listMyBookings(
+      @RequestParam(defaultValue = "0") long after,
+      @RequestParam(defaultValue = "100") int limit,
+      @RequestParam(required = false) Booking.Status status,
+      @RequestParam(required = false) LocalDate from,
+      @RequestParam(required = false) LocalDate to,
+      @AuthenticationPrincipal AuthenticatedUser principal) {
+    Long userId = userIds.resolve(principal)
         .orElseThrow(() -> new RuntimeException("USER_NOT_FOUND"));
-    
-    List<BookingDetails> result = bookings.findByUserId(userId).stream()
-        .map(b -> new BookingDetails(
-            b.getId(),
-            b.getUserId(),
-            b.getRoomId(),
-            b.getStatus().name(),
-            b.getStartDate(),
-            b.getEndDate()))
-        .toList();
-    
-    return ResponseEntity.ok(result);
+    int size = Math.min(Math.max(1, limit), MAX_PAGE);
+
+    // one row past the page tells whether there is a next one
+    List<Booking> rows =
+        history.page(userId, new BookingHistory.Filter(status, from, to), after, size + 1);
+    List<BookingDetails> page =
+        rows.stream().limit(size).map(BookingController::details).toList();
+    if (rows.size() <= size) return ResponseEntity.ok(page);
+
+    URI next =
+        ServletUriComponentsBuilder.fromCurrentRequest()
+            .replaceQueryParam("after", page.get(size - 1).id())
+            .replaceQueryParam("limit", size)
+            .build()
+            .toUri();
+    return ResponseEntity.ok().header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"").body(page);
+  }
+
+  /**
+   * All of the caller's bookings matching the filters as newline-delimited JSON, for {@code Accept:
+   * application/x-ndjson}. Rows are written as they are read from a database cursor, so neither the
+   * result nor the response is held in memory.
+   */
+  @GetMapping(value = "/bookings", produces = NDJSON)
+  @PreAuthorize("hasAnyRole('USER','ADMIN')")
+  public ResponseEntity<StreamingResponseBody> streamMyBookings(
+      @RequestParam(defaultValue = "0") long after,
+      @RequestParam(required = false) Booking.Status status,
+      @RequestParam(required = false) LocalDate from,
+      @RequestParam(required = false) LocalDate to,
+      @AuthenticationPrincipal AuthenticatedUser principal) {
+    Long userId = userIds.resolve(principal)
+        .orElseThrow(() -> new RuntimeException("USER_NOT_FOUND"));
+    var filter = new BookingHistory.Filter(status, from, to);
+    var rows = json.writerFor(BookingDetails.class);
+
+    StreamingResponseBody body =
+        out ->
+            history.forEach(
+                userId,
+                filter,
+                after,
+                b -> {
+                  try {
+                    out.write(rows.writeValueAsBytes(details(b)));
+                    out.write('\n');
+                  } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                  }
+                });
+    return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
   }
 
   @GetMapping("/booking/{id}")
   @PreAuthorize("hasAnyRole('USER','ADMIN')")
   public ResponseEntity<BookingDetails> getById(
       @PathVariable Long id,
-      Principal principal) {
-    Long userId = users.findByUsername(principal.getName())
-        .map(u -> u.getId())
+      @AuthenticationPrincipal AuthenticatedUser principal) {
+    Long userId = userIds.resolve(principal)
         .orElseThrow(() -> new RuntimeException("USER_NOT_FOUND"));
     
     Booking booking = bookings.findById(id)
@@ -120,23 +196,38 @@ public class BookingController {
       return ResponseEntity.status(403).build();
     }
     
-    return ResponseEntity.ok(new BookingDetails(
-        booking.getId(),
-        booking.getUserId(),
-        booking.getRoomId(),
-        booking.getStatus().name(),
-        booking.getStartDate(),
-        booking.getEndDate()));
+    return ResponseEntity.ok(details(booking));
+  }
+
+  /**
+   * Long-poll for a booking accepted with {@code Prefer: respond-async}: answers once its saga has
+   * finished on this instance, or with the current (PENDING) state after {@code timeoutMs}.
+   */
+  @GetMapping("/booking/{id}/completion")
+  @PreAuthorize("hasAnyRole('USER','ADMIN')")
+  public DeferredResult<ResponseEntity<BookingDetails>> awaitCompletion(
+      @PathVariable Long id,
+      @RequestParam(defaultValue = "10000") long timeoutMs,
+      @AuthenticationPrincipal AuthenticatedUser principal) {
+    var now = getById(id, principal);
+    var result = new DeferredResult<ResponseEntity<BookingDetails>>(timeoutMs);
+    var pending = saga.completion(id);
+    if (!now.getStatusCode().is2xxSuccessful() || pending.isEmpty()) {
+      result.setResult(now);
+      return result;
+    }
+    result.onTimeout(() -> result.setResult(now));
+    pending.get().whenComplete((done, error) ->
+        result.setResult(bookings.findById(id).map(b -> ResponseEntity.ok(details(b))).orElse(now)));
+    return result;
   }
 
   @DeleteMapping("/booking/{id}")
   @PreAuthorize("hasAnyRole('USER','ADMIN')")
   public ResponseEntity<BookingResult> cancel(
       @PathVariable Long id,
-      @RequestHeader("Authorization") String bearer,
-      Principal principal) {
-    Long userId = users.findByUsername(principal.getName())
-        .map(u -> u.getId())
+      @AuthenticationPrincipal AuthenticatedUser principal) {
+    Long userId = userIds.resolve(principal)
         .orElseThrow(() -> new RuntimeException("USER_NOT_FOUND"));
     
     Booking booking = bookings.findById(id)
@@ -146,20 +237,32 @@ public class BookingController {
       return ResponseEntity.status(403).build();
     }
     
-    if (booking.getStatus() == Booking.Status.CONFIRMED && booking.getRoomId() != null) {
-      try {
-        String serviceBearer = "Bearer " + tokenProvider.issue("booking-api", "ROLE_ADMIN", INTERNAL_TOKEN_TTL_SECONDS);
-        accommodationClient.release(serviceBearer, booking.getRoomId(), booking.getRequestId());
-      } catch (Exception ignored) {
-      }
+    if (booking.getStatus() != Booking.Status.CANCELLED) {
+      // the release goes out through the outbox; a PENDING booking may hold a room already
+      outbox.cancel(booking, booking.getRoomId());
     }
     
-    booking.setStatus(Booking.Status.CANCELLED);
-    bookings.save(booking);
-    
     return ResponseEntity.ok(new BookingResult(
         booking.getId(),
         booking.getStatus().name(),
         booking.getRoomId()));
   }
+
+  /**
+   * A booking still PENDING is answered as accepted, so that a duplicate of a {@code
+   * respond-async} request gets its {@code Location} to poll rather than waiting for the saga.
+   */
+  private static ResponseEntity<BookingResult> respond(BookingResult result) {
+    if (!Booking.Status.PENDING.name().equals(result.status())) return ResponseEntity.ok(result);
+    return ResponseEntity.accepted().location(URI.create("/booking/" + result.id())).body(result);
+  }
+
+  private static BookingResult replay(Booking b) {
+    return new BookingResult(b.getId(), b.getStatus().name(), b.getRoomId());
+  }
+
+  private static BookingDetails details(Booking b) {
+    return new BookingDetails(
+        b.getId(), b.getUserId(), b.getRoomId(), b.getStatus().name(), b.getStartDate(), b.getEndDate());
+  }
 }
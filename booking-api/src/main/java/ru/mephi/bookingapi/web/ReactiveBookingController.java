@@ -0,0 +1,154 @@
+package ru.mephi.bookingapi.web;
+
+import ru.mephi.bookingapi.config.AuthenticatedUser;
+import ru.mephi.bookingapi.config.UserIdCache;
+import ru.mephi.bookingapi.domain.Booking;
+import ru.mephi.bookingapi.repo.BookingRepository;
+import ru.mephi.bookingapi.service.BookingFlights;
+import ru.mephi.bookingapi.service.BookingOutbox;
+import ru.mephi.bookingapi.service.BookingSaga;
+import ru.mephi.bookingapi.service.ReplayCache;
+import ru.mephi.bookingapi.service.SeenBookingRequests;
+import ru.mephi.bookingapi.web.dto.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicReference;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Non-blocking variant of {@code POST /booking} and {@code DELETE /booking/{id}}. The saga is the
+ * same as in {@link BookingController} — idempotent by {@code X-Request-Id}, PENDING until hotel-api
+ * has reserved the room, CANCELLED with 503 and a queued release on failure — but the request
+ * thread is returned to Tomcat as soon as the pipeline is assembled. The steps are {@link
+ * BookingSaga}'s own: its hotel-api call runs on the WebClient event loop and the repository ones
+ * on {@code bookingDbScheduler}.
+ */
+@RestController
+@RequestMapping("/booking/reactive")
+public class ReactiveBookingController {
+  private final BookingRepository bookings;
+  private final UserIdCache userIds;
+  private final BookingOutbox outbox;
+  private final SeenBookingRequests seenRequests;
+  private final ReplayCache replays;
+  private final BookingFlights flights;
+  private final BookingSaga saga;
+  private final Scheduler db;
+
+  public ReactiveBookingController(
+      BookingRepository bookings,
+      UserIdCache userIds,
+      BookingOutbox outbox,
+      SeenBookingRequests seenRequests,
+      ReplayCache replays,
+      BookingFlights flights,
+      BookingSaga saga,
+      @Qualifier("bookingDbScheduler") Scheduler db) {
+    this.bookings = bookings;
+    this.userIds = userIds;
+    this.outbox = outbox;
+    this.seenRequests = seenRequests;
+    this.replays = replays;
+    this.flights = flights;
+    this.saga = saga;
+    this.db = db;
+  }
+
+  @PostMapping
+  @PreAuthorize("hasAnyRole('USER','ADMIN')")
+  public Mono<ResponseEntity<BookingResult>> create(
+      @RequestHeader("X-Request-Id") String requestId,
+      @RequestBody CreateBookingRequest req,
+      @AuthenticationPrincipal AuthenticatedUser principal) {
+    var cached = replays.get(requestId);
+    if (cached.isPresent()) return Mono.just(ResponseEntity.ok(cached.get()));
+    var flight = flights.join(requestId);
+    Mono<ResponseEntity<BookingResult>> alone =
+        db(() -> seenRequests.find(requestId))
+            .flatMap(
+                existing ->
+                    existing
+                        .map(b -> Mono.just(ok(b)))
+                        .orElseGet(() -> start(requestId, req, principal)))
+            .doOnNext(r -> flights.land(flight, r.getBody()))
+            .doOnError(e -> flights.abort(flight, e))
+            .doOnCancel(() -> flights.abort(flight, new CancellationException()));
+    if (flight.leader()) return alone;
+    // a duplicate of a request in progress here: its result is ours; copied so that a timeout
+    // here does not cancel the leader's future
+    return Mono.fromFuture(flight.result().copy())
+        .timeout(flights.maxWait())
+        .map(ResponseEntity::ok)
+        .onErrorResume(e -> alone);
+  }
+
+  private Mono<ResponseEntity<BookingResult>> start(
+      String requestId, CreateBookingRequest req, AuthenticatedUser principal) {
+    AtomicReference<Long> reserved = new AtomicReference<>(BookingSaga.requestedRoom(req));
+    return db(() ->
+            outbox.open(
+                Booking.builder()
+                    .userId(userIds.resolve(principal).orElse(0L))
+                    .status(Booking.Status.PENDING)
+                    .startDate(req.start())
+                    .endDate(req.end())
+                    .requestId(requestId)
+                    .build(),
+                reserved.get()))
+        .flatMap(
+            b ->
+                saga.reservation(requestId, req)
+                    .doOnNext(reserved::set)
+                    .flatMap(roomId -> db(() -> saga.settle(b, roomId)))
+                    .onErrorResume(e -> db(() -> saga.abandon(b, reserved.get(), e)))
+                    .map(result -> ResponseEntity.status(confirmed(b) ? 200 : 503).body(result)))
+        // only open can trip it: a replay the request id filter did not know of, or a concurrent one
+        .onErrorResume(
+            DataIntegrityViolationException.class,
+            e -> db(() -> ok(bookings.findByRequestId(requestId).orElseThrow(() -> e))));
+  }
+
+  @DeleteMapping("/{id}")
+  @PreAuthorize("hasAnyRole('USER','ADMIN')")
+  public Mono<ResponseEntity<BookingResult>> cancel(
+      @PathVariable Long id, @AuthenticationPrincipal AuthenticatedUser principal) {
+    return db(
+            () -> {
+              Long userId =
+                  userIds.resolve(principal).orElseThrow(() -> new RuntimeException("USER_NOT_FOUND"));
+              Booking booking =
+                  bookings.findById(id).orElseThrow(() -> new RuntimeException("BOOKING_NOT_FOUND"));
+              return booking.getUserId().equals(userId) ? booking : null;
+            })
+        .flatMap(
+            booking ->
+                db(
+                    () -> {
+                      if (booking.getStatus() != Booking.Status.CANCELLED) {
+                        outbox.cancel(booking, booking.getRoomId());
+                      }
+                      return ok(booking);
+                    }))
+        .defaultIfEmpty(ResponseEntity.status(403).build());
+  }
+
+  /** Runs a blocking repository call on the bounded {@code bookingDbScheduler}. */
+  private <T> Mono<T> db(Callable<T> call) {
+    return Mono.fromCallable(call).subscribeOn(db);
+  }
+
+  private static boolean confirmed(Booking b) {
+    return b.getStatus() == Booking.Status.CONFIRMED;
+  }
+
+  private static ResponseEntity<BookingResult> ok(Booking b) {
+    return ResponseEntity.ok(new BookingResult(b.getId(), b.getStatus().name(), b.getRoomId()));
+  }
+}
@@ -1,6 +1,7 @@
 package ru.mephi.bookingapi.web;
 
 import ru.mephi.bookingapi.config.TokenProvider;
+import ru.mephi.bookingapi.config.UserIdCache;
 import ru.mephi.bookingapi.domain.User;
 import ru.mephi.bookingapi.repo.UserRepository;
 import ru.mephi.bookingapi.web.dto.*;
@@ -19,6 +20,7 @@ public class UserController {
   private final UserRepository users;
   private final PasswordEncoder encoder;
   private final TokenProvider tokenProvider;
+  private final UserIdCache userIds;
 
   @PostMapping("/register")
   public ResponseEntity<TokenResponse> register(@RequestBody RegistrationRequest req) {
@@ -36,7 +38,7 @@ public class UserController {
                 .passwordHash(encoder.encode(req.password()))
                 .role(role)
                 .build());
-    String token = tokenProvider.issue(saved.getUsername(), saved.getRole(), TTL);
+    String token = tokenProvider.issue(saved.getId(), saved.getUsername(), saved.getRole(), TTL);
     return ResponseEntity.ok(new TokenResponse(token, TTL));
   }
 
@@ -46,7 +48,7 @@ public class UserController {
         users.findByUsername(req.username()).orElseThrow(() -> new RuntimeException("NOT_FOUND"));
     if (!encoder.matches(req.password(), u.getPasswordHash()))
       throw new RuntimeException("BAD_CREDENTIALS");
-    String token = tokenProvider.issue(u.getUsername(), u.getRole(), TTL);
+    String token = tokenProvider.issue(u.getId(), u.getUsername(), u.getRole(), TTL);
     return ResponseEntity.ok(new TokenResponse(token, TTL));
   }
 
@@ -84,6 +86,7 @@ public class UserController {
           .ifPresent(u -> {
             throw new RuntimeException("USERNAME_TAKEN");
           });
+      userIds.evict(user.getUsername());
       user.setUsername(req.username());
     }
     if (req.password() != null && !req.password().isBlank()) {
@@ -100,10 +103,10 @@ public class UserController {
   @DeleteMapping("/{id}")
   @PreAuthorize("hasRole('ADMIN')")
   public ResponseEntity<Void> deleteUser(@PathVariable Long id) {
-    if (!users.existsById(id)) {
-      throw new RuntimeException("USER_NOT_FOUND");
-    }
-    users.deleteById(id);
+    User user = users.findById(id)
+        .orElseThrow(() -> new RuntimeException("USER_NOT_FOUND"));
+    users.delete(user);
+    userIds.evict(user.getUsername());
     return ResponseEntity.noContent().build();
   }
 }
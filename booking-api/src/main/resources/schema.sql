@@ -1,11 +1,16 @@
+-- ids come from pooled sequences; the increment must match allocationSize of the entities
+create sequence if not exists users_seq start with 1 increment by 50;
+create sequence if not exists bookings_seq start with 1 increment by 50;
+create sequence if not exists booking_outbox_seq start with 1 increment by 50;
+
 create table if not exists users (
-    id bigint generated by default as identity primary key,
+    id bigint default nextval('users_seq') primary key,
     username varchar(64) not null unique,
     password_hash varchar(255) not null,
     role varchar(32) not null
 );
 create table if not exists bookings (
-    id bigint generated by default as identity primary key,
+    id bigint default nextval('bookings_seq') primary key,
     user_id bigint not null,
     room_id bigint,
     status varchar(16) not null,
@@ -13,3 +18,16 @@ create table if not exists bookings (
     end_date date,
     request_id varchar(64) not null unique
 );
+-- keyset pages of GET /bookings
+create index if not exists ix_booking_user_id on bookings (user_id, id);
+create table if not exists booking_outbox (
+    id bigint default nextval('booking_outbox_seq') primary key,
+    request_id varchar(64) not null,
+    room_id bigint,
+    due_at timestamp(6) with time zone not null,
+    next_attempt_at timestamp(6) with time zone not null,
+    attempts int not null,
+    last_error varchar(255)
+);
+create index if not exists ix_outbox_next_attempt on booking_outbox (next_attempt_at);
+create index if not exists ix_outbox_request on booking_outbox (request_id);
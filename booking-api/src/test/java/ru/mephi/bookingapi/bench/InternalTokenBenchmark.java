@@ -0,0 +1,68 @@
+package ru.mephi.bookingapi.bench;
+
+import ru.mephi.bookingapi.config.InternalCredentials;
+import ru.mephi.bookingapi.config.TokenProvider;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signing a service JWT per internal call versus sharing the cached one from
+ * {@link InternalCredentials}, with {@code bench.threads} concurrent callers. Not part of the
+ * regular test run (surefire only picks up {@code *Test}); start it explicitly:
+ *
+ * <pre>
+ * mvn -pl booking-api test -Dtest=InternalTokenBenchmark -Dbench.threads=16
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InternalTokenBenchmark {
+
+    private static final String SECRET = "bench-secret-bench-secret-bench-secret-bench-secret-bench";
+
+    private TokenProvider tokens;
+    private InternalCredentials credentials;
+
+    @Setup
+    public void setUp() {
+        tokens = new TokenProvider(SECRET);
+        credentials = new InternalCredentials(tokens, 300, 60);
+    }
+
+    @Benchmark
+    public String signPerCall() {
+        return "Bearer " + tokens.issue("booking-api", "ROLE_ADMIN", 300);
+    }
+
+    @Benchmark
+    public String cachedToken() {
+        return credentials.bearer();
+    }
+
+    @Test
+    void run() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(InternalTokenBenchmark.class.getName())
+                .threads(Integer.getInteger("bench.threads", 8))
+                .forks(1)
+                .warmupIterations(2)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(3)
+                .measurementTime(TimeValue.seconds(Integer.getInteger("bench.seconds", 2)))
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,175 @@
+package ru.mephi.bookingapi.bench;
+
+import ru.mephi.bookingapi.BookingServiceApplication;
+import ru.mephi.bookingapi.test.JwtTestUtils;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+
+/**
+ * booking-api in front of a hotel-api stand-in that answers confirm after {@code bench.delay-ms}.
+ * {@code bench.clients} callers book in a loop while one reader polls {@code GET /bookings}; the
+ * run is repeated with platform threads (Tomcat pool of {@code bench.tomcat-threads}) and with
+ * virtual threads. The virtual-thread run needs Java 21+ and is skipped otherwise; it has not been
+ * measured yet, which is why {@code BOOKING_VIRTUAL_THREADS} stays off by default. Not part of the
+ * regular test run; start it explicitly:
+ *
+ * <pre>
+ * mvn -pl booking-api test -Dtest=SlowHotelLoadBenchmark -Dbench.clients=400 -Dbench.delay-ms=500
+ * </pre>
+ */
+class SlowHotelLoadBenchmark {
+
+    private static final int CLIENTS = Integer.getInteger("bench.clients", 200);
+    private static final int DELAY_MS = Integer.getInteger("bench.delay-ms", 500);
+    private static final int SECONDS = Integer.getInteger("bench.seconds", 10);
+    private static final int TOMCAT_THREADS = Integer.getInteger("bench.tomcat-threads", 50);
+    private static final String SECRET = "bench-secret-bench-secret-bench-secret-bench-secret-bench";
+
+    private static WireMockServer hotel;
+
+    @BeforeAll
+    static void startHotel() {
+        hotel = new WireMockServer(wireMockConfig().dynamicPort().containerThreads(CLIENTS + 50));
+        hotel.start();
+        hotel.stubFor(post(urlPathMatching("/internal/rooms/.*/confirm-availability"))
+                .willReturn(ok().withFixedDelay(DELAY_MS)));
+        hotel.stubFor(post(urlPathMatching("/internal/rooms/.*/release")).willReturn(aResponse().withStatus(202)));
+    }
+
+    @AfterAll
+    static void stopHotel() {
+        hotel.stop();
+    }
+
+    @Test
+    void compareThreadingModes() throws Exception {
+        System.out.printf("%n%d clients, hotel-api confirm takes %d ms, %ds per mode%n", CLIENTS, DELAY_MS, SECONDS);
+        System.out.printf("%-10s %10s %10s %12s %12s %12s%n",
+                "threads", "booked/s", "failed", "book p99 ms", "read p50 ms", "read p99 ms");
+        run(false);
+        if (Runtime.version().feature() >= 21) {
+            run(true);
+        } else {
+            System.out.printf("%-10s skipped: needs Java 21+, running on %d%n", "virtual", Runtime.version().feature());
+        }
+    }
+
+    private void run(boolean virtual) throws Exception {
+        try (ConfigurableApplicationContext app = new SpringApplicationBuilder(BookingServiceApplication.class)
+                .profiles("test")
+                .run(
+                        // command-line args, so they win over application-test.yml
+                        "--server.port=0",
+                        "--server.tomcat.threads.max=" + TOMCAT_THREADS,
+                        "--spring.threads.virtual.enabled=" + virtual,
+                        "--hotel.base-url=http://localhost:" + hotel.port(),
+                        "--hotel.client.read-timeout-ms=" + (DELAY_MS * 4),
+                        "--auth.jwt.secret=" + SECRET,
+                        "--eureka.client.enabled=false")) {
+            int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+            String bearer = "Bearer " + JwtTestUtils.issueHs256(SECRET, 1L, "bench", "ROLE_USER", 3600);
+            Result r = load(URI.create("http://localhost:" + port), bearer);
+            System.out.printf("%-10s %10.0f %10d %12.0f %12.1f %12.1f%n",
+                    virtual ? "virtual" : "platform", r.booked / (double) SECONDS, r.failed,
+                    percentile(r.bookNanos, 99), percentile(r.readNanos, 50), percentile(r.readNanos, 99));
+        }
+    }
+
+    private Result load(URI base, String bearer) throws Exception {
+        HttpClient http = HttpClient.newBuilder()
+                .executor(Executors.newCachedThreadPool())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SECONDS);
+        AtomicLong booked = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        ExecutorService callers = Executors.newFixedThreadPool(CLIENTS + 1);
+
+        List<Future<long[]>> bookers = new ArrayList<>();
+        for (int c = 0; c < CLIENTS; c++) {
+            bookers.add(callers.submit(() -> {
+                long[] samples = new long[256];
+                int n = 0;
+                while (System.nanoTime() < deadline) {
+                    HttpRequest req = HttpRequest.newBuilder(base.resolve("/booking"))
+                            .timeout(Duration.ofSeconds(30))
+                            .header("Authorization", bearer)
+                            .header("X-Request-Id", UUID.randomUUID().toString())
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(
+                                    "{\"roomId\":1,\"autoSelect\":false,\"start\":\"2030-01-01\",\"end\":\"2030-01-02\"}"))
+                            .build();
+                    long began = System.nanoTime();
+                    try {
+                        int status = http.send(req, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        (status == 200 ? booked : failed).incrementAndGet();
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                    }
+                    if (n == samples.length) samples = Arrays.copyOf(samples, n * 2);
+                    samples[n++] = System.nanoTime() - began;
+                }
+                return Arrays.copyOf(samples, n);
+            }));
+        }
+        Future<long[]> reader = callers.submit(() -> {
+            long[] samples = new long[256];
+            int n = 0;
+            while (System.nanoTime() < deadline) {
+                HttpRequest req = HttpRequest.newBuilder(base.resolve("/bookings"))
+                        .timeout(Duration.ofSeconds(30))
+                        .header("Authorization", bearer)
+                        .GET()
+                        .build();
+                long began = System.nanoTime();
+                try {
+                    http.send(req, HttpResponse.BodyHandlers.discarding());
+                } catch (Exception ignored) {
+                }
+                if (n == samples.length) samples = Arrays.copyOf(samples, n * 2);
+                samples[n++] = System.nanoTime() - began;
+                Thread.sleep(100);
+            }
+            return Arrays.copyOf(samples, n);
+        });
+
+        List<long[]> bookSamples = new ArrayList<>();
+        for (Future<long[]> f : bookers) bookSamples.add(f.get());
+        long[] readSamples = reader.get();
+        callers.shutdown();
+        return new Result(booked.get(), failed.get(),
+                bookSamples.stream().flatMapToLong(Arrays::stream).sorted().toArray(),
+                Arrays.stream(readSamples).sorted().toArray());
+    }
+
+    private static double percentile(long[] sortedNanos, int p) {
+        if (sortedNanos.length == 0) return 0;
+        int idx = (int) Math.ceil(p / 100.0 * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, idx)] / 1e6;
+    }
+
+    private record Result(long booked, long failed, long[] bookNanos, long[] readNanos) {}
+}
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 
 import java.util.List;
+import reactor.core.publisher.Mono;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
@@ -95,6 +96,58 @@ class AccommodationClientTest {
         );
     }
 
+    @Test
+    void pick_returnsReservedRoomId() {
+        wm.stubFor(post(urlPathEqualTo("/internal/rooms/pick"))
+                .willReturn(okJson("{\"id\":9,\"roomId\":3,\"status\":\"COMMITTED\"}")));
+
+        assertEquals(3L, client.pick("Bearer token", 1L, "req-pick", "2025-10-01", "2025-10-05"));
+
+        wm.verify(postRequestedFor(urlPathEqualTo("/internal/rooms/pick"))
+                .withHeader("Authorization", equalTo("Bearer token"))
+                .withHeader("X-Request-Id", equalTo("req-pick"))
+                .withRequestBody(matchingJsonPath("$.hotelId", equalTo("1")))
+                .withRequestBody(matchingJsonPath("$.start", equalTo("2025-10-01")))
+                .withRequestBody(matchingJsonPath("$.end", equalTo("2025-10-05"))));
+    }
+
+    @Test
+    void pick_throwsOn409Conflict() {
+        wm.stubFor(post(urlPathEqualTo("/internal/rooms/pick"))
+                .willReturn(aResponse()
+                        .withStatus(409)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"code\":\"ROOM_NOT_AVAILABLE\"}")));
+
+        assertThrows(Exception.class, () ->
+                client.pick("Bearer token", 1L, "req-conflict", "2025-10-01", "2025-10-05")
+        );
+    }
+
+    @Test
+    void pickAsync_sendsNothingUntilSubscribed() {
+        wm.stubFor(post(urlPathEqualTo("/internal/rooms/pick"))
+                .willReturn(okJson("{\"roomId\":4}")));
+
+        var picked = client.pickAsync("Bearer token", 1L, "req-lazy", "2025-10-01", "2025-10-05");
+        wm.verify(0, postRequestedFor(urlPathEqualTo("/internal/rooms/pick")));
+
+        assertEquals(4L, picked.block());
+        wm.verify(1, postRequestedFor(urlPathEqualTo("/internal/rooms/pick")));
+    }
+
+    @Test
+    void confirmAsync_propagatesConflictAsError() {
+        wm.stubFor(post(urlPathEqualTo("/internal/rooms/1/confirm-availability"))
+                .willReturn(aResponse().withStatus(409)));
+
+        var result = client.confirmAsync("Bearer token", 1L, "req-async", "2025-10-01", "2025-10-05")
+                .then(Mono.just("confirmed"))
+                .onErrorResume(e -> Mono.just("failed"));
+
+        assertEquals("failed", result.block());
+    }
+
     @Test
     void recommend_returnsListOfRooms() {
         wm.stubFor(get(urlPathEqualTo("/api/rooms/recommend"))
@@ -185,4 +238,13 @@ class AccommodationClientTest {
                 client.release("Bearer token", 1L, "req-accepted")
         );
     }
+
+    @Test
+    void releaseAsync_completesEmptyOnAccepted() {
+        wm.stubFor(post(urlPathEqualTo("/internal/rooms/1/release"))
+                .willReturn(aResponse().withStatus(202)));
+
+        assertNull(client.releaseAsync("Bearer token", 1L, "req-async-release").block());
+        wm.verify(postRequestedFor(urlPathEqualTo("/internal/rooms/1/release")));
+    }
 }
@@ -0,0 +1,143 @@
+package ru.mephi.bookingapi.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+class InternalCredentialsTest {
+
+    private static final String SECRET = "test-secret-test-secret-test-secret-test-secret-test-secret";
+
+    private MutableClock clock;
+    private CountingTokenProvider tokens;
+    private InternalCredentials credentials;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2025-10-01T12:00:00Z"));
+        tokens = new CountingTokenProvider();
+        credentials = new InternalCredentials(tokens, 300, 60, clock);
+    }
+
+    @Test
+    void firstCall_signsToken() {
+        String bearer = credentials.bearer();
+
+        assertTrue(bearer.startsWith("Bearer "));
+        assertEquals(1, tokens.issued.get());
+        assertEquals(InternalCredentials.SUBJECT, tokens.lastSubject);
+        assertEquals(InternalCredentials.ROLE, tokens.lastRole);
+    }
+
+    @Test
+    void reusesToken_untilRefreshWindow() {
+        String first = credentials.bearer();
+        clock.advance(Duration.ofSeconds(239));
+
+        assertSame(first, credentials.bearer());
+        assertEquals(1, tokens.issued.get());
+    }
+
+    @Test
+    void refreshesInBackground_andKeepsServingCurrentToken() throws Exception {
+        String first = credentials.bearer();
+        tokens.block = new CountDownLatch(1);
+        clock.advance(Duration.ofSeconds(250));
+
+        assertSame(first, credentials.bearer(), "caller must not wait for the refresh");
+        assertSame(first, credentials.bearer());
+
+        tokens.block.countDown();
+        await().atMost(5, TimeUnit.SECONDS).until(() -> !credentials.bearer().equals(first));
+        assertEquals(2, tokens.issued.get(), "only one refresh is scheduled");
+    }
+
+    @Test
+    void expiredToken_isReplacedInline() {
+        String first = credentials.bearer();
+        clock.advance(Duration.ofSeconds(301));
+
+        String second = credentials.bearer();
+
+        assertNotEquals(first, second);
+        assertEquals(2, tokens.issued.get());
+    }
+
+    @Test
+    void failedRefresh_keepsCurrentToken() throws Exception {
+        String first = credentials.bearer();
+        tokens.fail = true;
+        clock.advance(Duration.ofSeconds(250));
+
+        assertSame(first, credentials.bearer());
+        await().atMost(5, TimeUnit.SECONDS).until(() -> tokens.attempts.get() == 2);
+        assertSame(first, credentials.bearer());
+    }
+
+    private static final class CountingTokenProvider extends TokenProvider {
+        final AtomicInteger issued = new AtomicInteger();
+        final AtomicInteger attempts = new AtomicInteger();
+        volatile CountDownLatch block;
+        volatile boolean fail;
+        volatile String lastSubject;
+        volatile String lastRole;
+
+        CountingTokenProvider() {
+            super(SECRET);
+        }
+
+        @Override
+        public String issue(String subject, String role, long ttlSeconds) {
+            attempts.incrementAndGet();
+            if (block != null) {
+                try {
+                    block.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (fail) throw new IllegalStateException("signing failed");
+            lastSubject = subject;
+            lastRole = role;
+            return "token-" + issued.incrementAndGet();
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+        private volatile Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration d) {
+            now = now.plus(d);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
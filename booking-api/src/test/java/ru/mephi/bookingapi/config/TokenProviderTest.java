@@ -160,4 +160,18 @@ class TokenProviderTest {
         assertEquals("booking-api", claims.getSubject());
         assertEquals("ROLE_ADMIN", claims.get("role", String.class));
     }
+
+    @Test
+    void issue_withUserId_addsUidClaim() {
+        String token = jwtService.issue(42L, "testUser", "ROLE_USER", 3600);
+
+        Claims claims = parseToken(token);
+        assertEquals(42L, claims.get(TokenProvider.UID_CLAIM, Long.class));
+        assertEquals("testUser", claims.getSubject());
+    }
+
+    @Test
+    void issue_withoutUserId_hasNoUidClaim() {
+        assertNull(parseToken(jwtService.issue("booking-api", "ROLE_ADMIN", 300)).get(TokenProvider.UID_CLAIM));
+    }
 }
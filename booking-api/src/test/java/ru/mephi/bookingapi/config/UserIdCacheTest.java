@@ -0,0 +1,84 @@
+package ru.mephi.bookingapi.config;
+
+import ru.mephi.bookingapi.domain.User;
+import ru.mephi.bookingapi.repo.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserIdCacheTest {
+
+    @Mock
+    private UserRepository users;
+
+    private UserIdCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new UserIdCache(users, 2);
+    }
+
+    private void stubUser(String username, long id) {
+        when(users.findByUsername(username)).thenReturn(Optional.of(User.builder().id(id).username(username).build()));
+    }
+
+    @Test
+    void uidClaim_isUsedWithoutLookup() {
+        assertEquals(Optional.of(7L), cache.resolve(new AuthenticatedUser(7L, "alice")));
+        verifyNoInteractions(users);
+    }
+
+    @Test
+    void legacyToken_isLookedUpOnce() {
+        stubUser("alice", 1L);
+
+        assertEquals(Optional.of(1L), cache.resolve(new AuthenticatedUser(null, "alice")));
+        assertEquals(Optional.of(1L), cache.resolve(new AuthenticatedUser(null, "alice")));
+        verify(users, times(1)).findByUsername("alice");
+    }
+
+    @Test
+    void unknownUser_isNotCached() {
+        when(users.findByUsername("ghost")).thenReturn(Optional.empty());
+
+        assertTrue(cache.resolve(new AuthenticatedUser(null, "ghost")).isEmpty());
+        assertTrue(cache.resolve(new AuthenticatedUser(null, "ghost")).isEmpty());
+        verify(users, times(2)).findByUsername("ghost");
+    }
+
+    @Test
+    void leastRecentlyUsedEntry_isDropped_whenFull() {
+        stubUser("a", 1L);
+        stubUser("b", 2L);
+        stubUser("c", 3L);
+
+        cache.resolve(new AuthenticatedUser(null, "a"));
+        cache.resolve(new AuthenticatedUser(null, "b"));
+        cache.resolve(new AuthenticatedUser(null, "a"));
+        cache.resolve(new AuthenticatedUser(null, "c"));
+        cache.resolve(new AuthenticatedUser(null, "a"));
+        cache.resolve(new AuthenticatedUser(null, "b"));
+
+        verify(users, times(1)).findByUsername("a");
+        verify(users, times(2)).findByUsername("b");
+    }
+
+    @Test
+    void evict_forcesNewLookup() {
+        stubUser("alice", 1L);
+        cache.resolve(new AuthenticatedUser(null, "alice"));
+
+        cache.evict("alice");
+        cache.resolve(new AuthenticatedUser(null, "alice"));
+
+        verify(users, times(2)).findByUsername("alice");
+    }
+}
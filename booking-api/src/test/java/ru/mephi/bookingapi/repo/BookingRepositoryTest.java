@@ -5,12 +5,15 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -237,4 +240,55 @@ class BookingRepositoryTest {
         Booking found = bookings.findById(saved.getId()).orElseThrow();
         assertEquals(Booking.Status.CONFIRMED, found.getStatus());
     }
+
+    @Test
+    void findHistory_readsKeysetPage_ofOneUser() {
+        Long userId = 100L;
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ids.add(bookings.save(Booking.builder()
+                    .userId(userId)
+                    .roomId(10L)
+                    .status(i % 2 == 0 ? Booking.Status.CONFIRMED : Booking.Status.CANCELLED)
+                    .startDate(LocalDate.of(2025, 10, 1 + i))
+                    .endDate(LocalDate.of(2025, 10, 2 + i))
+                    .requestId(UUID.randomUUID().toString())
+                    .build()).getId());
+        }
+        bookings.save(Booking.builder()
+                .userId(200L)
+                .roomId(20L)
+                .status(Booking.Status.CONFIRMED)
+                .startDate(LocalDate.of(2025, 10, 1))
+                .endDate(LocalDate.of(2025, 10, 2))
+                .requestId(UUID.randomUUID().toString())
+                .build());
+
+        List<Booking> page = bookings.findHistory(userId, ids.get(0), null, null, null, PageRequest.ofSize(2));
+        assertEquals(List.of(ids.get(1), ids.get(2)), page.stream().map(Booking::getId).toList());
+
+        List<Booking> confirmed = bookings.findHistory(
+                userId, 0, Booking.Status.CONFIRMED, LocalDate.of(2025, 10, 2), null, PageRequest.ofSize(10));
+        assertEquals(List.of(ids.get(2)), confirmed.stream().map(Booking::getId).toList());
+    }
+
+    @Test
+    void streamHistory_returnsAllMatchingRows_inIdOrder() {
+        Long userId = 100L;
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(bookings.save(Booking.builder()
+                    .userId(userId)
+                    .roomId(10L)
+                    .status(Booking.Status.CONFIRMED)
+                    .startDate(LocalDate.of(2025, 10, 1 + i))
+                    .endDate(LocalDate.of(2025, 10, 2 + i))
+                    .requestId(UUID.randomUUID().toString())
+                    .build()).getId());
+        }
+
+        try (Stream<Booking> rows = bookings.streamHistory(userId, 0, null, null, LocalDate.of(2025, 10, 2))) {
+            assertEquals(List.of(ids.get(0), ids.get(1)), rows.map(Booking::getId).toList());
+        }
+    }
 }
@@ -0,0 +1,79 @@
+package ru.mephi.bookingapi.service;
+
+import ru.mephi.bookingapi.web.dto.BookingResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingFlightsTest {
+
+    private final MeterRegistry meters = new SimpleMeterRegistry();
+    private final BookingFlights flights = new BookingFlights(meters, 2_000);
+
+    private static final BookingResult CONFIRMED = new BookingResult(1L, "CONFIRMED", 7L);
+
+    @Test
+    void firstJoinLeads_laterOnesFollow() {
+        BookingFlights.Flight leader = flights.join("r-1");
+        BookingFlights.Flight follower = flights.join("r-1");
+
+        assertTrue(leader.leader());
+        assertFalse(follower.leader());
+        assertTrue(flights.join("r-2").leader());
+        assertEquals(1, meters.get("booking.single-flight.joined").counter().count());
+        assertEquals(2, meters.get("booking.single-flight.in-flight").gauge().value());
+    }
+
+    @Test
+    void followerGetsLeadersResult() throws Exception {
+        BookingFlights.Flight leader = flights.join("r-1");
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<Optional<BookingResult>> shared = pool.submit(() -> flights.await(flights.join("r-1")));
+            while (meters.get("booking.single-flight.joined").counter().count() == 0) Thread.onSpinWait();
+            flights.land(leader, CONFIRMED);
+
+            assertEquals(Optional.of(CONFIRMED), shared.get());
+        } finally {
+            pool.shutdownNow();
+        }
+        assertTrue(flights.join("r-1").leader(), "landed flight is over");
+    }
+
+    @Test
+    void followerCannotLandOrAbort() {
+        BookingFlights.Flight leader = flights.join("r-1");
+        BookingFlights.Flight follower = flights.join("r-1");
+
+        flights.abort(follower, new IllegalStateException());
+        flights.land(follower, CONFIRMED);
+
+        assertFalse(leader.result().isDone());
+        assertFalse(flights.join("r-1").leader());
+    }
+
+    @Test
+    void abortedFlight_leavesFollowersEmptyHanded() {
+        BookingFlights.Flight leader = flights.join("r-1");
+        BookingFlights.Flight follower = flights.join("r-1");
+        flights.abort(leader, new IllegalStateException("hotel-api down"));
+
+        assertEquals(Optional.empty(), flights.await(follower));
+        assertTrue(flights.join("r-1").leader());
+    }
+
+    @Test
+    void followerGivesUp_afterWaitMs() {
+        BookingFlights impatient = new BookingFlights(meters, 50);
+        impatient.join("r-1");
+
+        assertEquals(Optional.empty(), impatient.await(impatient.join("r-1")));
+    }
+}
@@ -0,0 +1,177 @@
+package ru.mephi.bookingapi.service;
+
+import ru.mephi.bookingapi.domain.Booking;
+import ru.mephi.bookingapi.domain.OutboxEvent;
+import ru.mephi.bookingapi.repo.BookingRepository;
+import ru.mephi.bookingapi.repo.OutboxRepository;
+import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class OutboxDispatcherTest {
+
+    @Autowired OutboxDispatcher dispatcher;
+    @Autowired BookingOutbox bookingOutbox;
+    @Autowired OutboxRepository outbox;
+    @Autowired BookingRepository bookings;
+    @Autowired MeterRegistry meters;
+
+    @RegisterExtension
+    static WireMockExtension wm = WireMockExtension.newInstance()
+            .options(wireMockConfig().dynamicPort())
+            .build();
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry r) {
+        r.add("hotel.base-url", () -> "http://localhost:" + wm.getPort());
+        r.add("booking.outbox.backoff-ms", () -> 60000);
+    }
+
+    @BeforeEach
+    void setUp() {
+        outbox.deleteAll();
+        bookings.deleteAll();
+        wm.resetAll();
+        wm.stubFor(post(urlPathEqualTo("/internal/rooms/release-batch"))
+                .willReturn(aResponse().withStatus(202)));
+    }
+
+    private OutboxEvent event(String requestId, Long roomId, Instant dueAt) {
+        return outbox.save(OutboxEvent.builder()
+                .requestId(requestId)
+                .roomId(roomId)
+                .dueAt(dueAt)
+                .nextAttemptAt(dueAt)
+                .build());
+    }
+
+    private Booking pending() {
+        return Booking.builder()
+                .userId(1L)
+                .status(Booking.Status.PENDING)
+                .startDate(LocalDate.of(2025, 10, 1))
+                .endDate(LocalDate.of(2025, 10, 5))
+                .requestId(UUID.randomUUID().toString())
+                .build();
+    }
+
+    @Test
+    void dispatch_sendsDueReleasesInOneBatch_andDeletesThem() {
+        Instant past = Instant.now().minusSeconds(1);
+        event("r-1", 1L, past);
+        event("r-2", 2L, past);
+        event("r-3", null, past);
+
+        assertEquals(3, dispatcher.dispatch());
+
+        wm.verify(1, postRequestedFor(urlPathEqualTo("/internal/rooms/release-batch"))
+                .withRequestBody(equalToJson("{\"requestIds\":[\"r-1\",\"r-2\",\"r-3\"]}")));
+        assertEquals(0, outbox.count());
+    }
+
+    @Test
+    void dispatch_leavesArmedReleasesAlone() {
+        bookingOutbox.open(pending(), 5L);
+
+        assertEquals(0, dispatcher.dispatch());
+        wm.verify(0, postRequestedFor(urlPathEqualTo("/internal/rooms/release-batch")));
+        assertEquals(1, outbox.count());
+    }
+
+    @Test
+    void confirm_dropsArmedRelease() {
+        Booking b = bookingOutbox.open(pending(), 5L);
+
+        assertTrue(bookingOutbox.confirm(b, 5L));
+
+        assertEquals(0, outbox.count());
+        Booking stored = bookings.findById(b.getId()).orElseThrow();
+        assertEquals(Booking.Status.CONFIRMED, stored.getStatus());
+        assertEquals(5L, stored.getRoomId());
+    }
+
+    @Test
+    void cancel_firesArmedReleaseNow() {
+        Booking b = bookingOutbox.open(pending(), null);
+
+        bookingOutbox.cancel(b, 7L);
+
+        OutboxEvent release = outbox.findAll().get(0);
+        assertEquals(1, outbox.count());
+        assertEquals(7L, release.getRoomId());
+        assertEquals(1, dispatcher.dispatch());
+        assertEquals(Booking.Status.CANCELLED, bookings.findById(b.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void failedBatch_backsOffAndIsNotResentImmediately() {
+        wm.stubFor(post(urlPathEqualTo("/internal/rooms/release-batch"))
+                .willReturn(aResponse().withStatus(503)));
+        event("r-fail", 1L, Instant.now().minusSeconds(1));
+
+        assertEquals(0, dispatcher.dispatch());
+        assertEquals(0, dispatcher.dispatch());
+
+        wm.verify(1, postRequestedFor(urlPathEqualTo("/internal/rooms/release-batch")));
+        OutboxEvent kept = outbox.findAll().get(0);
+        assertEquals(1, kept.getAttempts());
+        assertTrue(kept.getNextAttemptAt().isAfter(Instant.now()));
+        assertNotNull(kept.getLastError());
+    }
+
+    @Test
+    void laterReleaseOfRoom_waitsBehindOneBackingOff() {
+        Instant past = Instant.now().minusSeconds(1);
+        OutboxEvent failing = event("r-old", 5L, past);
+        failing.setAttempts(1);
+        failing.setNextAttemptAt(Instant.now().plusSeconds(60));
+        outbox.save(failing);
+        event("r-new", 5L, past);
+        event("r-other", 6L, past);
+
+        assertEquals(1, dispatcher.dispatch());
+
+        wm.verify(postRequestedFor(urlPathEqualTo("/internal/rooms/release-batch"))
+                .withRequestBody(equalToJson("{\"requestIds\":[\"r-other\"]}")));
+        assertEquals(2, outbox.count());
+    }
+
+    @Test
+    void expiredLease_cancelsPendingBooking_soALateConfirmLoses() {
+        Booking b = bookings.save(pending());
+        event(b.getRequestId(), null, Instant.now().minusSeconds(1));
+
+        assertEquals(1, dispatcher.dispatch());
+
+        assertEquals(Booking.Status.CANCELLED, bookings.findById(b.getId()).orElseThrow().getStatus());
+        assertFalse(bookingOutbox.confirm(b, 3L));
+    }
+
+    @Test
+    void lagGauge_reportsAgeOfOldestDueRelease() {
+        event("r-lag", 1L, Instant.now().minusSeconds(30));
+        event("r-armed", 2L, Instant.now().plusSeconds(300));
+
+        dispatcher.refreshLag();
+
+        assertTrue(meters.get("booking.outbox.lag").gauge().value() >= 30);
+        assertEquals(1, meters.get("booking.outbox.due").gauge().value());
+    }
+}
@@ -0,0 +1,92 @@
+package ru.mephi.bookingapi.service;
+
+import ru.mephi.bookingapi.web.dto.BookingResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplayCacheTest {
+
+    private final MeterRegistry meters = new SimpleMeterRegistry();
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-10-01T00:00:00Z"));
+
+    private static BookingResult confirmed(long id) {
+        return new BookingResult(id, "CONFIRMED", 7L);
+    }
+
+    @Test
+    void answersReplays_andCountsHitsAndMisses() {
+        ReplayCache cache = new ReplayCache(meters, 10, 600, clock);
+        cache.put("r-1", confirmed(1));
+
+        assertEquals(Optional.of(confirmed(1)), cache.get("r-1"));
+        assertEquals(Optional.empty(), cache.get("r-2"));
+
+        assertEquals(1, meters.get("booking.replay.cache.hits").counter().count());
+        assertEquals(1, meters.get("booking.replay.cache.misses").counter().count());
+        assertEquals(0.5, meters.get("booking.replay.cache.hit.ratio").gauge().value());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed_beyondMaxEntries() {
+        ReplayCache cache = new ReplayCache(meters, 2, 600, clock);
+        cache.put("r-1", confirmed(1));
+        cache.put("r-2", confirmed(2));
+        cache.get("r-1");
+
+        cache.put("r-3", confirmed(3));
+
+        assertTrue(cache.get("r-1").isPresent());
+        assertTrue(cache.get("r-2").isEmpty());
+        assertTrue(cache.get("r-3").isPresent());
+        assertEquals(2, cache.size());
+        assertEquals(1, meters.get("booking.replay.cache.evictions").counter().count());
+    }
+
+    @Test
+    void dropsEntriesOlderThanTtl() {
+        ReplayCache cache = new ReplayCache(meters, 10, 60, clock);
+        cache.put("r-1", confirmed(1));
+
+        clock.advance(Duration.ofSeconds(61));
+
+        assertTrue(cache.get("r-1").isEmpty());
+        assertEquals(0, cache.size());
+    }
+
+    private static final class MutableClock extends Clock {
+        private volatile Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration d) {
+            now = now.plus(d);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
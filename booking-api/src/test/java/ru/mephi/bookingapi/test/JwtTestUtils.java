@@ -12,11 +12,20 @@ public final class JwtTestUtils {
     private JwtTestUtils() {}
 
     public static String issueHs256(String secret, String sub, String role, long ttlSeconds) {
+        return issueHs256(secret, sub, role, Map.of(), ttlSeconds);
+    }
+
+    public static String issueHs256(String secret, Long uid, String sub, String role, long ttlSeconds) {
+        return issueHs256(secret, sub, role, Map.of("uid", uid), ttlSeconds);
+    }
+
+    private static String issueHs256(String secret, String sub, String role, Map<String, Object> claims, long ttlSeconds) {
         SecretKey key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
         Instant now = Instant.now();
         return Jwts.builder()
                 .subject(sub)
                 .claims(Map.of("role", role))
+                .claims(claims)
                 .issuedAt(Date.from(now))
                 .expiration(Date.from(now.plusSeconds(ttlSeconds)))
                 .signWith(key, Jwts.SIG.HS256)
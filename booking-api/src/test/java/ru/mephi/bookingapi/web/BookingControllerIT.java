@@ -55,8 +55,8 @@ class BookingControllerIT {
     void resetStubs() {
         wm.resetAll();
 
-        wm.stubFor(WireMock.get(WireMock.urlPathEqualTo("/api/rooms/recommend"))
-                .willReturn(WireMock.okJson("[{\"id\":1}]")));
+        wm.stubFor(WireMock.post(WireMock.urlPathEqualTo("/internal/rooms/pick"))
+                .willReturn(WireMock.okJson("{\"roomId\":1,\"status\":\"COMMITTED\"}")));
 
         wm.stubFor(WireMock.post(WireMock.urlPathMatching("/internal/rooms/1/confirm-availability"))
                 .willReturn(WireMock.ok()));
@@ -76,6 +76,30 @@ class BookingControllerIT {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.status").value("CONFIRMED"))
                 .andExpect(jsonPath("$.roomId").value(1));
+
+        wm.verify(1, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/internal/rooms/pick"))
+                .withHeader("X-Request-Id", WireMock.equalTo(rid))
+                .withRequestBody(WireMock.matchingJsonPath("$.hotelId", WireMock.equalTo("1"))));
+        wm.verify(0, WireMock.getRequestedFor(WireMock.urlPathEqualTo("/api/rooms/recommend")));
+        wm.verify(0, WireMock.postRequestedFor(WireMock.urlPathMatching("/internal/rooms/\\d+/confirm-availability")));
+    }
+
+    @Test
+    void booking_explicit_room_confirmed() throws Exception {
+        String rid = UUID.randomUUID().toString();
+
+        mvc.perform(post("/booking")
+                        .header(HttpHeaders.AUTHORIZATION, bearerUser())
+                        .header("X-Request-Id", rid)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                {"roomId":1,"autoSelect":false,"start":"2025-10-25","end":"2025-10-27"}
+                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("CONFIRMED"))
+                .andExpect(jsonPath("$.roomId").value(1));
+
+        wm.verify(0, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/internal/rooms/pick")));
     }
 
     @Test
@@ -107,7 +131,7 @@ class BookingControllerIT {
     void booking_conflict_from_hms_results_cancelled_503() throws Exception {
         String rid = UUID.randomUUID().toString();
 
-        wm.stubFor(WireMock.post(WireMock.urlPathMatching("/internal/rooms/1/confirm-availability"))
+        wm.stubFor(WireMock.post(WireMock.urlPathEqualTo("/internal/rooms/pick"))
                 .willReturn(WireMock.aResponse().withStatus(409).withHeader("Content-Type","application/json")
                         .withBody("{\"code\":\"ROOM_NOT_AVAILABLE\"}")));
 
@@ -126,7 +150,7 @@ class BookingControllerIT {
     void booking_timeout_from_hms_results_cancelled_504() throws Exception {
         String rid = UUID.randomUUID().toString();
 
-        wm.stubFor(WireMock.post(WireMock.urlPathMatching("/internal/rooms/1/confirm-availability"))
+        wm.stubFor(WireMock.post(WireMock.urlPathEqualTo("/internal/rooms/pick"))
                 .willReturn(WireMock.aResponse().withFixedDelay(5000).withStatus(200)));
 
         mvc.perform(post("/booking")
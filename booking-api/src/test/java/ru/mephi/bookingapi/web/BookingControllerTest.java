@@ -1,12 +1,17 @@
 package ru.mephi.bookingapi.web;
 
+import ru.mephi.bookingapi.config.UserIdCache;
 import ru.mephi.bookingapi.domain.Booking;
 import ru.mephi.bookingapi.domain.User;
 import ru.mephi.bookingapi.repo.BookingRepository;
+import ru.mephi.bookingapi.repo.OutboxRepository;
 import ru.mephi.bookingapi.repo.UserRepository;
+import ru.mephi.bookingapi.service.OutboxDispatcher;
+import ru.mephi.bookingapi.service.ReplayCache;
 import ru.mephi.bookingapi.test.JwtTestUtils;
 import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
@@ -14,20 +19,34 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.matchingJsonPath;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
 import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -39,6 +58,11 @@ class BookingControllerTest {
     @Autowired MockMvc mvc;
     @Autowired BookingRepository bookings;
     @Autowired UserRepository users;
+    @Autowired UserIdCache userIds;
+    @Autowired OutboxRepository outbox;
+    @Autowired OutboxDispatcher dispatcher;
+    @Autowired MeterRegistry meters;
+    @Autowired ReplayCache replays;
 
     private static final String SECRET = "test-secret-test-secret-test-secret-test-secret-test-secret";
     
@@ -62,7 +86,10 @@ class BookingControllerTest {
     @BeforeEach
     void setUp() {
         bookings.deleteAll();
+        outbox.deleteAll();
         users.deleteAll();
+        userIds.clear();
+        replays.clear();
         wm.resetAll();
         
         testUser = users.save(User.builder()
@@ -73,6 +100,8 @@ class BookingControllerTest {
 
         wm.stubFor(WireMock.post(urlPathMatching("/internal/rooms/.*/release"))
                 .willReturn(aResponse().withStatus(202)));
+        wm.stubFor(WireMock.post(urlPathEqualTo("/internal/rooms/release-batch"))
+                .willReturn(aResponse().withStatus(202)));
     }
 
     @Test
@@ -110,6 +139,27 @@ class BookingControllerTest {
                 .andExpect(jsonPath("$[*].userId", everyItem(equalTo(testUser.getId().intValue()))));
     }
 
+    @Test
+    void listMyBookings_takesUserIdFromUidClaim_withoutUserLookup() throws Exception {
+        bookings.save(Booking.builder()
+                .userId(testUser.getId())
+                .roomId(1L)
+                .status(Booking.Status.CONFIRMED)
+                .startDate(LocalDate.of(2025, 10, 1))
+                .endDate(LocalDate.of(2025, 10, 5))
+                .requestId(UUID.randomUUID().toString())
+                .build());
+
+        // the subject matches no user row, so only the uid claim can find the bookings
+        String bearer = "Bearer " + JwtTestUtils.issueHs256(SECRET, testUser.getId(), "renamed", "ROLE_USER", 3600);
+
+        mvc.perform(get("/bookings")
+                        .header(HttpHeaders.AUTHORIZATION, bearer))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].userId").value(testUser.getId().intValue()));
+    }
+
     @Test
     void listMyBookings_doesNotReturnOtherUsersBookings() throws Exception {
         User otherUser = users.save(User.builder()
@@ -206,11 +256,13 @@ class BookingControllerTest {
                 .andExpect(jsonPath("$.id").value(booking.getId()))
                 .andExpect(jsonPath("$.status").value("CANCELLED"));
 
-        wm.verify(postRequestedFor(urlPathEqualTo("/internal/rooms/10/release")));
+        dispatcher.dispatch();
+        wm.verify(postRequestedFor(urlPathEqualTo("/internal/rooms/release-batch"))
+                .withRequestBody(matchingJsonPath("$.requestIds[0]", WireMock.equalTo(booking.getRequestId()))));
     }
 
     @Test
-    void cancel_cancelsPendingBooking_withoutRelease() throws Exception {
+    void cancel_cancelsPendingBooking_andQueuesReleaseByRequestId() throws Exception {
         Booking booking = bookings.save(Booking.builder()
                 .userId(testUser.getId())
                 .roomId(null)
@@ -225,7 +277,9 @@ class BookingControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.status").value("CANCELLED"));
 
+        // its saga may have reserved a room by now; released by request id, not synchronously
         wm.verify(0, postRequestedFor(urlPathMatching("/internal/rooms/.*/release")));
+        assertEquals(1, outbox.count());
     }
 
     @Test
@@ -293,4 +347,286 @@ class BookingControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.status").value("CANCELLED"));
     }
+
+    private String createAsync(String rid) throws Exception {
+        var accepted = mvc.perform(post("/booking")
+                        .header(HttpHeaders.AUTHORIZATION, bearerUser("testuser"))
+                        .header("X-Request-Id", rid)
+                        .header("Prefer", "respond-async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                {"hotelId":1,"autoSelect":true,"start":"2025-10-25","end":"2025-10-27"}
+                """))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Preference-Applied", "respond-async"))
+                .andExpect(header().string(HttpHeaders.LOCATION, startsWith("/booking/")))
+                .andExpect(jsonPath("$.status").value("PENDING"))
+                .andReturn();
+        return accepted.getResponse().getHeader(HttpHeaders.LOCATION);
+    }
+
+    private ResultActions awaitCompletion(String location) throws Exception {
+        var started = mvc.perform(get(location + "/completion")
+                        .header(HttpHeaders.AUTHORIZATION, bearerUser("testuser")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mvc.perform(asyncDispatch(started));
+    }
+
+    @Test
+    void create_respondAsync_returns202_thenCompletesConfirmed() throws Exception {
+        wm.stubFor(WireMock.post(urlPathEqualTo("/internal/rooms/pick"))
+                .willReturn(okJson("{\"roomId\":7}").withFixedDelay(300)));
+
+        String location = createAsync(UUID.randomUUID().toString());
+
+        awaitCompletion(location)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("CONFIRMED"))
+                .andExpect(jsonPath("$.roomId").value(7));
+        mvc.perform(get(location).header(HttpHeaders.AUTHORIZATION, bearerUser("testuser")))
+                .andExpect(jsonPath("$.status").value("CONFIRMED"));
+    }
+
+    @Test
+    void create_respondAsync_cancelsInBackground_whenPickFails() throws Exception {
+        wm.stubFor(WireMock.post(urlPathEqualTo("/internal/rooms/pick"))
+                .willReturn(aResponse().withStatus(409).withFixedDelay(100)));
+
+        String location = createAsync(UUID.randomUUID().toString());
+
+        awaitCompletion(location)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("CANCELLED"));
+    }
+
+    @Test
+    void awaitCompletion_returnsStoredState_whenNoSagaInFlight() throws Exception {
+        Booking booking = bookings.save(Booking.builder()
+                .userId(testUser.getId())
+                .roomId(10L)
+                .status(Booking.Status.CONFIRMED)
+                .startDate(LocalDate.of(2025, 12, 1))
+                .endDate(LocalDate.of(2025, 12, 5))
+                .requestId("req-done-" + UUID.randomUUID())
+                .build());
+
+        awaitCompletion("/booking/" + booking.getId())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("CONFIRMED"));
+    }
+
+    @Test
+    void create_replayOfBookingUnknownToFilter_returnsStoredBooking() throws Exception {
+        // written behind the filter's back, as by another replica
+        Booking stored = bookings.save(Booking.builder()
+                .userId(testUser.getId())
+                .roomId(10L)
+                .status(Booking.Status.CONFIRMED)
+                .startDate(LocalDate.of(2025, 12, 1))
+                .endDate(LocalDate.of(2025, 12, 5))
+                .requestId("req-replica-" + UUID.randomUUID())
+                .build());
+
+        mvc.perform(post("/booking")
+                        .header(HttpHeaders.AUTHORIZATION, bearerUser("testuser"))
+                        .header("X-Request-Id", stored.getRequestId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                {"hotelId":1,"autoSelect":true,"start":"2025-10-25","end":"2025-10-27"}
+                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(stored.getId()))
+                .andExpect(jsonPath("$.status").value("CONFIRMED"));
+
+        assertEquals(1, bookings.count());
+        assertEquals(0, outbox.count());
+        wm.verify(0, postRequestedFor(urlPathEqualTo("/internal/rooms/pick")));
+    }
+
+    @Test
+    void create_newRequestId_skipsReplayLookup_andReplayIsFound() throws Exception {
+        wm.stubFor(WireMock.post(urlPathEqualTo("/internal/rooms/pick"))
+                .willReturn(okJson("{\"roomId\":7}")));
+        String rid = UUID.randomUUID().toString();
+        double skippedBefore = meters.get("booking.requestid.filter.skipped").functionCounter().count();
+        var create = post("/booking")
+                .header(HttpHeaders.AUTHORIZATION, bearerUser("testuser"))
+                .header("X-Request-Id", rid)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                {"hotelId":1,"autoSelect":true,"start":"2025-10-25","end":"2025-10-27"}
+                """);
+
+        mvc.perform(create).andExpect(status().isOk());
+        mvc.perform(create)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("CONFIRMED"));
+
+        assertEquals(skippedBefore + 1, meters.get("booking.requestid.filter.skipped").functionCounter().count());
+        wm.verify(1, postRequestedFor(urlPathEqualTo("/internal/rooms/pick")));
+        assertEquals(1, bookings.count());
+    }
+
+    private MockHttpServletRequestBuilder autoSelectCreate(String rid) {
+        return post("/booking")
+                .header(HttpHeaders.AUTHORIZATION, bearerUser("testuser"))
+                .header("X-Request-Id", rid)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                {"hotelId":1,"autoSelect":true,"start":"2025-10-25","end":"2025-10-27"}
+                """);
+    }
+
+    @Test
+    void create_replayOfFinishedBooking_isAnsweredFromCache() throws Exception {
+        wm.stubFor(WireMock.post(urlPathEqualTo("/internal/rooms/pick"))
+                .willReturn(okJson("{\"roomId\":7}")));
+        String rid = UUID.randomUUID().toString();
+        mvc.perform(autoSelectCreate(rid)).andExpect(status().isOk());
+        double hits = meters.get("booking.replay.cache.hits").counter().count();
+
+        // gone from the table, so only the cache can answer
+        bookings.deleteAll();
+        mvc.perform(autoSelectCreate(rid))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("CONFIRMED"))
+                .andExpect(jsonPath("$.roomId").value(7));
+
+        assertEquals(hits + 1, meters.get("booking.replay.cache.hits").counter().count());
+        assertEquals(0, bookings.count());
+        wm.verify(1, postRequestedFor(urlPathEqualTo("/internal/rooms/pick")));
+    }
+
+    @Test
+    void create_replayAfterCancel_returnsCancelled() throws Exception {
+        wm.stubFor(WireMock.post(urlPathEqualTo("/internal/rooms/pick"))
+                .willReturn(okJson("{\"roomId\":7}")));
+        String rid = UUID.randomUUID().toString();
+        mvc.perform(autoSelectCreate(rid)).andExpect(status().isOk());
+        Long id = bookings.findByRequestId(rid).orElseThrow().getId();
+
+        mvc.perform(delete("/booking/{id}", id).header(HttpHeaders.AUTHORIZATION, bearerUser("testuser")))
+                .andExpect(status().isOk());
+
+        mvc.perform(autoSelectCreate(rid))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("CANCELLED"));
+    }
+
+    @Test
+    void create_concurrentDuplicates_runSagaOnce() throws Exception {
+        wm.stubFor(WireMock.post(urlPathEqualTo("/internal/rooms/pick"))
+                .willReturn(okJson("{\"roomId\":7}").withFixedDelay(300)));
+        String rid = UUID.randomUUID().toString();
+        int n = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(n);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<Integer>> statuses = new ArrayList<>();
+        try {
+            for (int i = 0; i < n; i++) {
+                statuses.add(pool.submit(() -> {
+                    go.await();
+                    return mvc.perform(autoSelectCreate(rid)).andReturn().getResponse().getStatus();
+                }));
+            }
+            go.countDown();
+            for (Future<Integer> s : statuses) {
+                assertEquals(200, s.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        wm.verify(1, postRequestedFor(urlPathEqualTo("/internal/rooms/pick")));
+        assertEquals(1, bookings.count());
+        assertEquals(Booking.Status.CONFIRMED, bookings.findByRequestId(rid).orElseThrow().getStatus());
+    }
+
+    @Test
+    void create_concurrentDuplicates_shareLeadersResult() throws Exception {
+        wm.stubFor(WireMock.post(urlPathEqualTo("/internal/rooms/pick"))
+                .willReturn(okJson("{\"roomId\":7}").withFixedDelay(300)));
+        String rid = UUID.randomUUID().toString();
+        double joined = meters.get("booking.single-flight.joined").counter().count();
+        int n = 4;
+        ExecutorService pool = Executors.newFixedThreadPool(n);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<String>> bodies = new ArrayList<>();
+        try {
+            for (int i = 0; i < n; i++) {
+                bodies.add(pool.submit(() -> {
+                    go.await();
+                    return mvc.perform(autoSelectCreate(rid))
+                            .andExpect(status().isOk())
+                            .andReturn().getResponse().getContentAsString();
+                }));
+            }
+            go.countDown();
+            for (Future<String> b : bodies) {
+                assertTrue(b.get().contains("\"status\":\"CONFIRMED\""), b.get());
+                assertTrue(b.get().contains("\"roomId\":7"), b.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // the leader sits in the 300 ms pick while the others arrive
+        assertTrue(meters.get("booking.single-flight.joined").counter().count() > joined);
+        assertEquals(0.0, meters.get("booking.single-flight.in-flight").gauge().value());
+        wm.verify(1, postRequestedFor(urlPathEqualTo("/internal/rooms/pick")));
+    }
+
+    @Test
+    void create_duplicateOfRespondAsync_isAnsweredPendingAtOnce() throws Exception {
+        wm.stubFor(WireMock.post(urlPathEqualTo("/internal/rooms/pick"))
+                .willReturn(okJson("{\"roomId\":7}").withFixedDelay(300)));
+        String rid = UUID.randomUUID().toString();
+        String location = createAsync(rid);
+
+        mvc.perform(autoSelectCreate(rid))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, location))
+                .andExpect(jsonPath("$.status").value("PENDING"));
+
+        awaitCompletion(location)
+                .andExpect(jsonPath("$.status").value("CONFIRMED"))
+                .andExpect(jsonPath("$.roomId").value(7));
+        wm.verify(1, postRequestedFor(urlPathEqualTo("/internal/rooms/pick")));
+    }
+
+    @Test
+    void create_concurrentDuplicatesOfRespondAsync_doNotWaitForSaga() throws Exception {
+        // far longer than any answer may take, and shorter than single-flight.wait-ms
+        wm.stubFor(WireMock.post(urlPathEqualTo("/internal/rooms/pick"))
+                .willReturn(okJson("{\"roomId\":7}").withFixedDelay(3000)));
+        String rid = UUID.randomUUID().toString();
+        int n = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(n);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<MvcResult>> answers = new ArrayList<>();
+        long started;
+        try {
+            for (int i = 0; i < n; i++) {
+                answers.add(pool.submit(() -> {
+                    go.await();
+                    return mvc.perform(autoSelectCreate(rid).header("Prefer", "respond-async")).andReturn();
+                }));
+            }
+            started = System.nanoTime();
+            go.countDown();
+            for (Future<MvcResult> a : answers) {
+                assertEquals(202, a.get().getResponse().getStatus());
+                assertTrue(a.get().getResponse().getContentAsString().contains("\"status\":\"PENDING\""));
+                assertEquals(answers.get(0).get().getResponse().getHeader(HttpHeaders.LOCATION),
+                        a.get().getResponse().getHeader(HttpHeaders.LOCATION));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long tookMs = (System.nanoTime() - started) / 1_000_000;
+        assertTrue(tookMs < 2000, "duplicates waited " + tookMs + " ms for the saga");
+        assertEquals(1, bookings.count());
+    }
 }
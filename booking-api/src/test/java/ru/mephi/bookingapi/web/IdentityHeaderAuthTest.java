@@ -0,0 +1,99 @@
+package ru.mephi.bookingapi.web;
+
+import ru.mephi.bookingapi.domain.Booking;
+import ru.mephi.bookingapi.domain.User;
+import ru.mephi.bookingapi.repo.BookingRepository;
+import ru.mephi.bookingapi.repo.UserRepository;
+import ru.mephi.bookingapi.test.JwtTestUtils;
+import ru.mephi.commonlib.support.IdentityHeader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "auth.identity.enabled=true",
+        "auth.identity.secret=" + IdentityHeaderAuthTest.IDENTITY_SECRET
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class IdentityHeaderAuthTest {
+
+    static final String IDENTITY_SECRET = "identity-test-identity-test-identity-test";
+
+    @Autowired MockMvc mvc;
+    @Autowired BookingRepository bookings;
+    @Autowired UserRepository users;
+
+    /** Signed with a key the service does not know, so only the identity header can vouch for it. */
+    private static final String UNVERIFIABLE_BEARER =
+            "Bearer " + JwtTestUtils.issueHs256("not-the-jwt-secret-not-the-jwt-secret-not-the", "alice", "ROLE_USER", 3600);
+
+    private final IdentityHeader identities = new IdentityHeader(IDENTITY_SECRET);
+    private User alice;
+
+    @BeforeEach
+    void setUp() {
+        bookings.deleteAll();
+        users.deleteAll();
+        alice = users.save(User.builder()
+                .username("alice")
+                .passwordHash("$2a$10$dummy")
+                .role("ROLE_USER")
+                .build());
+        bookings.save(Booking.builder()
+                .userId(alice.getId())
+                .roomId(1L)
+                .status(Booking.Status.CONFIRMED)
+                .startDate(LocalDate.of(2025, 10, 1))
+                .endDate(LocalDate.of(2025, 10, 5))
+                .requestId(UUID.randomUUID().toString())
+                .build());
+    }
+
+    private String identity(String signedWith, Instant expiresAt) {
+        return new IdentityHeader(signedWith)
+                .sign(new IdentityHeader.Identity("alice", alice.getId(), "ROLE_USER", expiresAt),
+                        UNVERIFIABLE_BEARER.substring("Bearer ".length()));
+    }
+
+    @Test
+    void gatewayIdentity_isTrusted_withoutVerifyingTheToken() throws Exception {
+        mvc.perform(get("/bookings")
+                        .header(HttpHeaders.AUTHORIZATION, UNVERIFIABLE_BEARER)
+                        .header(IdentityHeader.HEADER, identity(IDENTITY_SECRET, Instant.now().plusSeconds(60))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].userId").value(alice.getId().intValue()));
+    }
+
+    @Test
+    void withoutIdentity_tokenIsVerifiedAsBefore() throws Exception {
+        mvc.perform(get("/bookings").header(HttpHeaders.AUTHORIZATION, UNVERIFIABLE_BEARER))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void forgedOrExpiredIdentity_fallsBackToToken() throws Exception {
+        mvc.perform(get("/bookings")
+                        .header(HttpHeaders.AUTHORIZATION, UNVERIFIABLE_BEARER)
+                        .header(IdentityHeader.HEADER, identity("a-guessed-secret-a-guessed-secret", Instant.now().plusSeconds(60))))
+                .andExpect(status().isUnauthorized());
+        mvc.perform(get("/bookings")
+                        .header(HttpHeaders.AUTHORIZATION, UNVERIFIABLE_BEARER)
+                        .header(IdentityHeader.HEADER, identity(IDENTITY_SECRET, Instant.now().minusSeconds(1))))
+                .andExpect(status().isUnauthorized());
+    }
+}
@@ -0,0 +1,266 @@
+package ru.mephi.bookingapi.web;
+
+import ru.mephi.bookingapi.config.UserIdCache;
+import ru.mephi.bookingapi.domain.Booking;
+import ru.mephi.bookingapi.domain.User;
+import ru.mephi.bookingapi.repo.BookingRepository;
+import ru.mephi.bookingapi.repo.OutboxRepository;
+import ru.mephi.bookingapi.repo.UserRepository;
+import ru.mephi.bookingapi.service.OutboxDispatcher;
+import ru.mephi.bookingapi.test.JwtTestUtils;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ReactiveBookingControllerTest {
+
+    @Autowired MockMvc mvc;
+    @Autowired BookingRepository bookings;
+    @Autowired UserRepository users;
+    @Autowired UserIdCache userIds;
+    @Autowired OutboxRepository outbox;
+    @Autowired OutboxDispatcher dispatcher;
+
+    private static final String SECRET = "test-secret-test-secret-test-secret-test-secret-test-secret";
+
+    @RegisterExtension
+    static WireMockExtension wm = WireMockExtension.newInstance()
+            .options(wireMockConfig().dynamicPort())
+            .build();
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry r) {
+        r.add("hotel.base-url", () -> "http://localhost:" + wm.getPort());
+        r.add("auth.jwt.secret", () -> SECRET);
+    }
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        bookings.deleteAll();
+        outbox.deleteAll();
+        users.deleteAll();
+        userIds.clear();
+        wm.resetAll();
+
+        testUser = users.save(User.builder()
+                .username("testuser")
+                .passwordHash("$2a$10$dummy")
+                .role("ROLE_USER")
+                .build());
+
+        wm.stubFor(WireMock.post(urlPathEqualTo("/internal/rooms/pick"))
+                .willReturn(okJson("{\"roomId\":7,\"status\":\"COMMITTED\"}")));
+        wm.stubFor(WireMock.post(urlPathMatching("/internal/rooms/.*/confirm-availability"))
+                .willReturn(WireMock.ok()));
+        wm.stubFor(WireMock.post(urlPathEqualTo("/internal/rooms/release-batch"))
+                .willReturn(aResponse().withStatus(202)));
+    }
+
+    private void verifyReleased(String requestId) {
+        dispatcher.dispatch();
+        wm.verify(postRequestedFor(urlPathEqualTo("/internal/rooms/release-batch"))
+                .withRequestBody(WireMock.matchingJsonPath("$.requestIds[0]", WireMock.equalTo(requestId))));
+    }
+
+    private String bearerUser(String username) {
+        return "Bearer " + JwtTestUtils.issueHs256(SECRET, username, "ROLE_USER", 3600);
+    }
+
+    /** Runs the request and the async dispatch that writes the {@code Mono} result. */
+    private ResultActions perform(RequestBuilder request) throws Exception {
+        var started = mvc.perform(request).andExpect(request().asyncStarted()).andReturn();
+        return mvc.perform(asyncDispatch(started));
+    }
+
+    private RequestBuilder create(String requestId, String body) {
+        return post("/booking/reactive")
+                .header(HttpHeaders.AUTHORIZATION, bearerUser("testuser"))
+                .header("X-Request-Id", requestId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body);
+    }
+
+    @Test
+    void create_autoSelect_picksAndConfirms() throws Exception {
+        String rid = UUID.randomUUID().toString();
+
+        perform(create(rid, """
+                {"hotelId":1,"autoSelect":true,"start":"2025-10-25","end":"2025-10-27"}
+                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("CONFIRMED"))
+                .andExpect(jsonPath("$.roomId").value(7));
+
+        Booking saved = bookings.findByRequestId(rid).orElseThrow();
+        assertEquals(Booking.Status.CONFIRMED, saved.getStatus());
+        assertEquals(testUser.getId(), saved.getUserId());
+        wm.verify(1, postRequestedFor(urlPathEqualTo("/internal/rooms/pick")));
+    }
+
+    @Test
+    void create_explicitRoom_confirmsThatRoom() throws Exception {
+        perform(create(UUID.randomUUID().toString(), """
+                {"roomId":3,"autoSelect":false,"start":"2025-10-25","end":"2025-10-27"}
+                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.roomId").value(3));
+
+        wm.verify(1, postRequestedFor(urlPathEqualTo("/internal/rooms/3/confirm-availability")));
+        wm.verify(0, postRequestedFor(urlPathEqualTo("/internal/rooms/pick")));
+    }
+
+    @Test
+    void create_sameRequestId_returnsFirstResultWithoutCallingHotel() throws Exception {
+        String rid = UUID.randomUUID().toString();
+        String body = """
+                {"hotelId":1,"autoSelect":true,"start":"2025-10-25","end":"2025-10-27"}
+                """;
+
+        perform(create(rid, body)).andExpect(status().isOk());
+        perform(create(rid, body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("CONFIRMED"))
+                .andExpect(jsonPath("$.roomId").value(7));
+
+        wm.verify(1, postRequestedFor(urlPathEqualTo("/internal/rooms/pick")));
+        assertEquals(1, bookings.count());
+    }
+
+    @Test
+    void create_pickConflict_cancelsWith503_andReleasesByRequestId() throws Exception {
+        wm.stubFor(WireMock.post(urlPathEqualTo("/internal/rooms/pick"))
+                .willReturn(aResponse().withStatus(409)));
+        String rid = UUID.randomUUID().toString();
+
+        perform(create(rid, """
+                {"hotelId":1,"autoSelect":true,"start":"2025-10-25","end":"2025-10-27"}
+                """))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.status").value("CANCELLED"));
+
+        assertEquals(Booking.Status.CANCELLED, bookings.findByRequestId(rid).orElseThrow().getStatus());
+        // a pick whose answer was lost may still have reserved a room
+        verifyReleased(rid);
+    }
+
+    @Test
+    void create_confirmFailure_releasesRoomAndCancelsWith503() throws Exception {
+        wm.stubFor(WireMock.post(urlPathEqualTo("/internal/rooms/3/confirm-availability"))
+                .willReturn(aResponse().withStatus(409)));
+        String rid = UUID.randomUUID().toString();
+
+        perform(create(rid, """
+                {"roomId":3,"autoSelect":false,"start":"2025-10-25","end":"2025-10-27"}
+                """))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.status").value("CANCELLED"))
+                .andExpect(jsonPath("$.roomId").value(3));
+
+        verifyReleased(rid);
+    }
+
+    @Test
+    void create_withoutRoomOrAutoSelect_cancelsWith503() throws Exception {
+        perform(create(UUID.randomUUID().toString(), """
+                {"autoSelect":false,"start":"2025-10-25","end":"2025-10-27"}
+                """))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.status").value("CANCELLED"));
+    }
+
+    @Test
+    void cancel_cancelsConfirmedBooking_andReleasesRoom() throws Exception {
+        Booking booking = bookings.save(Booking.builder()
+                .userId(testUser.getId())
+                .roomId(10L)
+                .status(Booking.Status.CONFIRMED)
+                .startDate(LocalDate.of(2025, 12, 1))
+                .endDate(LocalDate.of(2025, 12, 5))
+                .requestId("req-cancel-" + UUID.randomUUID())
+                .build());
+
+        perform(delete("/booking/reactive/{id}", booking.getId())
+                        .header(HttpHeaders.AUTHORIZATION, bearerUser("testuser")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("CANCELLED"));
+
+        verifyReleased(booking.getRequestId());
+    }
+
+    @Test
+    void cancel_keepsCancelling_whenReleaseFails() throws Exception {
+        wm.stubFor(WireMock.post(urlPathEqualTo("/internal/rooms/release-batch"))
+                .willReturn(aResponse().withStatus(500)));
+        Booking booking = bookings.save(Booking.builder()
+                .userId(testUser.getId())
+                .roomId(10L)
+                .status(Booking.Status.CONFIRMED)
+                .startDate(LocalDate.of(2025, 12, 1))
+                .endDate(LocalDate.of(2025, 12, 5))
+                .requestId("req-fail-" + UUID.randomUUID())
+                .build());
+
+        perform(delete("/booking/reactive/{id}", booking.getId())
+                        .header(HttpHeaders.AUTHORIZATION, bearerUser("testuser")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("CANCELLED"));
+
+        assertEquals(0, dispatcher.dispatch());
+        assertEquals(1, outbox.findAll().get(0).getAttempts());
+    }
+
+    @Test
+    void cancel_returnsForbidden_whenNotOwner() throws Exception {
+        User other = users.save(User.builder()
+                .username("other")
+                .passwordHash("$2a$10$dummy")
+                .role("ROLE_USER")
+                .build());
+        Booking booking = bookings.save(Booking.builder()
+                .userId(other.getId())
+                .roomId(10L)
+                .status(Booking.Status.CONFIRMED)
+                .startDate(LocalDate.of(2025, 12, 1))
+                .endDate(LocalDate.of(2025, 12, 5))
+                .requestId("req-other-" + UUID.randomUUID())
+                .build());
+
+        perform(delete("/booking/reactive/{id}", booking.getId())
+                        .header(HttpHeaders.AUTHORIZATION, bearerUser("testuser")))
+                .andExpect(status().isForbidden());
+
+        assertEquals(Booking.Status.CONFIRMED, bookings.findById(booking.getId()).orElseThrow().getStatus());
+        wm.verify(0, postRequestedFor(urlPathMatching("/internal/rooms/.*/release")));
+    }
+}
@@ -0,0 +1,10 @@
+package ru.mephi.commonlib.error.exceptions;
+
+import ru.mephi.commonlib.error.BusinessException;
+import org.springframework.http.HttpStatus;
+
+public class HoldExpiredException extends BusinessException {
+  public HoldExpiredException() {
+    super("HOLD_EXPIRED", "Hold has expired or was released", HttpStatus.CONFLICT);
+  }
+}
@@ -0,0 +1,10 @@
+package ru.mephi.commonlib.error.exceptions;
+
+import ru.mephi.commonlib.error.BusinessException;
+import org.springframework.http.HttpStatus;
+
+public class OverloadedException extends BusinessException {
+  public OverloadedException() {
+    super("OVERLOADED", "Service is overloaded, retry later", HttpStatus.SERVICE_UNAVAILABLE);
+  }
+}
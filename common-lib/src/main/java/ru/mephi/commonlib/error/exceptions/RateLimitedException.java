@@ -0,0 +1,10 @@
+package ru.mephi.commonlib.error.exceptions;
+
+import ru.mephi.commonlib.error.BusinessException;
+import org.springframework.http.HttpStatus;
+
+public class RateLimitedException extends BusinessException {
+  public RateLimitedException() {
+    super("RATE_LIMITED", "Too many requests", HttpStatus.TOO_MANY_REQUESTS);
+  }
+}
@@ -0,0 +1,90 @@
+package ru.mephi.commonlib.support;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size Bloom filter over strings, sized for {@code expectedInsertions} at a target false
+ * positive probability. {@link #mightContain} never answers {@code false} for a string that was
+ * {@link #put}; it answers {@code true} for a string never put with roughly that probability once
+ * the filter holds {@code expectedInsertions} strings, and more often past that.
+ *
+ * <p>Lock-free: bits are set with CAS on an {@link AtomicLongArray}, so puts and lookups may run
+ * concurrently from any thread.
+ */
+public final class BloomFilter {
+  private final AtomicLongArray words;
+  private final long bits;
+  private final int hashes;
+  private final LongAdder bitsSet = new LongAdder();
+
+  public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+    if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1)
+      throw new IllegalArgumentException();
+    double ln2 = Math.log(2);
+    long m = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (ln2 * ln2));
+    int words = Math.toIntExact(Math.max(1, (m + 63) / 64));
+    this.words = new AtomicLongArray(words);
+    this.bits = words * 64L;
+    this.hashes = Math.max(1, (int) Math.round((double) bits / expectedInsertions * ln2));
+  }
+
+  public void put(String value) {
+    long h1 = hash(value);
+    long h2 = mix(h1 + 0x9E3779B97F4A7C15L) | 1;
+    for (int i = 0; i < hashes; i++) {
+      long bit = Math.floorMod(h1 + i * h2, bits);
+      int word = (int) (bit >>> 6);
+      long mask = 1L << bit;
+      long old;
+      do {
+        old = words.get(word);
+        if ((old & mask) != 0) break;
+      } while (!words.compareAndSet(word, old, old | mask));
+      if ((old & mask) == 0) bitsSet.increment();
+    }
+  }
+
+  public boolean mightContain(String value) {
+    long h1 = hash(value);
+    long h2 = mix(h1 + 0x9E3779B97F4A7C15L) | 1;
+    for (int i = 0; i < hashes; i++) {
+      long bit = Math.floorMod(h1 + i * h2, bits);
+      if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+    }
+    return true;
+  }
+
+  /** Probability that a string never put is reported as present, given the bits set so far. */
+  public double expectedFalsePositiveRate() {
+    return Math.pow((double) bitsSet.sum() / bits, hashes);
+  }
+
+  public long bitSize() {
+    return bits;
+  }
+
+  public int hashCount() {
+    return hashes;
+  }
+
+  /** 64-bit FNV-1a over the UTF-8 bytes, finished with the MurmurHash3 mixer. */
+  private static long hash(String value) {
+    long h = 0xcbf29ce484222325L;
+    for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+      h ^= b & 0xff;
+      h *= 0x100000001b3L;
+    }
+    return mix(h);
+  }
+
+  private static long mix(long h) {
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
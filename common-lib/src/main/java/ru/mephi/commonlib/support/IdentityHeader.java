@@ -0,0 +1,137 @@
+package ru.mephi.commonlib.support;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Caller identity as verified by the gateway, forwarded to the services in the {@value #HEADER}
+ * header so they need not verify the bearer token again. The value is the subject, {@code uid},
+ * role, expiry and a SHA-256 of the bearer token joined by newlines, base64url-encoded, and followed
+ * by an HMAC-SHA256 of that text under a secret shared by the gateway and the services only.
+ * Checking it costs a hash and a MAC over a few dozen bytes, against parsing the JWT's JSON and
+ * validating its claims.
+ *
+ * <p>The token hash binds the header to the request it was signed for: a captured header is of no
+ * use without the token it came with.
+ *
+ * <p>Anyone holding the secret can mint identities, so it must differ from the JWT secret that
+ * booking-api signs user tokens with.
+ *
+ * <p>Each MAC is computed on a clone of one keyed prototype. A per-thread instance would be
+ * rebuilt on every request once requests run on virtual threads, which do not outlive them.
+ */
+public final class IdentityHeader {
+  public static final String HEADER = "X-Identity";
+
+  private static final String ALGORITHM = "HmacSHA256";
+  private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+  private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+  private final SecretKeySpec key;
+  private final Mac prototype;
+  private final boolean cloneable;
+  private final Clock clock;
+
+  public IdentityHeader(String secret) {
+    this(secret, Clock.systemUTC());
+  }
+
+  IdentityHeader(String secret, Clock clock) {
+    this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+    this.prototype = newMac();
+    this.cloneable = isCloneable(prototype);
+    this.clock = clock;
+  }
+
+  /** Signs {@code identity} for requests carrying {@code token} as their bearer token. */
+  public String sign(Identity identity, String token) {
+    String payload =
+        String.join(
+            "\n",
+            identity.subject(),
+            identity.uid() == null ? "" : identity.uid().toString(),
+            identity.role(),
+            Long.toString(identity.expiresAt().getEpochSecond()),
+            hash(token));
+    byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+    return ENCODER.encodeToString(bytes) + "." + ENCODER.encodeToString(mac(bytes));
+  }
+
+  /**
+   * The identity in {@code value}; empty when it is missing, malformed, forged, expired or was
+   * signed for another bearer {@code token}.
+   */
+  public Optional<Identity> verify(String value, String token) {
+    if (value == null || token == null) return Optional.empty();
+    int dot = value.indexOf('.');
+    if (dot < 0) return Optional.empty();
+    byte[] payload;
+    byte[] signature;
+    try {
+      payload = DECODER.decode(value.substring(0, dot));
+      signature = DECODER.decode(value.substring(dot + 1));
+    } catch (IllegalArgumentException e) {
+      return Optional.empty();
+    }
+    if (!MessageDigest.isEqual(mac(payload), signature)) return Optional.empty();
+
+    String[] fields = new String(payload, StandardCharsets.UTF_8).split("\n", -1);
+    if (fields.length != 5) return Optional.empty();
+    byte[] bound = fields[4].getBytes(StandardCharsets.US_ASCII);
+    if (!MessageDigest.isEqual(hash(token).getBytes(StandardCharsets.US_ASCII), bound))
+      return Optional.empty();
+    Instant expiresAt = Instant.ofEpochSecond(Long.parseLong(fields[3]));
+    if (!clock.instant().isBefore(expiresAt)) return Optional.empty();
+    Long uid = fields[1].isEmpty() ? null : Long.valueOf(fields[1]);
+    return Optional.of(new Identity(fields[0], uid, fields[2], expiresAt));
+  }
+
+  private static String hash(String token) {
+    try {
+      MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+      return ENCODER.encodeToString(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** The prototype is never updated, so concurrent clones of it only read its keyed state. */
+  private byte[] mac(byte[] payload) {
+    try {
+      Mac mac = cloneable ? (Mac) prototype.clone() : newMac();
+      return mac.doFinal(payload);
+    } catch (CloneNotSupportedException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private Mac newMac() {
+    try {
+      Mac mac = Mac.getInstance(ALGORITHM);
+      mac.init(key);
+      return mac;
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** Providers may refuse to clone; the JDK's own HmacSHA256 does not. */
+  private static boolean isCloneable(Mac mac) {
+    try {
+      mac.clone();
+      return true;
+    } catch (CloneNotSupportedException e) {
+      return false;
+    }
+  }
+
+  /** {@code uid} is null for tokens issued before booking-api added the claim. */
+  public record Identity(String subject, Long uid, String role, Instant expiresAt) {}
+}
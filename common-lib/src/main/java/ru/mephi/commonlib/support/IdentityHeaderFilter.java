@@ -0,0 +1,76 @@
+package ru.mephi.commonlib.support;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextHolderStrategy;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.web.BearerTokenResolver;
+import org.springframework.security.oauth2.server.resource.web.DefaultBearerTokenResolver;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Authenticates a request from the {@link IdentityHeader} the gateway forwarded, so the bearer
+ * token is not verified a second time. The identity is turned into a {@link Jwt} carrying the
+ * original token value and the {@code sub}, {@code uid}, {@code role} and {@code exp} claims, and
+ * handed to the service's own JWT converter, so controllers see the same principal either way.
+ *
+ * <p>A request without a valid header, or whose header was signed for another bearer token, is
+ * left to the bearer token as before. Register it before {@code BearerTokenAuthenticationFilter}
+ * together with {@link #bearerTokenResolver()}, which stops that filter from verifying the token
+ * again for requests this one has authenticated.
+ */
+public class IdentityHeaderFilter extends OncePerRequestFilter {
+  private static final String AUTHENTICATED = IdentityHeaderFilter.class.getName() + ".AUTHENTICATED";
+
+  private final IdentityHeader identities;
+  private final Converter<Jwt, ? extends AbstractAuthenticationToken> converter;
+  private final SecurityContextHolderStrategy contexts =
+      SecurityContextHolder.getContextHolderStrategy();
+
+  public IdentityHeaderFilter(
+      IdentityHeader identities, Converter<Jwt, ? extends AbstractAuthenticationToken> converter) {
+    this.identities = identities;
+    this.converter = converter;
+  }
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    String bearer = request.getHeader(HttpHeaders.AUTHORIZATION);
+    String token = bearer != null && bearer.startsWith("Bearer ") ? bearer.substring(7) : null;
+    var identity = identities.verify(request.getHeader(IdentityHeader.HEADER), token);
+    if (identity.isPresent()) {
+      SecurityContext context = contexts.createEmptyContext();
+      context.setAuthentication(converter.convert(jwt(token, identity.get())));
+      contexts.setContext(context);
+      request.setAttribute(AUTHENTICATED, Boolean.TRUE);
+    }
+    filterChain.doFilter(request, response);
+  }
+
+  /** The default resolver, except that it finds no token on requests authenticated here. */
+  public static BearerTokenResolver bearerTokenResolver() {
+    BearerTokenResolver defaults = new DefaultBearerTokenResolver();
+    return request -> request.getAttribute(AUTHENTICATED) != null ? null : defaults.resolve(request);
+  }
+
+  private static Jwt jwt(String token, IdentityHeader.Identity identity) {
+    Map<String, Object> claims = new HashMap<>();
+    claims.put("sub", identity.subject());
+    claims.put("role", identity.role());
+    claims.put("exp", identity.expiresAt());
+    if (identity.uid() != null) claims.put("uid", identity.uid());
+    return new Jwt(token, null, identity.expiresAt(), Map.of("alg", "HS256"), claims);
+  }
+}
@@ -0,0 +1,111 @@
+package ru.mephi.commonlib.support;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Fast path for {@code X-Request-Id} idempotency checks: a {@link BloomFilter} of the request ids
+ * already stored, so the lookup of an id that is certainly new can be skipped.
+ *
+ * <p>The filter may miss ids stored by other replicas or written while it was being rebuilt, so it
+ * only saves work; the unique constraint on the request id stays the guard against duplicates, and
+ * callers fall back to the lookup when their insert trips over it. Until the first {@link
+ * #rebuild} every id is treated as possibly seen.
+ */
+public final class SeenRequestIds {
+  private final long minExpected;
+  private final double falsePositiveRate;
+
+  private volatile BloomFilter current;
+  private volatile BloomFilter next;
+
+  private final LongAdder skipped = new LongAdder();
+  private final LongAdder probed = new LongAdder();
+  private final LongAdder falsePositives = new LongAdder();
+  private volatile long skippedAtRebuild;
+  private volatile long falsePositivesAtRebuild;
+
+  public SeenRequestIds(long minExpected, double falsePositiveRate) {
+    this.minExpected = minExpected;
+    this.falsePositiveRate = falsePositiveRate;
+  }
+
+  /**
+   * Looks {@code requestId} up through {@code probe} unless the filter says it is new, in which
+   * case the answer is empty without calling {@code probe}.
+   */
+  public <T> Optional<T> lookup(String requestId, Function<String, Optional<T>> probe) {
+    BloomFilter filter = current;
+    if (filter != null && !filter.mightContain(requestId)) {
+      skipped.increment();
+      return Optional.empty();
+    }
+    probed.increment();
+    Optional<T> found = probe.apply(requestId);
+    if (filter != null && found.isEmpty()) falsePositives.increment();
+    return found;
+  }
+
+  /** Call before storing {@code requestId}, so a concurrent rebuild cannot drop it. */
+  public void record(String requestId) {
+    BloomFilter filter = current;
+    if (filter != null) filter.put(requestId);
+    BloomFilter building = next;
+    if (building != null) building.put(requestId);
+  }
+
+  /**
+   * Replaces the filter with one built from {@code storedIds}, sized for twice their number (and
+   * at least {@code minExpected}) so it stays near its target rate until the next rebuild.
+   */
+  public synchronized void rebuild(long count, Supplier<Stream<String>> storedIds) {
+    BloomFilter fresh = new BloomFilter(Math.max(minExpected, 2 * count), falsePositiveRate);
+    next = fresh;
+    try (Stream<String> ids = storedIds.get()) {
+      ids.forEach(fresh::put);
+      current = fresh;
+      skippedAtRebuild = skipped.sum();
+      falsePositivesAtRebuild = falsePositives.sum();
+    } finally {
+      next = null;
+    }
+  }
+
+  public boolean isReady() {
+    return current != null;
+  }
+
+  /** Lookups skipped because the id was certainly new. */
+  public long skipped() {
+    return skipped.sum();
+  }
+
+  /** Lookups that went to the store. */
+  public long probed() {
+    return probed.sum();
+  }
+
+  /** Lookups the filter let through that found nothing. */
+  public long falsePositives() {
+    return falsePositives.sum();
+  }
+
+  /**
+   * Share of new ids the filter could not rule out since the last rebuild: false positives over
+   * all lookups of ids that turned out to be new.
+   */
+  public double observedFalsePositiveRate() {
+    long fp = falsePositives.sum() - falsePositivesAtRebuild;
+    long negatives = fp + skipped.sum() - skippedAtRebuild;
+    return negatives == 0 ? 0 : (double) fp / negatives;
+  }
+
+  /** What the filter's fill predicts {@link #observedFalsePositiveRate} to be. */
+  public double expectedFalsePositiveRate() {
+    BloomFilter filter = current;
+    return filter == null ? 1 : filter.expectedFalsePositiveRate();
+  }
+}
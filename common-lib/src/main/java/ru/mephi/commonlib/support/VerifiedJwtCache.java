@@ -0,0 +1,124 @@
+package ru.mephi.commonlib.support;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+
+/**
+ * Bearer tokens whose signature and claims have already been verified, so a client sending the same
+ * token on every request is verified once. Bounded LRU of {@code maxEntries}, keyed by the SHA-256
+ * of the token rather than the token itself. An entry is dropped when read at or after the token's
+ * {@code exp}, and after {@code maxTtl} at the latest; a token without {@code exp} is cached for
+ * {@code maxTtl}. Only successful decodes are cached: a rejected token goes to the delegate decoder
+ * every time.
+ *
+ * <p>{@link #caching(JwtDecoder)} and {@link #caching(ReactiveJwtDecoder)} put the cache in front of
+ * a servlet or reactive decoder. Hit and miss counts are exposed for the caller to publish.
+ */
+public final class VerifiedJwtCache {
+  private final long maxTtlMillis;
+  private final Clock clock;
+  private final Map<String, Entry> entries;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public VerifiedJwtCache(int maxEntries, Duration maxTtl) {
+    this(maxEntries, maxTtl, Clock.systemUTC());
+  }
+
+  VerifiedJwtCache(int maxEntries, Duration maxTtl, Clock clock) {
+    this.maxTtlMillis = maxTtl.toMillis();
+    this.clock = clock;
+    this.entries =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxEntries;
+          }
+        };
+  }
+
+  public JwtDecoder caching(JwtDecoder delegate) {
+    return token -> {
+      String key = key(token);
+      Jwt jwt = get(key);
+      if (jwt != null) return jwt;
+      jwt = delegate.decode(token);
+      put(key, jwt);
+      return jwt;
+    };
+  }
+
+  public ReactiveJwtDecoder caching(ReactiveJwtDecoder delegate) {
+    return token ->
+        Mono.defer(
+            () -> {
+              String key = key(token);
+              Jwt jwt = get(key);
+              if (jwt != null) return Mono.just(jwt);
+              return delegate.decode(token).doOnNext(decoded -> put(key, decoded));
+            });
+  }
+
+  public long hits() {
+    return hits.sum();
+  }
+
+  public long misses() {
+    return misses.sum();
+  }
+
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  private Jwt get(String key) {
+    Entry e;
+    synchronized (entries) {
+      e = entries.get(key);
+      if (e != null && clock.millis() >= e.expiresAt()) {
+        entries.remove(key);
+        e = null;
+      }
+    }
+    (e == null ? misses : hits).increment();
+    return e == null ? null : e.jwt();
+  }
+
+  private void put(String key, Jwt jwt) {
+    long now = clock.millis();
+    long expiresAt = now + maxTtlMillis;
+    Instant exp = jwt.getExpiresAt();
+    if (exp != null) expiresAt = Math.min(expiresAt, exp.toEpochMilli());
+    if (expiresAt <= now) return;
+    synchronized (entries) {
+      entries.put(key, new Entry(jwt, expiresAt));
+    }
+  }
+
+  private static String key(String token) {
+    try {
+      byte[] digest =
+          MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+      return Base64.getEncoder().encodeToString(digest);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private record Entry(Jwt jwt, long expiresAt) {}
+}
@@ -0,0 +1,55 @@
+package ru.mephi.commonlib.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void neverForgetsWhatWasPut() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        String[] ids = new String[10_000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = UUID.randomUUID().toString();
+            filter.put(ids[i]);
+        }
+
+        for (String id : ids) {
+            assertTrue(filter.mightContain(id));
+        }
+    }
+
+    @Test
+    void falsePositiveRate_staysNearTarget_atCapacity() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("stored-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("new-" + i)) falsePositives++;
+        }
+        double observed = falsePositives / 100_000.0;
+        assertTrue(observed < 0.02, "observed " + observed);
+        assertEquals(0.01, filter.expectedFalsePositiveRate(), 0.005);
+    }
+
+    @Test
+    void sizesForTarget() {
+        BloomFilter filter = new BloomFilter(1_000_000, 0.01);
+
+        // about 9.6 bits and 7 hashes per element
+        assertEquals(9_585_088, filter.bitSize(), 64);
+        assertEquals(7, filter.hashCount());
+    }
+
+    @Test
+    void rejectsInvalidSizing() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1));
+    }
+}
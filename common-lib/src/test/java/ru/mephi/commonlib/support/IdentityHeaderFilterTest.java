@@ -0,0 +1,95 @@
+package ru.mephi.commonlib.support;
+
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.web.BearerTokenResolver;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdentityHeaderFilterTest {
+
+    private final IdentityHeader identities = new IdentityHeader("identity-secret-identity-secret-identity");
+    private final IdentityHeaderFilter filter = new IdentityHeaderFilter(identities,
+            jwt -> new JwtAuthenticationToken(jwt, List.of(new SimpleGrantedAuthority(jwt.getClaimAsString("role")))));
+    private final BearerTokenResolver resolver = IdentityHeaderFilter.bearerTokenResolver();
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private MockHttpServletRequest request(String identity) {
+        return request(identity, "user-token");
+    }
+
+    private MockHttpServletRequest request(String identity, String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/bookings");
+        request.addHeader("Authorization", "Bearer " + token);
+        if (identity != null) request.addHeader(IdentityHeader.HEADER, identity);
+        return request;
+    }
+
+    /** Runs the filter and returns the authentication the rest of the chain saw. */
+    private Authentication filter(MockHttpServletRequest request) throws Exception {
+        AtomicReference<Authentication> seen = new AtomicReference<>();
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest req, ServletResponse res) {
+                seen.set(SecurityContextHolder.getContext().getAuthentication());
+            }
+        });
+        return seen.get();
+    }
+
+    @Test
+    void validHeader_authenticatesWithoutTheBearerToken() throws Exception {
+        Instant exp = Instant.now().plusSeconds(60);
+        MockHttpServletRequest request = request(
+                identities.sign(new IdentityHeader.Identity("alice", 42L, "ROLE_ADMIN", exp), "user-token"));
+
+        Authentication auth = filter(request);
+
+        Jwt jwt = ((JwtAuthenticationToken) auth).getToken();
+        assertEquals("user-token", jwt.getTokenValue());
+        assertEquals("alice", jwt.getSubject());
+        assertEquals(42L, ((Number) jwt.getClaims().get("uid")).longValue());
+        assertEquals(exp.getEpochSecond(), jwt.getExpiresAt().getEpochSecond());
+        assertEquals(List.of(new SimpleGrantedAuthority("ROLE_ADMIN")), List.copyOf(auth.getAuthorities()));
+        assertNull(resolver.resolve(request));
+    }
+
+    @Test
+    void missingOrInvalidHeader_leavesRequestToBearerToken() throws Exception {
+        MockHttpServletRequest plain = request(null);
+        MockHttpServletRequest forged = request("Zm9yZ2Vk.Zm9yZ2Vk");
+
+        assertNull(filter(plain));
+        assertNull(filter(forged));
+        assertEquals("user-token", resolver.resolve(plain));
+        assertEquals("user-token", resolver.resolve(forged));
+    }
+
+    @Test
+    void headerReplayedWithAnotherBearer_isIgnored() throws Exception {
+        String captured = identities.sign(
+                new IdentityHeader.Identity("alice", 42L, "ROLE_ADMIN", Instant.now().plusSeconds(60)), "user-token");
+        MockHttpServletRequest replayed = request(captured, "x");
+
+        assertNull(filter(replayed));
+        assertEquals("x", resolver.resolve(replayed));
+    }
+}
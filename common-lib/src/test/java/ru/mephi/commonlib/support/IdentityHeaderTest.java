@@ -0,0 +1,98 @@
+package ru.mephi.commonlib.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdentityHeaderTest {
+
+    private static final String SECRET = "identity-secret-identity-secret-identity";
+    private static final Instant NOW = Instant.parse("2025-10-01T00:00:00Z");
+
+    private final IdentityHeader identities = new IdentityHeader(SECRET, Clock.fixed(NOW, ZoneOffset.UTC));
+
+    private static final String TOKEN = "user-token";
+
+    private static IdentityHeader.Identity alice(Long uid, Instant expiresAt) {
+        return new IdentityHeader.Identity("alice", uid, "ROLE_USER", expiresAt);
+    }
+
+    @Test
+    void verifiesWhatItSigned() {
+        var identity = alice(42L, NOW.plusSeconds(60));
+
+        assertEquals(Optional.of(identity), identities.verify(identities.sign(identity, TOKEN), TOKEN));
+    }
+
+    @Test
+    void keepsMissingUid() {
+        var identity = alice(null, NOW.plusSeconds(60));
+
+        assertEquals(Optional.of(identity), identities.verify(identities.sign(identity, TOKEN), TOKEN));
+    }
+
+    @Test
+    void rejectsExpired() {
+        String value = identities.sign(alice(42L, NOW), TOKEN);
+
+        assertEquals(Optional.empty(), identities.verify(value, TOKEN));
+    }
+
+    @Test
+    void rejectsOtherSecret() {
+        String value = new IdentityHeader("some-other-secret-some-other-secret").sign(alice(42L, NOW.plusSeconds(60)), TOKEN);
+
+        assertEquals(Optional.empty(), identities.verify(value, TOKEN));
+    }
+
+    @Test
+    void rejectsTamperedPayload() {
+        String value = identities.sign(alice(42L, NOW.plusSeconds(60)), TOKEN);
+        String forged = identities.sign(new IdentityHeader.Identity("alice", 42L, "ROLE_ADMIN", NOW.plusSeconds(60)), TOKEN);
+        String spliced = forged.substring(0, forged.indexOf('.')) + value.substring(value.indexOf('.'));
+
+        assertEquals(Optional.empty(), identities.verify(spliced, TOKEN));
+    }
+
+    @Test
+    void rejectsOtherToken() {
+        String value = identities.sign(alice(42L, NOW.plusSeconds(60)), TOKEN);
+
+        assertEquals(Optional.empty(), identities.verify(value, "x"));
+        assertEquals(Optional.empty(), identities.verify(value, null));
+    }
+
+    @Test
+    void rejectsGarbage() {
+        assertEquals(Optional.empty(), identities.verify(null, TOKEN));
+        assertEquals(Optional.empty(), identities.verify("no-dot", TOKEN));
+        assertEquals(Optional.empty(), identities.verify("!!!.???", TOKEN));
+        assertEquals(Optional.empty(), identities.verify("", TOKEN));
+    }
+
+    @Test
+    void verifiesConcurrentlyFromManyThreads() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Boolean>> tasks = new ArrayList<>();
+            for (long uid = 0; uid < 200; uid++) {
+                var identity = alice(uid, NOW.plusSeconds(60));
+                tasks.add(() -> identities.verify(identities.sign(identity, TOKEN), TOKEN).equals(Optional.of(identity)));
+            }
+            for (Future<Boolean> ok : pool.invokeAll(tasks)) assertTrue(ok.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
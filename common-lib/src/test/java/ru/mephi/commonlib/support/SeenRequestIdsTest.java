@@ -0,0 +1,91 @@
+package ru.mephi.commonlib.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeenRequestIdsTest {
+
+    private final Map<String, String> store = new HashMap<>();
+    private final AtomicInteger probes = new AtomicInteger();
+    private final Function<String, Optional<String>> probe = id -> {
+        probes.incrementAndGet();
+        return Optional.ofNullable(store.get(id));
+    };
+
+    private void rebuild(SeenRequestIds seen) {
+        seen.rebuild(store.size(), () -> store.keySet().stream());
+    }
+
+    @Test
+    void beforeFirstRebuild_everyIdIsLookedUp() {
+        SeenRequestIds seen = new SeenRequestIds(1000, 0.01);
+
+        assertEquals(Optional.empty(), seen.lookup("new", probe));
+
+        assertFalse(seen.isReady());
+        assertEquals(1, probes.get());
+    }
+
+    @Test
+    void newIds_skipTheLookup_storedOnesDoNot() {
+        store.put("stored", "booking-1");
+        SeenRequestIds seen = new SeenRequestIds(1000, 0.01);
+        rebuild(seen);
+
+        assertEquals(Optional.of("booking-1"), seen.lookup("stored", probe));
+        assertEquals(Optional.empty(), seen.lookup("brand-new", probe));
+
+        assertEquals(1, probes.get());
+        assertEquals(1, seen.skipped());
+    }
+
+    @Test
+    void recordedIds_areLookedUpAgain() {
+        SeenRequestIds seen = new SeenRequestIds(1000, 0.01);
+        rebuild(seen);
+
+        seen.record("r-1");
+        store.put("r-1", "booking-1");
+
+        assertEquals(Optional.of("booking-1"), seen.lookup("r-1", probe));
+    }
+
+    @Test
+    void recordDuringRebuild_landsInTheNewFilter() {
+        SeenRequestIds seen = new SeenRequestIds(1000, 0.01);
+        rebuild(seen);
+
+        seen.rebuild(0, () -> {
+            seen.record("racing");
+            return Stream.empty();
+        });
+
+        store.put("racing", "booking-2");
+        assertEquals(Optional.of("booking-2"), seen.lookup("racing", probe));
+    }
+
+    @Test
+    void observedFalsePositiveRate_countsLookupsThatFoundNothing() {
+        SeenRequestIds seen = new SeenRequestIds(1000, 0.01);
+        rebuild(seen);
+        seen.record("abandoned");
+
+        seen.lookup("abandoned", probe);
+        seen.lookup("new-1", probe);
+        seen.lookup("new-2", probe);
+        seen.lookup("new-3", probe);
+
+        assertEquals(1, seen.falsePositives());
+        assertEquals(0.25, seen.observedFalsePositiveRate(), 1e-9);
+        rebuild(seen);
+        assertEquals(0, seen.observedFalsePositiveRate());
+    }
+}
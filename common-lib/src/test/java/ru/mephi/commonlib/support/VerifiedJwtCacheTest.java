@@ -0,0 +1,146 @@
+package ru.mephi.commonlib.support;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerifiedJwtCacheTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-10-01T00:00:00Z"));
+    private final AtomicInteger decodes = new AtomicInteger();
+
+    /** Accepts any token but "bad"; the token expires at the second count after the dash. */
+    private final JwtDecoder delegate = token -> {
+        decodes.incrementAndGet();
+        if (token.equals("bad")) throw new BadJwtException("bad signature");
+        long ttl = Long.parseLong(token.substring(token.indexOf('-') + 1));
+        return Jwt.withTokenValue(token)
+                .header("alg", "HS256")
+                .subject(token)
+                .issuedAt(clock.instant())
+                .expiresAt(clock.instant().plusSeconds(ttl))
+                .build();
+    };
+
+    @Test
+    void verifiesEachTokenOnce_andCountsHitsAndMisses() {
+        VerifiedJwtCache cache = new VerifiedJwtCache(10, Duration.ofMinutes(5), clock);
+        JwtDecoder decoder = cache.caching(delegate);
+
+        Jwt first = decoder.decode("a-600");
+        assertSame(first, decoder.decode("a-600"));
+        decoder.decode("b-600");
+
+        assertEquals(2, decodes.get());
+        assertEquals(1, cache.hits());
+        assertEquals(2, cache.misses());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void entryExpiresWithToken() {
+        VerifiedJwtCache cache = new VerifiedJwtCache(10, Duration.ofMinutes(5), clock);
+        JwtDecoder decoder = cache.caching(delegate);
+        decoder.decode("a-60");
+
+        clock.advance(Duration.ofSeconds(59));
+        decoder.decode("a-60");
+        assertEquals(1, decodes.get());
+
+        clock.advance(Duration.ofSeconds(1));
+        decoder.decode("a-60");
+        assertEquals(2, decodes.get());
+    }
+
+    @Test
+    void entryExpiresAfterMaxTtl_evenIfTokenLivesLonger() {
+        VerifiedJwtCache cache = new VerifiedJwtCache(10, Duration.ofMinutes(5), clock);
+        JwtDecoder decoder = cache.caching(delegate);
+        decoder.decode("a-3600");
+
+        clock.advance(Duration.ofMinutes(5));
+        decoder.decode("a-3600");
+
+        assertEquals(2, decodes.get());
+    }
+
+    @Test
+    void rejectedTokens_areNotCached() {
+        VerifiedJwtCache cache = new VerifiedJwtCache(10, Duration.ofMinutes(5), clock);
+        JwtDecoder decoder = cache.caching(delegate);
+
+        assertThrows(BadJwtException.class, () -> decoder.decode("bad"));
+        assertThrows(BadJwtException.class, () -> decoder.decode("bad"));
+
+        assertEquals(2, decodes.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed_beyondMaxEntries() {
+        VerifiedJwtCache cache = new VerifiedJwtCache(2, Duration.ofMinutes(5), clock);
+        JwtDecoder decoder = cache.caching(delegate);
+        decoder.decode("a-600");
+        decoder.decode("b-600");
+        decoder.decode("a-600");
+        decoder.decode("c-600");
+
+        assertEquals(2, cache.size());
+        decoder.decode("a-600");
+        assertEquals(3, decodes.get());
+        decoder.decode("b-600");
+        assertEquals(4, decodes.get());
+    }
+
+    @Test
+    void reactiveDecoder_sharesTheCache() {
+        VerifiedJwtCache cache = new VerifiedJwtCache(10, Duration.ofMinutes(5), clock);
+        ReactiveJwtDecoder decoder = cache.caching((ReactiveJwtDecoder) token -> Mono.fromCallable(() -> delegate.decode(token)));
+
+        Jwt first = decoder.decode("a-600").block();
+        assertSame(first, decoder.decode("a-600").block());
+        assertThrows(BadJwtException.class, () -> decoder.decode("bad").block());
+
+        assertEquals(2, decodes.get());
+        assertEquals(1, cache.hits());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration d) {
+            now = now.plus(d);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
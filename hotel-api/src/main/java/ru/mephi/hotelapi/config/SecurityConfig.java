@@ -1,6 +1,13 @@
 package ru.mephi.hotelapi.config;
 
+import ru.mephi.commonlib.support.IdentityHeader;
+import ru.mephi.commonlib.support.IdentityHeaderFilter;
+import ru.mephi.commonlib.support.VerifiedJwtCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
@@ -14,30 +21,69 @@ import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.web.authentication.BearerTokenAuthenticationFilter;
 import org.springframework.security.web.SecurityFilterChain;
 
 @Configuration
 @EnableMethodSecurity
 public class SecurityConfig {
+  /**
+   * With {@code auth.identity.enabled} a request carrying the gateway's signed identity header is
+   * authenticated from it, and its bearer token is not verified again; see {@link
+   * IdentityHeaderFilter}.
+   */
   @Bean
-  SecurityFilterChain api(HttpSecurity http) throws Exception {
+  SecurityFilterChain api(
+      HttpSecurity http,
+      @Value("${auth.identity.enabled:false}") boolean trustGateway,
+      @Value("${auth.identity.secret}") String identitySecret)
+      throws Exception {
     http.csrf(csrf -> csrf.disable());
     http.authorizeHttpRequests(
         auth ->
-            auth.requestMatchers("/actuator/**", "/v3/api-docs/**", "/swagger-ui/**")
+            auth.requestMatchers("/actuator/holdindex")
+                .hasRole("ADMIN")
+                .requestMatchers("/actuator/**", "/v3/api-docs/**", "/swagger-ui/**")
                 .permitAll()
                 .requestMatchers("/internal/**")
                 .hasRole("ADMIN")
                 .anyRequest()
                 .authenticated());
-    http.oauth2ResourceServer(oauth -> oauth.jwt(jwt -> jwt.jwtAuthenticationConverter(jwtAuthenticationConverter())));
+    http.oauth2ResourceServer(
+        oauth -> {
+          oauth.jwt(jwt -> jwt.jwtAuthenticationConverter(jwtAuthenticationConverter()));
+          if (trustGateway) oauth.bearerTokenResolver(IdentityHeaderFilter.bearerTokenResolver());
+        });
+    if (trustGateway) {
+      http.addFilterBefore(
+          new IdentityHeaderFilter(new IdentityHeader(identitySecret), jwtAuthenticationConverter()),
+          BearerTokenAuthenticationFilter.class);
+    }
     return http.build();
   }
 
+  /**
+   * With {@code auth.jwt.cache.enabled} each distinct bearer token is verified once per {@code
+   * max-ttl-seconds} (or until its {@code exp}); see {@link VerifiedJwtCache}. Off by default: the
+   * gateway already caches, and this is the check that does not trust it.
+   */
   @Bean
-  JwtDecoder jwtDecoder(@Value("${auth.jwt.secret}") String secret) {
+  JwtDecoder jwtDecoder(
+      @Value("${auth.jwt.secret}") String secret,
+      @Value("${auth.jwt.cache.enabled:false}") boolean cacheEnabled,
+      @Value("${auth.jwt.cache.max-entries:10000}") int cacheMaxEntries,
+      @Value("${auth.jwt.cache.max-ttl-seconds:300}") long cacheMaxTtlSeconds,
+      MeterRegistry meters) {
     SecretKey key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
-    return NimbusJwtDecoder.withSecretKey(key).macAlgorithm(MacAlgorithm.HS256).build();
+    JwtDecoder decoder = NimbusJwtDecoder.withSecretKey(key).macAlgorithm(MacAlgorithm.HS256).build();
+    if (!cacheEnabled) return decoder;
+
+    VerifiedJwtCache cache =
+        new VerifiedJwtCache(cacheMaxEntries, Duration.ofSeconds(cacheMaxTtlSeconds));
+    FunctionCounter.builder("auth.jwt.cache.hits", cache, VerifiedJwtCache::hits).register(meters);
+    FunctionCounter.builder("auth.jwt.cache.misses", cache, VerifiedJwtCache::misses).register(meters);
+    Gauge.builder("auth.jwt.cache.size", cache, VerifiedJwtCache::size).register(meters);
+    return cache.caching(decoder);
   }
 
   @Bean
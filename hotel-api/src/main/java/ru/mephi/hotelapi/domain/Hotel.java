@@ -12,7 +12,8 @@ import lombok.*;
 @Builder
 public class Hotel {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "hotels_seq")
+  @SequenceGenerator(name = "hotels_seq", sequenceName = "hotels_seq", allocationSize = 50)
   private Long id;
 
   @Column(nullable = false, unique = true)
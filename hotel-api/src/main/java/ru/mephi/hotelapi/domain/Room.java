@@ -1,5 +1,6 @@
 package ru.mephi.hotelapi.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -12,7 +13,8 @@ import lombok.*;
 @Builder
 public class Room {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "rooms_seq")
+  @SequenceGenerator(name = "rooms_seq", sequenceName = "rooms_seq", allocationSize = 50)
   private Long id;
 
   @Column(nullable = false)
@@ -25,4 +27,8 @@ public class Room {
 
   @Column(nullable = false)
   private int timesBooked = 0;
+
+  @Version
+  @JsonIgnore
+  private Long version;
 }
@@ -1,13 +1,17 @@
 package ru.mephi.hotelapi.domain;
 
 import jakarta.persistence.*;
+import java.time.Instant;
 import java.time.LocalDate;
 import lombok.*;
 
 @Entity
 @Table(
     name = "room_holds",
-    indexes = @Index(name = "idx_room_dates", columnList = "room_id,start_date,end_date"))
+    indexes = {
+      @Index(name = "idx_room_dates", columnList = "room_id,start_date,end_date"),
+      @Index(name = "idx_hold_expiry", columnList = "expires_at")
+    })
 @Getter
 @Setter
 @NoArgsConstructor
@@ -15,7 +19,8 @@ import lombok.*;
 @Builder
 public class RoomReservation {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "room_holds_seq")
+  @SequenceGenerator(name = "room_holds_seq", sequenceName = "room_holds_seq", allocationSize = 50)
   private Long id;
 
   @Column(name = "room_id", nullable = false)
@@ -34,6 +39,10 @@ public class RoomReservation {
   @Column(nullable = false)
   private Status status;
 
+  /** Set while the hold is HELD; past this instant it is released unless committed first. */
+  @Column(name = "expires_at")
+  private Instant expiresAt;
+
   public enum Status {
     HELD,
     COMMITTED,
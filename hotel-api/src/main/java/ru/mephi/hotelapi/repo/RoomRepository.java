@@ -1,9 +1,25 @@
 package ru.mephi.hotelapi.repo;
 
 import ru.mephi.hotelapi.domain.Room;
+import jakarta.persistence.LockModeType;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 
 public interface RoomRepository extends JpaRepository<Room, Long> {
   List<Room> findByHotelId(Long hotelId);
+
+  @Query(
+      "select r from Room r where r.hotelId = :hotelId and r.available = true and not exists ("
+          + "select h.id from RoomReservation h where h.roomId = r.id and h.status <> 'RELEASED'"
+          + " and (:start <= h.endDate and :end >= h.startDate))")
+  List<Room> findFreeRooms(Long hotelId, LocalDate start, LocalDate end);
+
+  /** Locks the rooms in id order, so two batches over overlapping rooms cannot deadlock. */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select r from Room r where r.id in :ids order by r.id")
+  List<Room> lockAllById(Collection<Long> ids);
 }
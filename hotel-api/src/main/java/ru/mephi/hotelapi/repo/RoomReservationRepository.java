@@ -2,14 +2,29 @@ package ru.mephi.hotelapi.repo;
 
 import ru.mephi.hotelapi.domain.RoomReservation;
 import jakarta.persistence.LockModeType;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
 
 public interface RoomReservationRepository extends JpaRepository<RoomReservation, Long> {
   Optional<RoomReservation> findByRequestId(String requestId);
 
+  List<RoomReservation> findByStatusNot(RoomReservation.Status status);
+
+  List<RoomReservation> findByRequestIdIn(Collection<String> requestIds);
+
+  @Query("select h.requestId from RoomReservation h")
+  Stream<String> streamRequestIds();
+
+  @Query(
+      "select h from RoomReservation h where h.roomId in :roomIds and h.status <> 'RELEASED' and (:start <= h.endDate and :end >= h.startDate)")
+  List<RoomReservation> findIntersectingAny(Collection<Long> roomIds, LocalDate start, LocalDate end);
+
   @Query(
       "select h from RoomReservation h where h.roomId = :roomId and h.status <> 'RELEASED' and (:start <= h.endDate and :end >= h.startDate)")
   List<RoomReservation> findIntersecting(Long roomId, LocalDate start, LocalDate end);
@@ -23,4 +38,24 @@ public interface RoomReservationRepository extends JpaRepository<RoomReservation
   @Query(
       "update RoomReservation h set h.status = :status where h.requestId = :requestId and h.roomId = :roomId")
   int updateStatusByRequest(String requestId, Long roomId, RoomReservation.Status status);
+
+  @Query("select h from RoomReservation h where h.expiresAt is not null and h.status = 'HELD'")
+  List<RoomReservation> findExpiring();
+
+  /** Request ids of HELD holds whose deadline has passed, earliest first. */
+  @Query(
+      "select h.requestId from RoomReservation h where h.status = 'HELD' and h.expiresAt <= :now order by h.expiresAt")
+  List<String> findOverdue(Instant now, Pageable page);
+
+  /** HELD to COMMITTED, unless the hold has expired or was released meanwhile. */
+  @Modifying
+  @Query(
+      "update RoomReservation h set h.status = 'COMMITTED', h.expiresAt = null where h.requestId = :requestId and h.status = 'HELD' and h.expiresAt > :now")
+  int commitHeld(String requestId, Instant now);
+
+  /** HELD to RELEASED, only once the hold has expired and was not committed meanwhile. */
+  @Modifying
+  @Query(
+      "update RoomReservation h set h.status = 'RELEASED', h.expiresAt = null where h.requestId = :requestId and h.status = 'HELD' and h.expiresAt <= :now")
+  int expireHeld(String requestId, Instant now);
 }
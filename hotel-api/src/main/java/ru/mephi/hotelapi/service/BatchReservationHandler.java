@@ -0,0 +1,190 @@
+package ru.mephi.hotelapi.service;
+
+import ru.mephi.hotelapi.domain.Room;
+import ru.mephi.hotelapi.domain.RoomReservation;
+import ru.mephi.hotelapi.repo.RoomReservationRepository;
+import ru.mephi.hotelapi.repo.RoomRepository;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Confirms many holds in one transaction, for group bookings that would otherwise arrive as a
+ * burst of single confirms.
+ *
+ * <p>All rooms of the batch are locked up front in id order, then every item is checked against
+ * the holds already in the table and against the items before it, in (roomId, start) order. The
+ * accepted holds are written with one {@code saveAll}. Items whose request id already has a hold
+ * are answered from that hold: committed if it is COMMITTED, rejected with HOLD_EXPIRED once it
+ * was released or has lapsed, and with HOLD_NOT_COMMITTED while it is still HELD.
+ *
+ * <p>The request ids are looked up after the rooms are locked. A single confirm or pick of another
+ * room can still take one of them before the batch writes; the unique constraint then fails the
+ * write, and the batch runs once more, now seeing that hold as a replay, as {@link
+ * ReservationCoordinator} does for single confirms.
+ */
+@Service
+@RequiredArgsConstructor
+public class BatchReservationHandler {
+  private static final Comparator<Item> ROOM_ORDER =
+      Comparator.comparing(Item::roomId).thenComparing(Item::start).thenComparing(Item::requestId);
+
+  private final RoomReservationRepository reservations;
+  private final RoomRepository rooms;
+  private final RoomHoldIndex index;
+  private final LeastBookedIndex ranking;
+  private final SeenHoldRequests seenRequests;
+  private final TransactionTemplate tx;
+
+  /** Results come back in the order of {@code items}. */
+  public List<Result> confirm(Mode mode, List<Item> items) {
+    try {
+      return tx.execute(status -> attempt(mode, items));
+    } catch (DataIntegrityViolationException e) {
+      // a request id of the batch was taken after it was looked up
+      return tx.execute(status -> attempt(mode, items));
+    }
+  }
+
+  private List<Result> attempt(Mode mode, List<Item> items) {
+    Map<Long, Room> locked =
+        rooms.lockAllById(items.stream().map(Item::roomId).distinct().toList()).stream()
+            .collect(Collectors.toMap(Room::getId, Function.identity()));
+    Map<String, RoomReservation> replays =
+        reservations.findByRequestIdIn(items.stream().map(Item::requestId).toList()).stream()
+            .collect(Collectors.toMap(RoomReservation::getRequestId, Function.identity()));
+    LocalDate from = items.stream().map(Item::start).min(Comparator.naturalOrder()).orElseThrow();
+    LocalDate to = items.stream().map(Item::end).max(Comparator.naturalOrder()).orElseThrow();
+    Map<Long, List<RoomReservation>> live =
+        reservations.findIntersectingAny(locked.keySet(), from, to).stream()
+            .collect(Collectors.groupingBy(RoomReservation::getRoomId));
+
+    Instant now = Instant.now();
+    Result[] results = new Result[items.size()];
+    Map<Integer, RoomReservation> accepted = new LinkedHashMap<>();
+    Set<String> seen = new HashSet<>();
+    List<Integer> order =
+        IntStream.range(0, items.size()).boxed()
+            .sorted(Comparator.comparing(items::get, ROOM_ORDER))
+            .toList();
+    for (int i : order) {
+      Item item = items.get(i);
+      RoomReservation replay = replays.get(item.requestId());
+      if (replay != null) {
+        results[i] = replayed(item, replay, now);
+      } else if (!seen.add(item.requestId())) {
+        results[i] = Result.rejected(item, "DUPLICATE_REQUEST_ID");
+      } else if (!locked.containsKey(item.roomId())) {
+        results[i] = Result.rejected(item, "ROOM_NOT_FOUND");
+      } else if (overlaps(item, live.getOrDefault(item.roomId(), List.of()))) {
+        results[i] = Result.rejected(item, "ROOM_NOT_AVAILABLE");
+      } else {
+        RoomReservation hold =
+            RoomReservation.builder()
+                .roomId(item.roomId())
+                .requestId(item.requestId())
+                .startDate(item.start())
+                .endDate(item.end())
+                .status(RoomReservation.Status.COMMITTED)
+                .build();
+        live.computeIfAbsent(item.roomId(), id -> new ArrayList<>()).add(hold);
+        accepted.put(i, hold);
+      }
+    }
+
+    boolean rejected = Arrays.stream(results).anyMatch(r -> r != null && r.outcome() == Outcome.REJECTED);
+    if (mode == Mode.ALL_OR_NOTHING && rejected) {
+      // nothing has been written yet, so aborting is just not writing
+      accepted.keySet().forEach(i -> results[i] = Result.aborted(items.get(i)));
+      return List.of(results);
+    }
+    accepted.values().forEach(h -> seenRequests.record(h.getRequestId()));
+    reservations.saveAll(accepted.values());
+    accepted.forEach(
+        (i, hold) -> {
+          Room room = locked.get(hold.getRoomId());
+          room.setTimesBooked(room.getTimesBooked() + 1);
+          results[i] = Result.committed(hold);
+          index.onCommitted(hold);
+        });
+    accepted.values().stream()
+        .map(RoomReservation::getRoomId)
+        .distinct()
+        .map(locked::get)
+        .forEach(ranking::onSaved);
+    return List.of(results);
+  }
+
+  private static Result replayed(Item item, RoomReservation h, Instant now) {
+    return switch (h.getStatus()) {
+      case COMMITTED -> Result.committed(h);
+      case RELEASED -> Result.rejected(item, "HOLD_EXPIRED");
+      // the sweeper may not have released a lapsed hold yet
+      case HELD ->
+          h.getExpiresAt() != null && !h.getExpiresAt().isAfter(now)
+              ? Result.rejected(item, "HOLD_EXPIRED")
+              : Result.rejected(item, "HOLD_NOT_COMMITTED");
+    };
+  }
+
+  private static boolean overlaps(Item item, List<RoomReservation> holds) {
+    return holds.stream()
+        .anyMatch(h -> !item.start().isAfter(h.getEndDate()) && !item.end().isBefore(h.getStartDate()));
+  }
+
+  public enum Mode {
+    /** Commit every item or none of them. */
+    ALL_OR_NOTHING,
+    /** Commit the items that can be committed and report the rest. */
+    BEST_EFFORT
+  }
+
+  public enum Outcome {
+    COMMITTED,
+    REJECTED,
+    /** Could have been committed, but another item of an all-or-nothing batch was rejected. */
+    ABORTED
+  }
+
+  public record Item(
+      @NotNull Long roomId,
+      @NotBlank String requestId,
+      @NotNull LocalDate start,
+      @NotNull LocalDate end) {
+    @AssertTrue(message = "start must not be after end")
+    boolean isOrdered() {
+      return start == null || end == null || !start.isAfter(end);
+    }
+  }
+
+  public record Result(String requestId, Long roomId, Outcome outcome, Long holdId, String error) {
+    static Result committed(RoomReservation h) {
+      return new Result(h.getRequestId(), h.getRoomId(), Outcome.COMMITTED, h.getId(), null);
+    }
+
+    static Result rejected(Item i, String error) {
+      return new Result(i.requestId(), i.roomId(), Outcome.REJECTED, null, error);
+    }
+
+    static Result aborted(Item i) {
+      return new Result(i.requestId(), i.roomId(), Outcome.ABORTED, null, null);
+    }
+  }
+}
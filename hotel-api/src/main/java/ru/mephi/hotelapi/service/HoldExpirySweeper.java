@@ -0,0 +1,170 @@
+package ru.mephi.hotelapi.service;
+
+import ru.mephi.commonlib.support.TransactionHooks;
+import ru.mephi.hotelapi.domain.RoomReservation;
+import ru.mephi.hotelapi.repo.RoomReservationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Releases HELD holds when their {@code expires_at} passes. Every hold written by this process
+ * goes into a {@link TimerWheel} once its transaction commits, and each tick expires only the
+ * holds whose slot came up, so the cost of a sweep follows the number of expiring holds rather
+ * than the size of {@code room_holds}. On startup the wheel is refilled from the indexed {@code
+ * expires_at} column. Holds written by other instances never reach this wheel, so every {@code
+ * hotel.reservation.hold-sweep.rescan-ticks} ticks the same column is also queried for HELD holds
+ * already past their deadline, such as those of an instance that died before releasing them.
+ *
+ * <p>The expiry itself is a conditional update, so a hold committed just before its deadline is
+ * left alone. Exposes {@code hotel.holds.expired} (holds released by the sweeper), {@code
+ * hotel.holds.expiry.backlog} (holds waiting in the wheel) and the {@code hotel.holds.sweep}
+ * timer.
+ */
+@Slf4j
+@Component
+public class HoldExpirySweeper {
+  private static final int WHEEL_SLOTS = 64;
+  private static final int WHEEL_LEVELS = 4;
+  private static final int RESCAN_BATCH = 500;
+
+  private final RoomReservationRepository reservations;
+  private final RoomHoldIndex index;
+  private final TransactionTemplate tx;
+  private final boolean enabled;
+  private final long tickMs;
+  private final int rescanTicks;
+  private final Clock clock;
+  private final TimerWheel<String> wheel;
+  private int ticks;
+
+  private final Counter expired;
+  private final Timer sweeps;
+
+  @Autowired
+  public HoldExpirySweeper(
+      RoomReservationRepository reservations,
+      RoomHoldIndex index,
+      TransactionTemplate tx,
+      MeterRegistry meters,
+      @Value("${hotel.reservation.hold-sweep.enabled:true}") boolean enabled,
+      @Value("${hotel.reservation.hold-sweep.tick-ms:1000}") long tickMs,
+      @Value("${hotel.reservation.hold-sweep.rescan-ticks:60}") int rescanTicks) {
+    this(reservations, index, tx, meters, enabled, tickMs, rescanTicks, Clock.systemUTC());
+  }
+
+  HoldExpirySweeper(
+      RoomReservationRepository reservations,
+      RoomHoldIndex index,
+      TransactionTemplate tx,
+      MeterRegistry meters,
+      boolean enabled,
+      long tickMs,
+      int rescanTicks,
+      Clock clock) {
+    this.reservations = reservations;
+    this.index = index;
+    this.tx = tx;
+    this.enabled = enabled;
+    this.tickMs = tickMs;
+    this.rescanTicks = Math.max(1, rescanTicks);
+    this.clock = clock;
+    this.wheel = new TimerWheel<>(tickMs, WHEEL_SLOTS, WHEEL_LEVELS, clock.millis());
+    this.expired = meters.counter("hotel.holds.expired");
+    this.sweeps = meters.timer("hotel.holds.sweep");
+    Gauge.builder("hotel.holds.expiry.backlog", this, HoldExpirySweeper::backlog).register(meters);
+  }
+
+  /** Schedules the expiry of a HELD hold once the surrounding transaction (if any) commits. */
+  public void onHeld(RoomReservation hold) {
+    if (hold.getExpiresAt() == null) return;
+    String requestId = hold.getRequestId();
+    Instant expiresAt = hold.getExpiresAt();
+    TransactionHooks.afterCommit(() -> schedule(requestId, expiresAt));
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  void recover() {
+    if (!enabled) return;
+    List<RoomReservation> held = reservations.findExpiring();
+    held.forEach(h -> schedule(h.getRequestId(), h.getExpiresAt()));
+    if (!held.isEmpty()) log.info("Scheduled expiry of {} HELD holds", held.size());
+  }
+
+  @Scheduled(fixedDelayString = "${hotel.reservation.hold-sweep.tick-ms:1000}")
+  void tick() {
+    if (!enabled) return;
+    try {
+      Instant now = clock.instant();
+      sweep(now);
+      if (++ticks % rescanTicks == 0) rescan(now);
+    } catch (RuntimeException e) {
+      log.warn("Hold expiry sweep failed", e);
+    }
+  }
+
+  /** Releases the holds whose deadline is at or before {@code now}; returns how many it released. */
+  public int sweep(Instant now) {
+    List<String> due;
+    synchronized (this) {
+      due = wheel.advance(now.toEpochMilli());
+    }
+    if (due.isEmpty()) return 0;
+    try {
+      Integer released = sweeps.record(() -> tx.execute(s -> expire(due, now)));
+      expired.increment(released);
+      return released;
+    } catch (RuntimeException e) {
+      // put them back for the next tick rather than leave the rooms blocked until a restart
+      long retryAt = now.toEpochMilli() + tickMs;
+      synchronized (this) {
+        due.forEach(id -> wheel.schedule(id, retryAt));
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Releases up to a batch of HELD holds found past their deadline in the table, whether this
+   * instance scheduled them or not; returns how many it released.
+   */
+  public int rescan(Instant now) {
+    List<String> overdue = reservations.findOverdue(now, PageRequest.ofSize(RESCAN_BATCH));
+    if (overdue.isEmpty()) return 0;
+    Integer released = sweeps.record(() -> tx.execute(s -> expire(overdue, now)));
+    expired.increment(released);
+    return released;
+  }
+
+  public synchronized int backlog() {
+    return wheel.size();
+  }
+
+  private int expire(List<String> requestIds, Instant now) {
+    int released = 0;
+    for (String requestId : requestIds) {
+      // zero when it was committed or released meanwhile
+      if (reservations.expireHeld(requestId, now) == 0) continue;
+      index.onReleased(requestId);
+      released++;
+    }
+    return released;
+  }
+
+  private synchronized void schedule(String requestId, Instant expiresAt) {
+    wheel.schedule(requestId, expiresAt.toEpochMilli());
+  }
+}
@@ -0,0 +1,101 @@
+package ru.mephi.hotelapi.service;
+
+import ru.mephi.commonlib.support.TransactionHooks;
+import ru.mephi.hotelapi.domain.Room;
+import ru.mephi.hotelapi.repo.RoomRepository;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bookable rooms of every hotel kept in {@link RoomRanking#LEAST_BOOKED_FIRST} order, so the
+ * least booked room of a hotel is the head of a skip list rather than the result of a sort.
+ * Built from {@code rooms} on startup and updated after commits that create a room or bump its
+ * {@code timesBooked}.
+ */
+@Slf4j
+@Component
+public class LeastBookedIndex {
+  private final RoomRepository rooms;
+  private final boolean enabled;
+
+  private final Map<Long, NavigableSet<Entry>> byHotel = new ConcurrentHashMap<>();
+  private final Map<Long, Entry> byRoom = new ConcurrentHashMap<>();
+  private volatile boolean ready;
+
+  public LeastBookedIndex(
+      RoomRepository rooms, @Value("${hotel.availability.ranking.enabled:false}") boolean enabled) {
+    this.rooms = rooms;
+    this.enabled = enabled;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  void warmUp() {
+    if (enabled) rebuild();
+  }
+
+  public boolean isReady() {
+    return ready;
+  }
+
+  public synchronized void rebuild() {
+    byHotel.clear();
+    byRoom.clear();
+    List<Room> all = rooms.findAll();
+    all.forEach(this::put);
+    ready = true;
+    log.info("Least-booked index built: {} rooms across {} hotels", byRoom.size(), byHotel.size());
+  }
+
+  /**
+   * Room ids of the hotel, least booked first. Iteration is weakly consistent: rooms re-ranked
+   * during the walk may be seen at their old or new position, or twice.
+   */
+  public Iterable<Long> leastBookedRooms(Long hotelId) {
+    NavigableSet<Entry> ranked = byHotel.get(hotelId);
+    if (ranked == null) return List.of();
+    return () -> ranked.stream().map(Entry::roomId).iterator();
+  }
+
+  /** Re-ranks the room once the surrounding transaction (if any) has committed. */
+  public void onSaved(Room room) {
+    if (!enabled) return;
+    Room snapshot =
+        Room.builder()
+            .id(room.getId())
+            .hotelId(room.getHotelId())
+            .available(room.isAvailable())
+            .timesBooked(room.getTimesBooked())
+            .build();
+    TransactionHooks.afterCommit(() -> put(snapshot));
+  }
+
+  private synchronized void put(Room room) {
+    Entry previous = byRoom.get(room.getId());
+    // commits of one room are serialized, but their callbacks may run out of order
+    if (previous != null && previous.timesBooked() > room.getTimesBooked()) return;
+    if (previous != null) {
+      byRoom.remove(room.getId());
+      byHotel.get(previous.hotelId()).remove(previous);
+    }
+    if (!room.isAvailable()) return;
+    Entry entry = new Entry(room.getTimesBooked(), room.getId(), room.getHotelId());
+    byRoom.put(room.getId(), entry);
+    byHotel.computeIfAbsent(room.getHotelId(), h -> new ConcurrentSkipListSet<>()).add(entry);
+  }
+
+  record Entry(int timesBooked, Long roomId, Long hotelId) implements Comparable<Entry> {
+    @Override
+    public int compareTo(Entry o) {
+      int c = Integer.compare(timesBooked, o.timesBooked);
+      return c != 0 ? c : roomId.compareTo(o.roomId);
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package ru.mephi.hotelapi.service;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * One bit per night over a fixed window of {@code days} nights starting at {@code origin}; a set
+ * bit means the night is covered by a live hold. A range check is a masked OR over the words the
+ * range spans, i.e. at most {@code days / 64 + 1} word reads. Ranges that stick out of the window
+ * are not answered here ({@link #covers} is false) and the caller falls back to the hold ranges.
+ */
+final class OccupancyCalendar {
+  private final long originDay;
+  private final int days;
+  private final AtomicLongArray words;
+
+  OccupancyCalendar(LocalDate origin, int days) {
+    this.originDay = origin.toEpochDay();
+    this.days = days;
+    this.words = new AtomicLongArray((days + 63) >>> 6);
+  }
+
+  boolean covers(LocalDate start, LocalDate end) {
+    return offset(start) >= 0 && offset(end) < days;
+  }
+
+  /** Caller must check {@link #covers} first. */
+  boolean isFree(LocalDate start, LocalDate end) {
+    return orRange((int) offset(start), (int) offset(end)) == 0;
+  }
+
+  /** Sets the nights of [start, end] that fall into the window. */
+  void mark(LocalDate start, LocalDate end) {
+    update(start, end, true);
+  }
+
+  /** Clears the nights of [start, end] that fall into the window. */
+  void clear(LocalDate start, LocalDate end) {
+    update(start, end, false);
+  }
+
+  private long orRange(int from, int to) {
+    int first = from >>> 6;
+    int last = to >>> 6;
+    long acc = 0;
+    for (int w = first; w <= last; w++) {
+      acc |= words.get(w) & mask(w, first, last, from, to);
+    }
+    return acc;
+  }
+
+  private void update(LocalDate start, LocalDate end, boolean set) {
+    long from = Math.max(0, offset(start));
+    long to = Math.min(days - 1L, offset(end));
+    if (from > to) return;
+    int first = (int) from >>> 6;
+    int last = (int) to >>> 6;
+    for (int w = first; w <= last; w++) {
+      long m = mask(w, first, last, (int) from, (int) to);
+      if (set) words.accumulateAndGet(w, m, (a, b) -> a | b);
+      else words.accumulateAndGet(w, ~m, (a, b) -> a & b);
+    }
+  }
+
+  private static long mask(int w, int first, int last, int from, int to) {
+    long m = -1L;
+    if (w == first) m &= -1L << (from & 63);
+    if (w == last) m &= -1L >>> (63 - (to & 63));
+    return m;
+  }
+
+  private long offset(LocalDate date) {
+    return date.toEpochDay() - originDay;
+  }
+}
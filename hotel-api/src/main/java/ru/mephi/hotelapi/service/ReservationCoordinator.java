@@ -0,0 +1,113 @@
+package ru.mephi.hotelapi.service;
+
+import ru.mephi.hotelapi.domain.RoomReservation;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+/**
+ * Chooses how concurrent confirms of one room are serialized.
+ *
+ * <ul>
+ *   <li>{@code PESSIMISTIC}: {@code SELECT ... FOR UPDATE} on the intersecting holds; waiters
+ *       block inside the database while holding a connection.
+ *   <li>{@code STRIPED}: waiters queue on an in-JVM {@link RoomLockStripes} stripe and only open a
+ *       transaction once they own the room; other replicas are fenced off by the optimistic
+ *       version of the room row.
+ * </ul>
+ *
+ * A version conflict in either mode means another transaction confirmed the same room
+ * concurrently; the confirm is retried, which re-runs the availability check on fresh data. A
+ * clash on the unique request id means the request is a replay, answered with the stored hold.
+ *
+ * <p>{@link #hold} takes the same path but writes a HELD hold that expires after a TTL of {@code
+ * hotel.reservation.hold-ttl-seconds} by default, capped at {@code max-hold-ttl-seconds}.
+ */
+@Service
+public class ReservationCoordinator {
+  private final ReservationHandler handler;
+  private final RoomLockStripes stripes;
+  private final LockMode mode;
+  private final int maxAttempts;
+  private final Duration holdTtl;
+  private final Duration maxHoldTtl;
+
+  @Autowired
+  public ReservationCoordinator(
+      ReservationHandler handler,
+      RoomLockStripes stripes,
+      @Value("${hotel.reservation.lock-mode:pessimistic}") LockMode mode,
+      @Value("${hotel.reservation.max-attempts:3}") int maxAttempts,
+      @Value("${hotel.reservation.hold-ttl-seconds:900}") long holdTtlSeconds,
+      @Value("${hotel.reservation.max-hold-ttl-seconds:3600}") long maxHoldTtlSeconds) {
+    this.handler = handler;
+    this.stripes = stripes;
+    this.mode = mode;
+    this.maxAttempts = Math.max(1, maxAttempts);
+    this.holdTtl = Duration.ofSeconds(holdTtlSeconds);
+    this.maxHoldTtl = Duration.ofSeconds(maxHoldTtlSeconds);
+  }
+
+  public ReservationCoordinator(
+      ReservationHandler handler, RoomLockStripes stripes, LockMode mode, int maxAttempts) {
+    this(handler, stripes, mode, maxAttempts, 900, 3600);
+  }
+
+  public RoomReservation confirm(Long roomId, String requestId, LocalDate start, LocalDate end) {
+    return confirm(mode, roomId, requestId, start, end);
+  }
+
+  public RoomReservation confirm(
+      LockMode mode, Long roomId, String requestId, LocalDate start, LocalDate end) {
+    if (mode == LockMode.STRIPED) {
+      return stripes.withLock(
+          roomId,
+          () ->
+              withRetry(requestId, () -> handler.confirmOptimistic(roomId, requestId, start, end)));
+    }
+    return withRetry(requestId, () -> handler.confirm(roomId, requestId, start, end));
+  }
+
+  /**
+   * Holds the room until {@code ttl} (the configured default when {@code null}) runs out; the
+   * caller then commits the hold through {@link ReservationHandler#commitHold} or lets it lapse.
+   */
+  public RoomReservation hold(
+      Long roomId, String requestId, LocalDate start, LocalDate end, Duration ttl) {
+    Duration effective = ttl == null ? holdTtl : ttl.compareTo(maxHoldTtl) > 0 ? maxHoldTtl : ttl;
+    Instant expiresAt = Instant.now().plus(effective);
+    if (mode == LockMode.STRIPED) {
+      return stripes.withLock(
+          roomId,
+          () ->
+              withRetry(
+                  requestId,
+                  () -> handler.holdOptimistic(roomId, requestId, start, end, expiresAt)));
+    }
+    return withRetry(requestId, () -> handler.hold(roomId, requestId, start, end, expiresAt));
+  }
+
+  private RoomReservation withRetry(String requestId, Supplier<RoomReservation> attempt) {
+    for (int i = 1; ; i++) {
+      try {
+        return attempt.get();
+      } catch (ConcurrencyFailureException e) {
+        if (i >= maxAttempts) throw e;
+      } catch (DataIntegrityViolationException e) {
+        // the request id was taken meanwhile, or before the request id filter knew of it
+        return handler.find(requestId).orElseThrow(() -> e);
+      }
+    }
+  }
+
+  public enum LockMode {
+    PESSIMISTIC,
+    STRIPED
+  }
+}
@@ -4,7 +4,12 @@ import ru.mephi.hotelapi.domain.Room;
 import ru.mephi.hotelapi.domain.RoomReservation;
 import ru.mephi.hotelapi.repo.RoomReservationRepository;
 import ru.mephi.hotelapi.repo.RoomRepository;
+import ru.mephi.commonlib.error.exceptions.HoldExpiredException;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.Optional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -14,28 +19,108 @@ import org.springframework.transaction.annotation.Transactional;
 public class ReservationHandler {
   private final RoomReservationRepository reservations;
   private final RoomRepository rooms;
+  private final RoomHoldIndex index;
+  private final LeastBookedIndex ranking;
+  private final HoldExpirySweeper sweeper;
+  private final SeenHoldRequests seenRequests;
 
   @Transactional
   public RoomReservation confirm(Long roomId, String requestId, LocalDate start, LocalDate end) {
-    var existing = reservations.findByRequestId(requestId);
+    return hold(roomId, requestId, start, end, null);
+  }
+
+  /**
+   * Like {@link #confirm}, but when {@code expiresAt} is set the hold is written HELD and is
+   * released at that instant unless {@link #commitHold} makes it COMMITTED first.
+   */
+  @Transactional
+  public RoomReservation hold(
+      Long roomId, String requestId, LocalDate start, LocalDate end, Instant expiresAt) {
+    var existing = seenRequests.find(requestId);
     if (existing.isPresent()) return existing.get();
+    var room = rooms.findById(roomId);
     var locked = reservations.findIntersectingForUpdate(roomId, start, end);
     if (!locked.isEmpty()) throw new IllegalStateException("ROOM_NOT_AVAILABLE");
+    return insert(room.orElseThrow(), requestId, start, end, expiresAt);
+  }
+
+  /**
+   * Lock-free variant of {@link #confirm} for callers that already serialize confirms of the room
+   * in-process (see {@link ReservationCoordinator}). Concurrent confirms of the same room from
+   * other replicas are caught by the optimistic version of {@link Room}, which every confirm bumps.
+   */
+  @Transactional
+  public RoomReservation confirmOptimistic(
+      Long roomId, String requestId, LocalDate start, LocalDate end) {
+    return holdOptimistic(roomId, requestId, start, end, null);
+  }
+
+  /** Lock-free variant of {@link #hold}; see {@link #confirmOptimistic}. */
+  @Transactional
+  public RoomReservation holdOptimistic(
+      Long roomId, String requestId, LocalDate start, LocalDate end, Instant expiresAt) {
+    var existing = seenRequests.find(requestId);
+    if (existing.isPresent()) return existing.get();
+    var room = rooms.findById(roomId);
+    if (!reservations.findIntersecting(roomId, start, end).isEmpty())
+      throw new IllegalStateException("ROOM_NOT_AVAILABLE");
+    return insert(room.orElseThrow(), requestId, start, end, expiresAt);
+  }
+
+  /**
+   * Turns the HELD hold of {@code requestId} into COMMITTED. Committing again is a no-op; a hold
+   * that has expired or was released can no longer be committed.
+   */
+  @Transactional
+  public RoomReservation commitHold(String requestId) {
+    RoomReservation h =
+        reservations
+            .findByRequestId(requestId)
+            .orElseThrow(() -> new NoSuchElementException("Hold not found: " + requestId));
+    if (h.getStatus() == RoomReservation.Status.COMMITTED) return h;
+    if (h.getStatus() != RoomReservation.Status.HELD
+        || reservations.commitHeld(requestId, Instant.now()) == 0)
+      throw new HoldExpiredException();
+    h.setStatus(RoomReservation.Status.COMMITTED);
+    h.setExpiresAt(null);
+    return h;
+  }
+
+  /**
+   * The room row must be read before the overlap check: its version then predates the check, so a
+   * hold committed for the room in between makes the final room update fail instead of slipping
+   * past a {@code FOR UPDATE} that found no rows to lock.
+   */
+  private RoomReservation insert(
+      Room r, String requestId, LocalDate start, LocalDate end, Instant expiresAt) {
+    seenRequests.record(requestId);
     RoomReservation saved =
         reservations.save(
             RoomReservation.builder()
-                .roomId(roomId)
+                .roomId(r.getId())
                 .requestId(requestId)
                 .startDate(start)
                 .endDate(end)
-                .status(RoomReservation.Status.COMMITTED)
+                .status(
+                    expiresAt == null
+                        ? RoomReservation.Status.COMMITTED
+                        : RoomReservation.Status.HELD)
+                .expiresAt(expiresAt)
                 .build());
-    Room r = rooms.findById(roomId).orElseThrow();
     r.setTimesBooked(r.getTimesBooked() + 1);
     rooms.save(r);
+    index.onCommitted(saved);
+    ranking.onSaved(r);
+    if (expiresAt != null) sweeper.onHeld(saved);
     return saved;
   }
 
+  /** The hold made under {@code requestId}, if any. */
+  @Transactional(readOnly = true)
+  public Optional<RoomReservation> find(String requestId) {
+    return reservations.findByRequestId(requestId);
+  }
+
   @Transactional
   public void release(Long roomId, String requestId) {
     reservations
@@ -44,7 +129,25 @@ public class ReservationHandler {
             h -> {
               if (h.getStatus() != RoomReservation.Status.RELEASED) {
                 reservations.updateStatusByRequest(requestId, roomId, RoomReservation.Status.RELEASED);
+                index.onReleased(requestId);
               }
             });
   }
+
+  /**
+   * Releases the holds made under any of {@code requestIds}, whatever room they are on; unknown
+   * and already released request ids are skipped. Returns the number of holds released.
+   */
+  @Transactional
+  public int releaseAll(Collection<String> requestIds) {
+    int released = 0;
+    for (RoomReservation h : reservations.findByRequestIdIn(requestIds)) {
+      if (h.getStatus() == RoomReservation.Status.RELEASED) continue;
+      h.setStatus(RoomReservation.Status.RELEASED);
+      h.setExpiresAt(null);
+      index.onReleased(h.getRequestId());
+      released++;
+    }
+    return released;
+  }
 }
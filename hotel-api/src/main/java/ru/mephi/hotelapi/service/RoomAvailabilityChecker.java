@@ -1,9 +1,14 @@
 package ru.mephi.hotelapi.service;
 
+import ru.mephi.hotelapi.domain.Room;
 import ru.mephi.hotelapi.domain.RoomReservation;
+import ru.mephi.hotelapi.repo.RoomRepository;
 import ru.mephi.hotelapi.repo.RoomReservationRepository;
 import java.time.LocalDate;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -11,9 +16,29 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class RoomAvailabilityChecker {
   private final RoomReservationRepository reservations;
+  private final RoomRepository rooms;
+  private final RoomHoldIndex index;
 
   public boolean isAvailable(Long roomId, LocalDate start, LocalDate end) {
+    if (index.isReady()) return index.isFree(roomId, start, end);
     List<RoomReservation> xs = reservations.findIntersecting(roomId, start, end);
     return xs.isEmpty();
   }
+
+  /** Bookable rooms of the hotel that have no live hold intersecting [start, end]; one query. */
+  public List<Room> availableRooms(Long hotelId, LocalDate start, LocalDate end) {
+    if (index.isReady()) {
+      return rooms.findByHotelId(hotelId).stream()
+          .filter(Room::isAvailable)
+          .filter(r -> index.isFree(r.getId(), start, end))
+          .toList();
+    }
+    return rooms.findFreeRooms(hotelId, start, end);
+  }
+
+  public Set<Long> availableRoomIds(Long hotelId, LocalDate start, LocalDate end) {
+    return availableRooms(hotelId, start, end).stream()
+        .map(Room::getId)
+        .collect(Collectors.toCollection(LinkedHashSet::new));
+  }
 }
@@ -0,0 +1,176 @@
+package ru.mephi.hotelapi.service;
+
+import ru.mephi.commonlib.support.TransactionHooks;
+import ru.mephi.hotelapi.domain.RoomReservation;
+import ru.mephi.hotelapi.repo.RoomReservationRepository;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process copy of the live (non-RELEASED) rows of {@code room_holds}, grouped per room, that
+ * answers overlap queries without a database round-trip. The table stays the source of truth:
+ * the index is built from it on startup, follows confirm/release after their transactions
+ * commit, and can be compared against it or rebuilt through the {@code holdindex} actuator
+ * endpoint. Holds written to the table by other processes are not seen until the next rebuild.
+ *
+ * <p>Each room also carries an {@link OccupancyCalendar} over {@code horizon-days} nights from the
+ * day of the last rebuild; the index is rebuilt nightly so the horizon keeps rolling forward.
+ */
+@Slf4j
+@Component
+public class RoomHoldIndex {
+  private final RoomReservationRepository reservations;
+  private final boolean enabled;
+  private final int horizonDays;
+  private final Clock clock;
+
+  private volatile LocalDate horizonStart;
+  private volatile Map<Long, RoomTimeline> timelines = new ConcurrentHashMap<>();
+  private volatile Map<String, RoomTimeline.Span> byRequest = new ConcurrentHashMap<>();
+  private volatile boolean ready;
+  private volatile Instant builtAt;
+
+  @Autowired
+  public RoomHoldIndex(
+      RoomReservationRepository reservations,
+      @Value("${hotel.availability.index.enabled:false}") boolean enabled,
+      @Value("${hotel.availability.index.horizon-days:730}") int horizonDays) {
+    this(reservations, enabled, horizonDays, Clock.systemDefaultZone());
+  }
+
+  RoomHoldIndex(
+      RoomReservationRepository reservations, boolean enabled, int horizonDays, Clock clock) {
+    this.reservations = reservations;
+    this.enabled = enabled;
+    this.horizonDays = horizonDays;
+    this.clock = clock;
+    this.horizonStart = LocalDate.now(clock);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  void warmUp() {
+    if (enabled) rebuild();
+  }
+
+  @Scheduled(cron = "${hotel.availability.index.rebuild-cron:0 5 0 * * *}")
+  void rollHorizon() {
+    if (enabled && ready) rebuild();
+  }
+
+  /** True once the index has been built and may be used instead of the table. */
+  public boolean isReady() {
+    return ready;
+  }
+
+  public boolean isFree(Long roomId, LocalDate start, LocalDate end) {
+    RoomTimeline timeline = timelines.get(roomId);
+    return timeline == null || timeline.isFree(start, end);
+  }
+
+  /**
+   * Reloads all live holds from the table and atomically swaps the index. Mutations are
+   * serialized with the rebuild, so a commit racing with it is applied to the new index.
+   */
+  public synchronized int rebuild() {
+    LocalDate freshStart = LocalDate.now(clock);
+    Map<Long, RoomTimeline> freshTimelines = new ConcurrentHashMap<>();
+    Map<String, RoomTimeline.Span> freshByRequest = new ConcurrentHashMap<>();
+    for (RoomReservation h : reservations.findByStatusNot(RoomReservation.Status.RELEASED)) {
+      RoomTimeline.Span span = toSpan(h);
+      freshByRequest.put(span.requestId(), span);
+      freshTimelines
+          .computeIfAbsent(span.roomId(), id -> new RoomTimeline(freshStart, horizonDays))
+          .add(span);
+    }
+    horizonStart = freshStart;
+    timelines = freshTimelines;
+    byRequest = freshByRequest;
+    builtAt = Instant.now();
+    ready = true;
+    log.info("Room hold index built: {} holds across {} rooms", freshByRequest.size(), freshTimelines.size());
+    return freshByRequest.size();
+  }
+
+  /** Records a hold once the surrounding transaction (if any) has committed. */
+  public void onCommitted(RoomReservation hold) {
+    if (!enabled) return;
+    RoomTimeline.Span span = toSpan(hold);
+    TransactionHooks.afterCommit(() -> add(span));
+  }
+
+  /** Drops a hold once the surrounding transaction (if any) has committed. */
+  public void onReleased(String requestId) {
+    if (!enabled) return;
+    TransactionHooks.afterCommit(() -> remove(requestId));
+  }
+
+  /** Compares the index with the live rows of {@code room_holds}. */
+  public ConsistencyReport verify() {
+    Map<String, RoomTimeline.Span> expected = new HashMap<>();
+    for (RoomReservation h : reservations.findByStatusNot(RoomReservation.Status.RELEASED)) {
+      expected.put(h.getRequestId(), toSpan(h));
+    }
+    Map<String, RoomTimeline.Span> actual = new HashMap<>(byRequest);
+    List<String> missing =
+        expected.entrySet().stream()
+            .filter(e -> !e.getValue().equals(actual.get(e.getKey())))
+            .map(Map.Entry::getKey)
+            .sorted()
+            .toList();
+    List<String> stale =
+        actual.keySet().stream().filter(k -> !expected.containsKey(k)).sorted().toList();
+    return new ConsistencyReport(
+        enabled, ready, builtAt, timelines.size(), actual.size(), expected.size(), missing, stale);
+  }
+
+  private synchronized void add(RoomTimeline.Span span) {
+    RoomTimeline.Span previous = byRequest.put(span.requestId(), span);
+    if (previous != null) timelineOf(previous.roomId()).remove(previous);
+    timelineOf(span.roomId()).add(span);
+  }
+
+  private synchronized void remove(String requestId) {
+    RoomTimeline.Span span = byRequest.remove(requestId);
+    if (span == null) return;
+    RoomTimeline timeline = timelines.get(span.roomId());
+    if (timeline == null) return;
+    timeline.remove(span);
+    if (timeline.isEmpty()) timelines.remove(span.roomId(), timeline);
+  }
+
+  private RoomTimeline timelineOf(Long roomId) {
+    return timelines.computeIfAbsent(roomId, id -> new RoomTimeline(horizonStart, horizonDays));
+  }
+
+  private static RoomTimeline.Span toSpan(RoomReservation h) {
+    return new RoomTimeline.Span(h.getRequestId(), h.getRoomId(), h.getStartDate(), h.getEndDate());
+  }
+
+  public record ConsistencyReport(
+      boolean enabled,
+      boolean ready,
+      Instant builtAt,
+      int rooms,
+      int indexedHolds,
+      int tableHolds,
+      List<String> missing,
+      List<String> stale) {
+    @JsonProperty
+    public boolean consistent() {
+      return missing.isEmpty() && stale.isEmpty();
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package ru.mephi.hotelapi.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fixed table of fair locks; a room id always maps to the same stripe, so work on one room is
+ * serialized in this JVM without holding a database lock or connection while waiting. Unrelated
+ * rooms may share a stripe, which only costs some extra waiting.
+ */
+@Component
+public class RoomLockStripes {
+  private final ReentrantLock[] stripes;
+  private final long timeoutMs;
+
+  public RoomLockStripes(
+      @Value("${hotel.reservation.lock-stripes:256}") int stripes,
+      @Value("${hotel.reservation.lock-timeout-ms:2000}") long timeoutMs) {
+    int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+    this.stripes = new ReentrantLock[size];
+    for (int i = 0; i < size; i++) this.stripes[i] = new ReentrantLock(true);
+    this.timeoutMs = timeoutMs;
+  }
+
+  public <T> T withLock(Long roomId, Supplier<T> action) {
+    ReentrantLock lock = stripeOf(roomId);
+    try {
+      if (!lock.tryLock(timeoutMs, TimeUnit.MILLISECONDS))
+        throw new IllegalStateException("ROOM_LOCK_TIMEOUT");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("ROOM_LOCK_INTERRUPTED", e);
+    }
+    try {
+      return action.get();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  int size() {
+    return stripes.length;
+  }
+
+  private ReentrantLock stripeOf(Long roomId) {
+    int h = Long.hashCode(roomId);
+    h ^= h >>> 16;
+    return stripes[h & (stripes.length - 1)];
+  }
+}
@@ -0,0 +1,68 @@
+package ru.mephi.hotelapi.service;
+
+import ru.mephi.commonlib.error.exceptions.RoomNotAvailableException;
+import ru.mephi.hotelapi.domain.Room;
+import ru.mephi.hotelapi.domain.RoomReservation;
+import java.time.LocalDate;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Picks the least booked free room of a hotel and reserves it in one call, so callers do not have
+ * to recommend and confirm separately (and lose the room to a concurrent booking in between).
+ *
+ * <p>Candidates come from {@link LeastBookedIndex} when it is ready and from one availability
+ * query otherwise. A candidate taken by a concurrent confirm is skipped in favour of the next one,
+ * up to {@code hotel.reservation.pick-attempts} confirms.
+ *
+ * <p>A retried pick whose hold the request id filter does not know of, as when another replica
+ * wrote it, may find every room taken, possibly by that very hold. Before giving up it looks the
+ * request id up in the table.
+ */
+@Service
+public class RoomPicker {
+  private final SeenHoldRequests seenRequests;
+  private final RoomAvailabilityChecker availability;
+  private final LeastBookedIndex ranking;
+  private final ReservationCoordinator coordinator;
+  private final ReservationHandler handler;
+  private final int maxAttempts;
+
+  public RoomPicker(
+      SeenHoldRequests seenRequests,
+      RoomAvailabilityChecker availability,
+      LeastBookedIndex ranking,
+      ReservationCoordinator coordinator,
+      ReservationHandler handler,
+      @Value("${hotel.reservation.pick-attempts:5}") int maxAttempts) {
+    this.seenRequests = seenRequests;
+    this.availability = availability;
+    this.ranking = ranking;
+    this.coordinator = coordinator;
+    this.handler = handler;
+    this.maxAttempts = Math.max(1, maxAttempts);
+  }
+
+  public RoomReservation pick(Long hotelId, String requestId, LocalDate start, LocalDate end) {
+    var existing = seenRequests.find(requestId);
+    if (existing.isPresent()) return existing.get();
+    int attempts = 0;
+    for (Long roomId : candidates(hotelId, start, end)) {
+      if (ranking.isReady() && !availability.isAvailable(roomId, start, end)) continue;
+      try {
+        return coordinator.confirm(roomId, requestId, start, end);
+      } catch (IllegalStateException e) {
+        if (!"ROOM_NOT_AVAILABLE".equals(e.getMessage())) throw e;
+      }
+      if (++attempts >= maxAttempts) break;
+    }
+    return handler.find(requestId).orElseThrow(RoomNotAvailableException::new);
+  }
+
+  private Iterable<Long> candidates(Long hotelId, LocalDate start, LocalDate end) {
+    if (ranking.isReady()) return ranking.leastBookedRooms(hotelId);
+    List<Room> free = availability.availableRooms(hotelId, start, end);
+    return RoomRanking.leastBooked(free, free.size()).stream().map(Room::getId).toList();
+  }
+}
@@ -0,0 +1,45 @@
+package ru.mephi.hotelapi.service;
+
+import ru.mephi.hotelapi.domain.Room;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/** Recommendation order: least booked first, ties broken by id, so the order is total. */
+public final class RoomRanking {
+  public static final Comparator<Room> LEAST_BOOKED_FIRST =
+      Comparator.comparingInt(Room::getTimesBooked).thenComparing(Room::getId);
+
+  private RoomRanking() {}
+
+  /**
+   * The first {@code k} candidates in {@link #LEAST_BOOKED_FIRST} order, chosen with a bounded
+   * max-heap of size {@code k} (O(n log k)) instead of sorting all of them; {@code k == 1} is a
+   * plain minimum scan.
+   */
+  public static List<Room> leastBooked(Collection<Room> candidates, int k) {
+    if (k <= 0 || candidates.isEmpty()) return List.of();
+    if (k == 1) {
+      Room best = null;
+      for (Room r : candidates) {
+        if (best == null || LEAST_BOOKED_FIRST.compare(r, best) < 0) best = r;
+      }
+      return List.of(best);
+    }
+    PriorityQueue<Room> worstOnTop =
+        new PriorityQueue<>(Math.min(k, candidates.size()) + 1, LEAST_BOOKED_FIRST.reversed());
+    for (Room r : candidates) {
+      if (worstOnTop.size() < k) {
+        worstOnTop.add(r);
+      } else if (LEAST_BOOKED_FIRST.compare(r, worstOnTop.peek()) < 0) {
+        worstOnTop.poll();
+        worstOnTop.add(r);
+      }
+    }
+    List<Room> result = new ArrayList<>(worstOnTop);
+    result.sort(LEAST_BOOKED_FIRST);
+    return result;
+  }
+}
@@ -0,0 +1,43 @@
+package ru.mephi.hotelapi.service;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Live holds of a single room as non-overlapping closed date ranges keyed by start date. Holds of
+ * one room never intersect (confirm rejects overlaps), so the only candidate for an overlap with
+ * [start, end] is the last range starting on or before {@code end}. Queries inside the rolling
+ * horizon are answered from the room's {@link OccupancyCalendar} instead.
+ */
+final class RoomTimeline {
+  private final ConcurrentNavigableMap<LocalDate, Span> spans = new ConcurrentSkipListMap<>();
+  private final OccupancyCalendar calendar;
+
+  RoomTimeline(LocalDate horizonStart, int horizonDays) {
+    this.calendar = new OccupancyCalendar(horizonStart, horizonDays);
+  }
+
+  boolean isFree(LocalDate start, LocalDate end) {
+    if (calendar.covers(start, end)) return calendar.isFree(start, end);
+    Map.Entry<LocalDate, Span> candidate = spans.floorEntry(end);
+    return candidate == null || candidate.getValue().end().isBefore(start);
+  }
+
+  void add(Span span) {
+    spans.put(span.start(), span);
+    calendar.mark(span.start(), span.end());
+  }
+
+  void remove(Span span) {
+    if (!spans.remove(span.start(), span)) return;
+    calendar.clear(span.start(), span.end());
+  }
+
+  boolean isEmpty() {
+    return spans.isEmpty();
+  }
+
+  record Span(String requestId, Long roomId, LocalDate start, LocalDate end) {}
+}
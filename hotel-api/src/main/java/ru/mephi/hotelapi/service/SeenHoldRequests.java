@@ -0,0 +1,80 @@
+package ru.mephi.hotelapi.service;
+
+import ru.mephi.hotelapi.domain.RoomReservation;
+import ru.mephi.hotelapi.repo.RoomReservationRepository;
+import ru.mephi.commonlib.support.SeenRequestIds;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * {@link SeenRequestIds} over {@code room_holds.request_id}: lets a confirm, hold or pick under a
+ * new {@code X-Request-Id} skip the replay lookup. Built on startup and rebuilt every {@code
+ * rebuild-interval-ms}, which also resizes it to the table.
+ *
+ * <p>Exposes {@code hotel.requestid.filter.fpp} (observed false positive rate since the last
+ * rebuild), {@code hotel.requestid.filter.expected.fpp} and skipped/false-positive counters.
+ */
+@Slf4j
+@Component
+public class SeenHoldRequests {
+  private final RoomReservationRepository reservations;
+  private final TransactionTemplate tx;
+  private final boolean enabled;
+  private final SeenRequestIds seen;
+
+  public SeenHoldRequests(
+      RoomReservationRepository reservations,
+      TransactionTemplate tx,
+      MeterRegistry meters,
+      @Value("${hotel.request-filter.enabled:true}") boolean enabled,
+      @Value("${hotel.request-filter.expected-insertions:1000000}") long expectedInsertions,
+      @Value("${hotel.request-filter.fpp:0.01}") double fpp) {
+    this.reservations = reservations;
+    this.tx = tx;
+    this.enabled = enabled;
+    this.seen = new SeenRequestIds(expectedInsertions, fpp);
+    Gauge.builder("hotel.requestid.filter.fpp", seen, SeenRequestIds::observedFalsePositiveRate)
+        .register(meters);
+    Gauge.builder(
+            "hotel.requestid.filter.expected.fpp", seen, SeenRequestIds::expectedFalsePositiveRate)
+        .register(meters);
+    FunctionCounter.builder("hotel.requestid.filter.skipped", seen, SeenRequestIds::skipped)
+        .register(meters);
+    FunctionCounter.builder(
+            "hotel.requestid.filter.false.positives", seen, SeenRequestIds::falsePositives)
+        .register(meters);
+  }
+
+  /** The hold made under {@code requestId}, if any; skips the query for certainly new ids. */
+  public Optional<RoomReservation> find(String requestId) {
+    return seen.lookup(requestId, reservations::findByRequestId);
+  }
+
+  /** Call before a hold under {@code requestId} is stored. */
+  public void record(String requestId) {
+    seen.record(requestId);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  @Scheduled(
+      fixedDelayString = "${hotel.request-filter.rebuild-interval-ms:3600000}",
+      initialDelayString = "${hotel.request-filter.rebuild-interval-ms:3600000}")
+  public void rebuild() {
+    if (!enabled) return;
+    try {
+      tx.executeWithoutResult(s -> seen.rebuild(reservations.count(), reservations::streamRequestIds));
+    } catch (RuntimeException e) {
+      // the previous filter (or none, meaning every id is looked up) stays in use
+      log.warn("Rebuilding the request id filter failed", e);
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package ru.mephi.hotelapi.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel: {@code levels} wheels of {@code slots} slots each, where a slot of
+ * level {@code n} spans {@code slots^n} ticks. A timer goes into the coarsest level whose span
+ * still separates it from the current tick and is cascaded one level down each time the finer
+ * wheel completes a turn, so scheduling is O(1) and advancing touches only the slots it passes.
+ * Timers further out than the top level can represent are parked in its slots and re-placed on
+ * every pass until they come within range.
+ *
+ * <p>Not thread-safe; callers serialize {@link #schedule} and {@link #advance}.
+ */
+final class TimerWheel<T> {
+  private final long tickMs;
+  private final int slots;
+  private final long[] span;
+  private final List<List<Timer<T>>> buckets;
+  private final List<T> overdue = new ArrayList<>();
+  private long currentTick;
+  private int size;
+
+  TimerWheel(long tickMs, int slots, int levels, long startMs) {
+    if (tickMs <= 0 || slots < 2 || levels < 1) throw new IllegalArgumentException();
+    this.tickMs = tickMs;
+    this.slots = slots;
+    this.span = new long[levels];
+    this.buckets = new ArrayList<>(levels * slots);
+    long s = 1;
+    for (int level = 0; level < levels; level++) {
+      span[level] = s;
+      s = Math.multiplyExact(s, slots);
+    }
+    for (int i = 0; i < levels * slots; i++) buckets.add(new ArrayList<>());
+    this.currentTick = startMs / tickMs;
+  }
+
+  /** Fires {@code item} on the first {@link #advance} to or past {@code deadlineMs}. */
+  void schedule(T item, long deadlineMs) {
+    size++;
+    place(new Timer<>(item, Math.floorDiv(deadlineMs + tickMs - 1, tickMs)));
+  }
+
+  /** Moves the wheel to {@code nowMs} and returns the items whose deadline has passed. */
+  List<T> advance(long nowMs) {
+    List<T> expired = new ArrayList<>(overdue);
+    overdue.clear();
+    long target = nowMs / tickMs;
+    while (currentTick < target) {
+      currentTick++;
+      for (int level = span.length - 1; level > 0; level--) {
+        if (currentTick % span[level] == 0) drain(bucket(level, currentTick), expired);
+      }
+      drain(bucket(0, currentTick), expired);
+    }
+    size -= expired.size();
+    return expired;
+  }
+
+  /** Timers scheduled and not yet returned by {@link #advance}. */
+  int size() {
+    return size;
+  }
+
+  private void place(Timer<T> t) {
+    long delta = t.tick() - currentTick;
+    if (delta <= 0) {
+      overdue.add(t.item());
+      return;
+    }
+    int level = 0;
+    while (level < span.length - 1 && delta >= span[level + 1]) level++;
+    bucket(level, t.tick()).add(t);
+  }
+
+  /** Fires what is due in {@code bucket} and re-places the rest one level down (or back). */
+  private void drain(List<Timer<T>> bucket, List<T> expired) {
+    if (bucket.isEmpty()) return;
+    List<Timer<T>> pending = new ArrayList<>(bucket);
+    bucket.clear();
+    for (Timer<T> t : pending) {
+      if (t.tick() <= currentTick) expired.add(t.item());
+      else place(t);
+    }
+  }
+
+  private List<Timer<T>> bucket(int level, long tick) {
+    return buckets.get(level * slots + (int) ((tick / span[level]) % slots));
+  }
+
+  private record Timer<T>(T item, long tick) {}
+}
@@ -0,0 +1,30 @@
+package ru.mephi.hotelapi.web;
+
+import ru.mephi.hotelapi.service.RoomHoldIndex;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code GET /actuator/holdindex} checks the index against the table, {@code POST} rebuilds it.
+ * Both scan the whole table, so both are for admins only.
+ */
+@Component
+@Endpoint(id = "holdindex")
+@RequiredArgsConstructor
+public class HoldIndexEndpoint {
+  private final RoomHoldIndex index;
+
+  @ReadOperation
+  public RoomHoldIndex.ConsistencyReport check() {
+    return index.verify();
+  }
+
+  @WriteOperation
+  public Map<String, Object> rebuild() {
+    return Map.of("holds", index.rebuild());
+  }
+}
@@ -1,31 +1,118 @@
 package ru.mephi.hotelapi.web;
 
 import ru.mephi.hotelapi.domain.RoomReservation;
+import ru.mephi.hotelapi.service.BatchReservationHandler;
+import ru.mephi.hotelapi.service.BatchReservationHandler.Item;
+import ru.mephi.hotelapi.service.BatchReservationHandler.Outcome;
+import ru.mephi.hotelapi.service.ReservationCoordinator;
 import ru.mephi.hotelapi.service.ReservationHandler;
+import ru.mephi.hotelapi.service.RoomPicker;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.List;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 record ConfirmRequest(
-    @NotBlank String requestId, @NotNull LocalDate start, @NotNull LocalDate end) {}
+    @NotBlank String requestId, @NotNull LocalDate start, @NotNull LocalDate end) {
+  @AssertTrue(message = "start must not be after end")
+  boolean isOrdered() {
+    return start == null || end == null || !start.isAfter(end);
+  }
+}
+
+record HoldRequest(@NotNull LocalDate start, @NotNull LocalDate end, @Positive Long ttlSeconds) {
+  @AssertTrue(message = "start must not be after end")
+  boolean isOrdered() {
+    return start == null || end == null || !start.isAfter(end);
+  }
+}
+
+record PickRequest(@NotNull Long hotelId, @NotNull LocalDate start, @NotNull LocalDate end) {
+  @AssertTrue(message = "start must not be after end")
+  boolean isOrdered() {
+    return start == null || end == null || !start.isAfter(end);
+  }
+}
+
+record BatchConfirmRequest(
+    @NotNull BatchReservationHandler.Mode mode,
+    @NotEmpty @Size(max = 500) List<@Valid @NotNull Item> items) {}
+
+record ReleaseBatchRequest(@NotEmpty @Size(max = 500) List<@NotBlank String> requestIds) {}
 
 @RestController
 @RequestMapping("/internal/rooms")
 @RequiredArgsConstructor
 public class InternalRoomController {
   private final ReservationHandler reservationHandler;
+  private final ReservationCoordinator reservationCoordinator;
+  private final RoomPicker roomPicker;
+  private final BatchReservationHandler batchHandler;
 
   @PostMapping("/{id}/confirm-availability")
   @PreAuthorize("hasRole('ADMIN')")
   public ResponseEntity<RoomReservation> confirm(
       @RequestHeader("X-Request-Id") String requestId,
       @PathVariable Long id,
-      @RequestBody ConfirmRequest req) {
-    RoomReservation h = reservationHandler.confirm(id, requestId, req.start(), req.end());
+      @Valid @RequestBody ConfirmRequest req) {
+    RoomReservation h = reservationCoordinator.confirm(id, requestId, req.start(), req.end());
+    return ResponseEntity.ok(h);
+  }
+
+  /**
+   * Holds the room HELD for {@code ttlSeconds} (server default when omitted); it is released
+   * automatically unless committed through {@code /holds/{requestId}/commit} in time.
+   */
+  @PostMapping("/{id}/hold")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<RoomReservation> hold(
+      @RequestHeader("X-Request-Id") String requestId,
+      @PathVariable Long id,
+      @Valid @RequestBody HoldRequest req) {
+    Duration ttl = req.ttlSeconds() == null ? null : Duration.ofSeconds(req.ttlSeconds());
+    RoomReservation h = reservationCoordinator.hold(id, requestId, req.start(), req.end(), ttl);
+    return ResponseEntity.ok(h);
+  }
+
+  /** Commits a HELD hold; 409 HOLD_EXPIRED once it has lapsed or was released. */
+  @PostMapping("/holds/{requestId}/commit")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<RoomReservation> commitHold(@PathVariable String requestId) {
+    return ResponseEntity.ok(reservationHandler.commitHold(requestId));
+  }
+
+  /**
+   * Confirms a group of holds in one transaction. An all-or-nothing batch with a rejected item
+   * commits nothing and answers 409; the per-item results say which items were at fault.
+   */
+  @PostMapping("/confirm-batch")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<List<BatchReservationHandler.Result>> confirmBatch(
+      @Valid @RequestBody BatchConfirmRequest req) {
+    List<BatchReservationHandler.Result> results = batchHandler.confirm(req.mode(), req.items());
+    boolean failed =
+        req.mode() == BatchReservationHandler.Mode.ALL_OR_NOTHING
+            && results.stream().anyMatch(r -> r.outcome() != Outcome.COMMITTED);
+    return ResponseEntity.status(failed ? HttpStatus.CONFLICT : HttpStatus.OK).body(results);
+  }
+
+  /** Reserves the least booked room of the hotel that is free for the dates. */
+  @PostMapping("/pick")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<RoomReservation> pick(
+      @RequestHeader("X-Request-Id") String requestId, @Valid @RequestBody PickRequest req) {
+    RoomReservation h = roomPicker.pick(req.hotelId(), requestId, req.start(), req.end());
     return ResponseEntity.ok(h);
   }
 
@@ -36,4 +123,15 @@ public class InternalRoomController {
     reservationHandler.release(id, requestId);
     return ResponseEntity.accepted().build();
   }
+
+  /**
+   * Releases holds by request id alone, for callers that may not know which room a lost
+   * {@code pick} reserved. Idempotent, like {@code /{id}/release}.
+   */
+  @PostMapping("/release-batch")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<Void> releaseBatch(@Valid @RequestBody ReleaseBatchRequest req) {
+    reservationHandler.releaseAll(req.requestIds());
+    return ResponseEntity.accepted().build();
+  }
 }
@@ -1,12 +1,10 @@
 package ru.mephi.hotelapi.web;
 
 import ru.mephi.hotelapi.domain.Room;
-import ru.mephi.hotelapi.repo.RoomRepository;
 import ru.mephi.hotelapi.service.RoomAvailabilityChecker;
+import ru.mephi.hotelapi.service.RoomRanking;
 import java.time.LocalDate;
-import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -15,7 +13,6 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/api/rooms")
 @RequiredArgsConstructor
 public class RecommendationController {
-  private final RoomRepository rooms;
   private final RoomAvailabilityChecker availability;
 
   @GetMapping("/recommend")
@@ -25,11 +22,6 @@ public class RecommendationController {
       @RequestParam LocalDate start,
       @RequestParam LocalDate end,
       @RequestParam(defaultValue = "5") int limit) {
-    return rooms.findByHotelId(hotelId).stream()
-        .filter(Room::isAvailable)
-        .filter(r -> availability.isAvailable(r.getId(), start, end))
-        .sorted(Comparator.comparingInt(Room::getTimesBooked).thenComparing(Room::getId))
-        .limit(Math.max(1, limit))
-        .collect(Collectors.toList());
+    return RoomRanking.leastBooked(availability.availableRooms(hotelId, start, end), Math.max(1, limit));
   }
 }
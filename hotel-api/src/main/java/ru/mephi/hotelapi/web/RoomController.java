@@ -2,6 +2,7 @@ package ru.mephi.hotelapi.web;
 
 import ru.mephi.hotelapi.domain.Room;
 import ru.mephi.hotelapi.repo.RoomRepository;
+import ru.mephi.hotelapi.service.LeastBookedIndex;
 import ru.mephi.hotelapi.web.dto.NewRoomRequest;
 import jakarta.validation.Valid;
 import java.net.URI;
@@ -16,6 +17,7 @@ import org.springframework.web.bind.annotation.*;
 @RequiredArgsConstructor
 public class RoomController {
   private final RoomRepository rooms;
+  private final LeastBookedIndex ranking;
 
   @PostMapping
   @PreAuthorize("hasRole('ADMIN')")
@@ -27,6 +29,7 @@ public class RoomController {
                 .number(req.number())
                 .available(req.available() == null ? true : req.available())
                 .build());
+    ranking.onSaved(r);
     return ResponseEntity.created(URI.create("/api/rooms/" + r.getId())).body(r);
   }
 
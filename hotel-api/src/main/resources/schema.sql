@@ -1,24 +1,32 @@
+-- ids come from pooled sequences; the increment must match allocationSize of the entities
+create sequence if not exists hotels_seq start with 1 increment by 50;
+create sequence if not exists rooms_seq start with 1 increment by 50;
+create sequence if not exists room_holds_seq start with 1 increment by 50;
+
 create table if not exists hotels (
-    id bigint generated by default as identity primary key,
+    id bigint default nextval('hotels_seq') primary key,
     name varchar(255) not null unique,
     city varchar(255)
 );
 
 create table if not exists rooms (
-    id bigint generated by default as identity primary key,
+    id bigint default nextval('rooms_seq') primary key,
     hotel_id bigint not null,
     number varchar(64),
     available boolean not null default true,
-    times_booked int not null default 0
+    times_booked int not null default 0,
+    version bigint not null default 0
 );
 
 create table if not exists room_holds (
-    id bigint generated by default as identity primary key,
+    id bigint default nextval('room_holds_seq') primary key,
     room_id bigint not null,
     request_id varchar(64) not null unique,
     start_date date not null,
     end_date date not null,
-    status varchar(16) not null
+    status varchar(16) not null,
+    expires_at timestamp(6) with time zone
 );
 
 create index if not exists idx_room_dates on room_holds(room_id, start_date, end_date);
+create index if not exists idx_hold_expiry on room_holds(expires_at);
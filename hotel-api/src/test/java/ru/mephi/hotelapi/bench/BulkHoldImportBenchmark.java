@@ -0,0 +1,76 @@
+package ru.mephi.hotelapi.bench;
+
+import ru.mephi.hotelapi.domain.RoomReservation;
+import ru.mephi.hotelapi.repo.RoomReservationRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Imports N room_holds through JPA, once with JDBC insert batching switched off for the session
+ * (one round-trip per row, which is what IDENTITY ids forced on every insert) and once with the
+ * configured {@code hibernate.jdbc.batch_size}. Not part of the regular test run; start it
+ * explicitly:
+ *
+ * <pre>
+ * mvn -pl hotel-api test -Dtest=BulkHoldImportBenchmark -Dbench.rows=1000000
+ * </pre>
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class BulkHoldImportBenchmark {
+
+    private static final int ROWS = Integer.getInteger("bench.rows", 200_000);
+    private static final int CHUNK = 1_000;
+    private static final LocalDate FIRST_NIGHT = LocalDate.of(2030, 1, 1);
+
+    @Autowired EntityManager em;
+    @Autowired TransactionTemplate tx;
+    @Autowired RoomReservationRepository holds;
+
+    @Test
+    void compareBatching() {
+        System.out.printf("%n%d room_holds, committed every %d rows%n", ROWS, CHUNK);
+        System.out.printf("%-12s %12s %10s%n", "jdbc batch", "rows/s", "seconds");
+        for (int batchSize : new int[] {1, 50}) {
+            run(batchSize, Math.min(ROWS, 20_000)); // warm-up
+            double seconds = run(batchSize, ROWS);
+            System.out.printf("%-12d %12.0f %10.2f%n", batchSize, ROWS / seconds, seconds);
+        }
+    }
+
+    private double run(int batchSize, int rows) {
+        holds.deleteAllInBatch();
+        long began = System.nanoTime();
+        for (int from = 0; from < rows; from += CHUNK) {
+            int first = from;
+            int last = Math.min(rows, from + CHUNK);
+            tx.executeWithoutResult(s -> {
+                em.unwrap(Session.class).setJdbcBatchSize(batchSize);
+                for (int i = first; i < last; i++) {
+                    LocalDate start = FIRST_NIGHT.plusDays(i % 365);
+                    em.persist(RoomReservation.builder()
+                            .roomId((long) (i % 500))
+                            .requestId("bulk-" + batchSize + "-" + i)
+                            .startDate(start)
+                            .endDate(start.plusDays(2))
+                            .status(RoomReservation.Status.COMMITTED)
+                            .build());
+                }
+                em.flush();
+                em.clear();
+            });
+        }
+        double seconds = (System.nanoTime() - began) / 1e9;
+        assertEquals(rows, holds.count());
+        return seconds;
+    }
+}
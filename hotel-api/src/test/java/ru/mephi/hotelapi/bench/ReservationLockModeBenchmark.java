@@ -0,0 +1,143 @@
+package ru.mephi.hotelapi.bench;
+
+import ru.mephi.hotelapi.domain.Room;
+import ru.mephi.hotelapi.domain.RoomReservation;
+import ru.mephi.hotelapi.repo.RoomReservationRepository;
+import ru.mephi.hotelapi.repo.RoomRepository;
+import ru.mephi.hotelapi.service.ReservationCoordinator;
+import ru.mephi.hotelapi.service.ReservationCoordinator.LockMode;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * N threads hammer M rooms with random short stays in both lock modes and report throughput and
+ * latency percentiles. Not part of the regular test run (surefire only picks up {@code *Test});
+ * start it explicitly:
+ *
+ * <pre>
+ * mvn -pl hotel-api test -Dtest=ReservationLockModeBenchmark -Dbench.threads=64 -Dbench.rooms=8
+ * </pre>
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ReservationLockModeBenchmark {
+
+    private static final int THREADS = Integer.getInteger("bench.threads", 32);
+    private static final int ROOMS = Integer.getInteger("bench.rooms", 8);
+    private static final int SECONDS = Integer.getInteger("bench.seconds", 5);
+    private static final LocalDate FIRST_NIGHT = LocalDate.of(2030, 1, 1);
+
+    @Autowired ReservationCoordinator coordinator;
+    @Autowired RoomRepository rooms;
+    @Autowired RoomReservationRepository holds;
+
+    @Test
+    void compareLockModes() throws Exception {
+        System.out.printf("%n%d threads, %d rooms, %ds per mode%n", THREADS, ROOMS, SECONDS);
+        System.out.printf("%-12s %10s %10s %10s %8s %10s %10s%n",
+                "mode", "ops/s", "committed", "rejected", "errors", "p50 ms", "p99 ms");
+        for (LockMode mode : LockMode.values()) {
+            run(mode, 1); // warm-up
+            Result r = run(mode, SECONDS);
+            System.out.printf("%-12s %10.0f %10d %10d %8d %10.2f %10.2f%n",
+                    mode, r.throughput(), r.committed(), r.rejected(), r.errors(),
+                    r.percentileMs(50), r.percentileMs(99));
+        }
+    }
+
+    private Result run(LockMode mode, int seconds) throws Exception {
+        holds.deleteAll();
+        rooms.deleteAll();
+        List<Long> roomIds = new ArrayList<>();
+        for (int i = 0; i < ROOMS; i++) {
+            roomIds.add(rooms.save(Room.builder().hotelId(1L).number("B" + i).available(true).build()).getId());
+        }
+
+        AtomicLong committed = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        AtomicLong sequence = new AtomicLong();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<long[]>> latencies = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            latencies.add(pool.submit(() -> {
+                go.await();
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                long[] samples = new long[1024];
+                int n = 0;
+                while (System.nanoTime() < deadline) {
+                    Long roomId = roomIds.get(rnd.nextInt(roomIds.size()));
+                    LocalDate start = FIRST_NIGHT.plusDays(rnd.nextInt(365));
+                    String requestId = mode + "-" + sequence.incrementAndGet();
+                    long began = System.nanoTime();
+                    try {
+                        coordinator.confirm(mode, roomId, requestId, start, start.plusDays(rnd.nextInt(3)));
+                        committed.incrementAndGet();
+                    } catch (IllegalStateException e) {
+                        if ("ROOM_NOT_AVAILABLE".equals(e.getMessage())) rejected.incrementAndGet();
+                        else errors.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        errors.incrementAndGet();
+                    }
+                    if (n == samples.length) samples = Arrays.copyOf(samples, n * 2);
+                    samples[n++] = System.nanoTime() - began;
+                }
+                return Arrays.copyOf(samples, n);
+            }));
+        }
+        long began = System.nanoTime();
+        go.countDown();
+        List<long[]> perThread = new ArrayList<>();
+        for (Future<long[]> f : latencies) perThread.add(f.get());
+        long elapsed = System.nanoTime() - began;
+        pool.shutdown();
+
+        assertNoDoubleBookings(roomIds);
+        long[] all = perThread.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(all, elapsed, committed.get(), rejected.get(), errors.get());
+    }
+
+    private void assertNoDoubleBookings(List<Long> roomIds) {
+        for (Long roomId : roomIds) {
+            List<RoomReservation> live = holds.findByStatusNot(RoomReservation.Status.RELEASED).stream()
+                    .filter(h -> h.getRoomId().equals(roomId))
+                    .sorted((a, b) -> a.getStartDate().compareTo(b.getStartDate()))
+                    .toList();
+            for (int i = 1; i < live.size(); i++) {
+                assertEquals(true, live.get(i).getStartDate().isAfter(live.get(i - 1).getEndDate()),
+                        "overlapping holds on room " + roomId);
+            }
+        }
+    }
+
+    private record Result(long[] sortedNanos, long elapsedNanos, long committed, long rejected, long errors) {
+        double throughput() {
+            return sortedNanos.length / (elapsedNanos / 1e9);
+        }
+
+        double percentileMs(int p) {
+            if (sortedNanos.length == 0) return 0;
+            int idx = (int) Math.ceil(p / 100.0 * sortedNanos.length) - 1;
+            return sortedNanos[Math.max(0, idx)] / 1e6;
+        }
+    }
+}
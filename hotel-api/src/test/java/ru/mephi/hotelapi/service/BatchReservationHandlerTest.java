@@ -0,0 +1,239 @@
+package ru.mephi.hotelapi.service;
+
+import ru.mephi.hotelapi.domain.Room;
+import ru.mephi.hotelapi.domain.RoomReservation;
+import ru.mephi.hotelapi.repo.RoomReservationRepository;
+import ru.mephi.hotelapi.repo.RoomRepository;
+import ru.mephi.hotelapi.service.BatchReservationHandler.Item;
+import ru.mephi.hotelapi.service.BatchReservationHandler.Mode;
+import ru.mephi.hotelapi.service.BatchReservationHandler.Outcome;
+import ru.mephi.hotelapi.service.BatchReservationHandler.Result;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class BatchReservationHandlerTest {
+
+    @Autowired BatchReservationHandler batch;
+    @Autowired RoomRepository rooms;
+    @Autowired RoomReservationRepository holds;
+    @Autowired RoomHoldIndex index;
+    @Autowired LeastBookedIndex ranking;
+    @Autowired SeenHoldRequests seenRequests;
+    @Autowired TransactionTemplate tx;
+
+    private Room a;
+    private Room b;
+
+    private static final LocalDate START = LocalDate.of(2025, 10, 1);
+    private static final LocalDate END = LocalDate.of(2025, 10, 5);
+
+    @BeforeEach
+    void setUp() {
+        holds.deleteAll();
+        rooms.deleteAll();
+        a = rooms.save(Room.builder().hotelId(1L).number("101").available(true).build());
+        b = rooms.save(Room.builder().hotelId(1L).number("102").available(true).build());
+    }
+
+    private void existingHold(Long roomId) {
+        holds.save(RoomReservation.builder()
+                .roomId(roomId)
+                .requestId("existing-" + roomId)
+                .startDate(START.plusDays(2))
+                .endDate(END.plusDays(2))
+                .status(RoomReservation.Status.COMMITTED)
+                .build());
+    }
+
+    @Test
+    void commitsAllItems_andReturnsResultsInRequestOrder() {
+        List<Result> results = batch.confirm(Mode.ALL_OR_NOTHING, List.of(
+                new Item(b.getId(), "r1", START, END),
+                new Item(a.getId(), "r2", START, END),
+                new Item(a.getId(), "r3", END.plusDays(1), END.plusDays(3))));
+
+        assertEquals(List.of("r1", "r2", "r3"), results.stream().map(Result::requestId).toList());
+        assertTrue(results.stream().allMatch(r -> r.outcome() == Outcome.COMMITTED && r.holdId() != null));
+        assertEquals(3, holds.findAll().size());
+        assertEquals(2, rooms.findById(a.getId()).orElseThrow().getTimesBooked());
+        assertEquals(1, rooms.findById(b.getId()).orElseThrow().getTimesBooked());
+    }
+
+    @Test
+    void allOrNothing_writesNothing_whenOneItemIsRejected() {
+        existingHold(b.getId());
+
+        List<Result> results = batch.confirm(Mode.ALL_OR_NOTHING, List.of(
+                new Item(a.getId(), "r1", START, END),
+                new Item(b.getId(), "r2", START, END)));
+
+        assertEquals(Outcome.ABORTED, results.get(0).outcome());
+        assertEquals(Outcome.REJECTED, results.get(1).outcome());
+        assertEquals("ROOM_NOT_AVAILABLE", results.get(1).error());
+        assertTrue(holds.findByRequestId("r1").isEmpty());
+        assertEquals(0, rooms.findById(a.getId()).orElseThrow().getTimesBooked());
+    }
+
+    @Test
+    void bestEffort_commitsWhatItCan() {
+        existingHold(b.getId());
+
+        List<Result> results = batch.confirm(Mode.BEST_EFFORT, List.of(
+                new Item(a.getId(), "r1", START, END),
+                new Item(b.getId(), "r2", START, END),
+                new Item(999_999L, "r3", START, END)));
+
+        assertEquals(Outcome.COMMITTED, results.get(0).outcome());
+        assertEquals(Outcome.REJECTED, results.get(1).outcome());
+        assertEquals("ROOM_NOT_FOUND", results.get(2).error());
+        assertTrue(holds.findByRequestId("r1").isPresent());
+        assertTrue(holds.findByRequestId("r2").isEmpty());
+    }
+
+    @Test
+    void itemsOverlappingEachOther_areRejected() {
+        List<Result> results = batch.confirm(Mode.BEST_EFFORT, List.of(
+                new Item(a.getId(), "r1", START, END),
+                new Item(a.getId(), "r2", END, END.plusDays(2)),
+                new Item(a.getId(), "r1", END.plusDays(5), END.plusDays(6))));
+
+        assertEquals(Outcome.COMMITTED, results.get(0).outcome());
+        assertEquals("ROOM_NOT_AVAILABLE", results.get(1).error());
+        assertEquals("DUPLICATE_REQUEST_ID", results.get(2).error());
+        assertEquals(1, holds.findAll().size());
+    }
+
+    @Test
+    void replayedBatch_returnsExistingHolds() {
+        List<Item> items = List.of(new Item(a.getId(), "r1", START, END), new Item(b.getId(), "r2", START, END));
+        List<Result> first = batch.confirm(Mode.ALL_OR_NOTHING, items);
+        List<Result> second = batch.confirm(Mode.ALL_OR_NOTHING, items);
+
+        assertEquals(first, second);
+        assertEquals(2, holds.findAll().size());
+        assertEquals(1, rooms.findById(a.getId()).orElseThrow().getTimesBooked());
+    }
+
+    @Test
+    void replayOfReleasedHold_isRejected() {
+        holds.save(RoomReservation.builder()
+                .roomId(a.getId())
+                .requestId("r1")
+                .startDate(START)
+                .endDate(END)
+                .status(RoomReservation.Status.RELEASED)
+                .build());
+
+        List<Result> results = batch.confirm(Mode.ALL_OR_NOTHING, List.of(
+                new Item(a.getId(), "r1", START, END),
+                new Item(b.getId(), "r2", START, END)));
+
+        assertEquals(Outcome.REJECTED, results.get(0).outcome());
+        assertEquals("HOLD_EXPIRED", results.get(0).error());
+        assertEquals(Outcome.ABORTED, results.get(1).outcome());
+        assertTrue(holds.findByRequestId("r2").isEmpty());
+    }
+
+    @Test
+    void replayOfLapsedHold_isRejected_beforeTheSweeperReleasesIt() {
+        holds.save(RoomReservation.builder()
+                .roomId(a.getId())
+                .requestId("r1")
+                .startDate(START)
+                .endDate(END)
+                .status(RoomReservation.Status.HELD)
+                .expiresAt(Instant.now().minusSeconds(1))
+                .build());
+
+        List<Result> results = batch.confirm(Mode.BEST_EFFORT, List.of(new Item(a.getId(), "r1", START, END)));
+
+        assertEquals(Outcome.REJECTED, results.get(0).outcome());
+        assertEquals("HOLD_EXPIRED", results.get(0).error());
+    }
+
+    @Test
+    void requestIdTakenAfterLookup_isAnsweredAsReplay() {
+        // another replica confirms r1 on room b right after the batch has looked its request ids up
+        RoomReservationRepository racing = mock(RoomReservationRepository.class, delegatesTo(holds));
+        AtomicBoolean raced = new AtomicBoolean();
+        doAnswer(inv -> {
+            List<RoomReservation> found = holds.findByRequestIdIn(inv.getArgument(0));
+            if (raced.compareAndSet(false, true)) {
+                ExecutorService other = Executors.newSingleThreadExecutor();
+                try {
+                    other.submit(() -> holds.save(RoomReservation.builder()
+                            .roomId(b.getId())
+                            .requestId("r1")
+                            .startDate(START.plusDays(20))
+                            .endDate(END.plusDays(20))
+                            .status(RoomReservation.Status.COMMITTED)
+                            .build())).get();
+                } finally {
+                    other.shutdown();
+                }
+            }
+            return found;
+        }).when(racing).findByRequestIdIn(any());
+        var handler = new BatchReservationHandler(racing, rooms, index, ranking, seenRequests, tx);
+
+        List<Result> results = handler.confirm(Mode.BEST_EFFORT, List.of(
+                new Item(a.getId(), "r1", START, END),
+                new Item(b.getId(), "r2", START, END)));
+
+        RoomReservation stored = holds.findByRequestId("r1").orElseThrow();
+        assertEquals(new Result("r1", b.getId(), Outcome.COMMITTED, stored.getId(), null), results.get(0));
+        assertEquals(Outcome.COMMITTED, results.get(1).outcome());
+        assertEquals(0, rooms.findById(a.getId()).orElseThrow().getTimesBooked());
+        assertEquals(2, holds.findAll().size());
+    }
+
+    @Test
+    void concurrentBatchesOverSameRoomsInOppositeOrder_doNotDeadlock() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<List<Result>>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            LocalDate start = START.plusDays(10L * t);
+            boolean reversed = t % 2 == 1;
+            List<Item> items = reversed
+                    ? List.of(new Item(b.getId(), "b" + t, start, start.plusDays(1)), new Item(a.getId(), "a" + t, start, start.plusDays(1)))
+                    : List.of(new Item(a.getId(), "a" + t, start, start.plusDays(1)), new Item(b.getId(), "b" + t, start, start.plusDays(1)));
+            futures.add(pool.submit(() -> {
+                go.await();
+                return batch.confirm(Mode.ALL_OR_NOTHING, items);
+            }));
+        }
+        go.countDown();
+        for (Future<List<Result>> f : futures) {
+            assertTrue(f.get(30, TimeUnit.SECONDS).stream().allMatch(r -> r.outcome() == Outcome.COMMITTED));
+        }
+        pool.shutdown();
+
+        assertEquals(16, holds.findAll().size());
+        assertEquals(8, rooms.findById(a.getId()).orElseThrow().getTimesBooked());
+        assertEquals(8, rooms.findById(b.getId()).orElseThrow().getTimesBooked());
+    }
+}
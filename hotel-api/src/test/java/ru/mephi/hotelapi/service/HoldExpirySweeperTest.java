@@ -0,0 +1,142 @@
+package ru.mephi.hotelapi.service;
+
+import ru.mephi.hotelapi.domain.RoomReservation;
+import ru.mephi.hotelapi.repo.RoomReservationRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class HoldExpirySweeperTest {
+
+    @Autowired RoomReservationRepository holds;
+    @Autowired RoomHoldIndex index;
+    @Autowired TransactionTemplate tx;
+    @Autowired ReservationHandler handler;
+
+    private MeterRegistry meters;
+    private Instant base;
+    private HoldExpirySweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        holds.deleteAll();
+        meters = new SimpleMeterRegistry();
+        base = Instant.now();
+        // a sweeper of its own, so sweeping into the future cannot disturb the shared one
+        sweeper = new HoldExpirySweeper(holds, index, tx, meters, true, 1000, 60, Clock.fixed(base, ZoneOffset.UTC));
+    }
+
+    private RoomReservation held(String requestId, Instant expiresAt) {
+        return holds.save(RoomReservation.builder()
+                .roomId(1L)
+                .requestId(requestId)
+                .startDate(LocalDate.of(2025, 10, 1))
+                .endDate(LocalDate.of(2025, 10, 5))
+                .status(RoomReservation.Status.HELD)
+                .expiresAt(expiresAt)
+                .build());
+    }
+
+    private RoomReservation reload(String requestId) {
+        return holds.findByRequestId(requestId).orElseThrow();
+    }
+
+    @Test
+    void heldHold_isReleasedOnceDeadlinePasses() {
+        sweeper.onHeld(held("h-1", base.plusSeconds(60)));
+
+        assertEquals(0, sweeper.sweep(base.plusSeconds(30)));
+        assertEquals(RoomReservation.Status.HELD, reload("h-1").getStatus());
+
+        assertEquals(1, sweeper.sweep(base.plusSeconds(61)));
+        RoomReservation released = reload("h-1");
+        assertEquals(RoomReservation.Status.RELEASED, released.getStatus());
+        assertNull(released.getExpiresAt());
+        assertEquals(1, meters.get("hotel.holds.expired").counter().count());
+        assertEquals(1, meters.get("hotel.holds.sweep").timer().count());
+    }
+
+    @Test
+    void committedHold_isLeftAlone() {
+        sweeper.onHeld(held("h-commit", base.plusSeconds(60)));
+
+        handler.commitHold("h-commit");
+
+        assertEquals(0, sweeper.sweep(base.plusSeconds(61)));
+        assertEquals(RoomReservation.Status.COMMITTED, reload("h-commit").getStatus());
+        assertEquals(0, sweeper.backlog());
+    }
+
+    @Test
+    void recover_schedulesHeldRowsFromTable() {
+        held("h-a", base.plusSeconds(10));
+        held("h-b", base.plusSeconds(7200));
+        holds.save(RoomReservation.builder()
+                .roomId(2L)
+                .requestId("c-1")
+                .startDate(LocalDate.of(2025, 10, 1))
+                .endDate(LocalDate.of(2025, 10, 5))
+                .status(RoomReservation.Status.COMMITTED)
+                .build());
+
+        sweeper.recover();
+
+        assertEquals(2, meters.get("hotel.holds.expiry.backlog").gauge().value());
+        assertEquals(1, sweeper.sweep(base.plusSeconds(11)));
+        assertEquals(RoomReservation.Status.HELD, reload("h-b").getStatus());
+        assertEquals(1, sweeper.sweep(base.plusSeconds(7201)));
+        assertEquals(RoomReservation.Status.RELEASED, reload("h-b").getStatus());
+        assertEquals(RoomReservation.Status.COMMITTED, reload("c-1").getStatus());
+    }
+
+    @Test
+    void recover_doesNothing_whenDisabled() {
+        held("h-a", base.plusSeconds(10));
+        var disabled = new HoldExpirySweeper(holds, index, tx, meters, false, 1000, 60, Clock.fixed(base, ZoneOffset.UTC));
+
+        disabled.recover();
+
+        assertEquals(0, disabled.backlog());
+    }
+
+    @Test
+    void rescan_releasesOverdueHoldsThisInstanceNeverScheduled() {
+        // held through another replica that died before its deadline
+        held("h-lost", base.minusSeconds(5));
+        held("h-live", base.plusSeconds(60));
+
+        assertEquals(0, sweeper.backlog());
+        assertEquals(1, sweeper.rescan(base));
+        assertEquals(RoomReservation.Status.RELEASED, reload("h-lost").getStatus());
+        assertEquals(RoomReservation.Status.HELD, reload("h-live").getStatus());
+        assertEquals(1, meters.get("hotel.holds.expired").counter().count());
+        assertEquals(0, sweeper.rescan(base));
+    }
+
+    @Test
+    void tick_rescansEveryRescanTicks() {
+        held("h-lost", base.minusSeconds(5));
+        var everyThird = new HoldExpirySweeper(holds, index, tx, meters, true, 1000, 3, Clock.fixed(base, ZoneOffset.UTC));
+
+        everyThird.tick();
+        everyThird.tick();
+        assertEquals(RoomReservation.Status.HELD, reload("h-lost").getStatus());
+
+        everyThird.tick();
+        assertEquals(RoomReservation.Status.RELEASED, reload("h-lost").getStatus());
+    }
+}
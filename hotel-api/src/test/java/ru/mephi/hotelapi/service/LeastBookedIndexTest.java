@@ -0,0 +1,101 @@
+package ru.mephi.hotelapi.service;
+
+import ru.mephi.hotelapi.domain.Room;
+import ru.mephi.hotelapi.repo.RoomRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LeastBookedIndexTest {
+
+    @Mock
+    private RoomRepository rooms;
+
+    private LeastBookedIndex ranking;
+
+    @BeforeEach
+    void setUp() {
+        ranking = new LeastBookedIndex(rooms, true);
+    }
+
+    private static Room room(long id, long hotelId, int timesBooked, boolean available) {
+        return Room.builder().id(id).hotelId(hotelId).number("R" + id).available(available).timesBooked(timesBooked).build();
+    }
+
+    private List<Long> ranked(long hotelId) {
+        List<Long> ids = new ArrayList<>();
+        ranking.leastBookedRooms(hotelId).forEach(ids::add);
+        return ids;
+    }
+
+    @Test
+    void rebuild_ordersRoomsByTimesBookedThenId_perHotel() {
+        when(rooms.findAll()).thenReturn(List.of(
+                room(1, 1, 5, true), room(2, 1, 0, true), room(3, 1, 0, true), room(4, 2, 1, true)));
+
+        assertFalse(ranking.isReady());
+        ranking.rebuild();
+
+        assertTrue(ranking.isReady());
+        assertEquals(List.of(2L, 3L, 1L), ranked(1));
+        assertEquals(List.of(4L), ranked(2));
+        assertEquals(List.of(), ranked(99));
+    }
+
+    @Test
+    void rebuild_skipsUnavailableRooms() {
+        when(rooms.findAll()).thenReturn(List.of(room(1, 1, 0, false), room(2, 1, 3, true)));
+        ranking.rebuild();
+
+        assertEquals(List.of(2L), ranked(1));
+    }
+
+    @Test
+    void onSaved_reranksBookedRoom() {
+        when(rooms.findAll()).thenReturn(List.of(room(1, 1, 0, true), room(2, 1, 1, true)));
+        ranking.rebuild();
+
+        ranking.onSaved(room(1, 1, 2, true));
+
+        assertEquals(List.of(2L, 1L), ranked(1));
+    }
+
+    @Test
+    void onSaved_addsNewRoom() {
+        when(rooms.findAll()).thenReturn(List.of(room(1, 1, 1, true)));
+        ranking.rebuild();
+
+        ranking.onSaved(room(2, 1, 0, true));
+
+        assertEquals(List.of(2L, 1L), ranked(1));
+    }
+
+    @Test
+    void onSaved_ignoresOutOfOrderStaleUpdate() {
+        when(rooms.findAll()).thenReturn(List.of(room(1, 1, 0, true), room(2, 1, 2, true)));
+        ranking.rebuild();
+
+        ranking.onSaved(room(1, 1, 3, true));
+        ranking.onSaved(room(1, 1, 1, true));
+
+        assertEquals(List.of(2L, 1L), ranked(1));
+    }
+
+    @Test
+    void onSaved_isNoop_whenDisabled() {
+        LeastBookedIndex disabled = new LeastBookedIndex(rooms, false);
+
+        disabled.onSaved(room(1, 1, 0, true));
+
+        assertFalse(disabled.leastBookedRooms(1L).iterator().hasNext());
+    }
+}
@@ -0,0 +1,76 @@
+package ru.mephi.hotelapi.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OccupancyCalendarTest {
+
+    private static final LocalDate ORIGIN = LocalDate.of(2025, 1, 1);
+
+    private static LocalDate day(int offset) {
+        return ORIGIN.plusDays(offset);
+    }
+
+    @Test
+    void covers_onlyRangesFullyInsideWindow() {
+        OccupancyCalendar calendar = new OccupancyCalendar(ORIGIN, 730);
+
+        assertTrue(calendar.covers(day(0), day(729)));
+        assertFalse(calendar.covers(day(-1), day(3)));
+        assertFalse(calendar.covers(day(700), day(730)));
+    }
+
+    @Test
+    void mark_andIsFree_acrossWordBoundaries() {
+        OccupancyCalendar calendar = new OccupancyCalendar(ORIGIN, 730);
+
+        calendar.mark(day(60), day(130));
+
+        assertTrue(calendar.isFree(day(0), day(59)));
+        assertFalse(calendar.isFree(day(59), day(60)));
+        assertFalse(calendar.isFree(day(63), day(64)));
+        assertFalse(calendar.isFree(day(127), day(128)));
+        assertFalse(calendar.isFree(day(130), day(200)));
+        assertTrue(calendar.isFree(day(131), day(729)));
+        assertFalse(calendar.isFree(day(0), day(729)));
+    }
+
+    @Test
+    void clear_freesOnlyTheGivenNights() {
+        OccupancyCalendar calendar = new OccupancyCalendar(ORIGIN, 730);
+        calendar.mark(day(10), day(20));
+        calendar.mark(day(21), day(25));
+
+        calendar.clear(day(10), day(20));
+
+        assertTrue(calendar.isFree(day(10), day(20)));
+        assertFalse(calendar.isFree(day(21), day(21)));
+        assertFalse(calendar.isFree(day(25), day(30)));
+    }
+
+    @Test
+    void mark_clipsRangesStickingOutOfWindow() {
+        OccupancyCalendar calendar = new OccupancyCalendar(ORIGIN, 100);
+
+        calendar.mark(day(-30), day(2));
+        calendar.mark(day(98), day(400));
+
+        assertFalse(calendar.isFree(day(0), day(0)));
+        assertTrue(calendar.isFree(day(3), day(97)));
+        assertFalse(calendar.isFree(day(99), day(99)));
+    }
+
+    @Test
+    void singleNight_atLastBitOfWord() {
+        OccupancyCalendar calendar = new OccupancyCalendar(ORIGIN, 128);
+
+        calendar.mark(day(63), day(63));
+
+        assertTrue(calendar.isFree(day(0), day(62)));
+        assertFalse(calendar.isFree(day(63), day(63)));
+        assertTrue(calendar.isFree(day(64), day(127)));
+    }
+}
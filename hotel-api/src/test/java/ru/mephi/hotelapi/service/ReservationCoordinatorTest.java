@@ -0,0 +1,104 @@
+package ru.mephi.hotelapi.service;
+
+import ru.mephi.hotelapi.domain.RoomReservation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReservationCoordinatorTest {
+
+    @Mock
+    private ReservationHandler handler;
+
+    private final RoomLockStripes stripes = new RoomLockStripes(16, 1000);
+
+    private static final Long ROOM_ID = 1L;
+    private static final String REQUEST_ID = "req-123";
+    private static final LocalDate START = LocalDate.of(2025, 10, 1);
+    private static final LocalDate END = LocalDate.of(2025, 10, 5);
+
+    private ReservationCoordinator coordinator(ReservationCoordinator.LockMode mode) {
+        return new ReservationCoordinator(handler, stripes, mode, 3);
+    }
+
+    @Test
+    void pessimisticMode_delegatesToLockingConfirm() {
+        RoomReservation hold = RoomReservation.builder().roomId(ROOM_ID).requestId(REQUEST_ID).build();
+        when(handler.confirm(ROOM_ID, REQUEST_ID, START, END)).thenReturn(hold);
+
+        assertSame(hold, coordinator(ReservationCoordinator.LockMode.PESSIMISTIC).confirm(ROOM_ID, REQUEST_ID, START, END));
+        verify(handler, never()).confirmOptimistic(any(), any(), any(), any());
+    }
+
+    @Test
+    void stripedMode_usesOptimisticConfirm() {
+        RoomReservation hold = RoomReservation.builder().roomId(ROOM_ID).requestId(REQUEST_ID).build();
+        when(handler.confirmOptimistic(ROOM_ID, REQUEST_ID, START, END)).thenReturn(hold);
+
+        assertSame(hold, coordinator(ReservationCoordinator.LockMode.STRIPED).confirm(ROOM_ID, REQUEST_ID, START, END));
+        verify(handler, never()).confirm(any(), any(), any(), any());
+    }
+
+    @Test
+    void versionConflict_isRetried() {
+        RoomReservation hold = RoomReservation.builder().roomId(ROOM_ID).requestId(REQUEST_ID).build();
+        when(handler.confirmOptimistic(ROOM_ID, REQUEST_ID, START, END))
+                .thenThrow(new ObjectOptimisticLockingFailureException("Room", ROOM_ID))
+                .thenReturn(hold);
+
+        assertSame(hold, coordinator(ReservationCoordinator.LockMode.STRIPED).confirm(ROOM_ID, REQUEST_ID, START, END));
+        verify(handler, times(2)).confirmOptimistic(ROOM_ID, REQUEST_ID, START, END);
+    }
+
+    @Test
+    void versionConflict_givesUpAfterMaxAttempts() {
+        when(handler.confirm(ROOM_ID, REQUEST_ID, START, END))
+                .thenThrow(new ObjectOptimisticLockingFailureException("Room", ROOM_ID));
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> coordinator(ReservationCoordinator.LockMode.PESSIMISTIC).confirm(ROOM_ID, REQUEST_ID, START, END));
+        verify(handler, times(3)).confirm(ROOM_ID, REQUEST_ID, START, END);
+    }
+
+    @Test
+    void roomNotAvailable_isNotRetried() {
+        when(handler.confirmOptimistic(ROOM_ID, REQUEST_ID, START, END))
+                .thenThrow(new IllegalStateException("ROOM_NOT_AVAILABLE"));
+
+        assertThrows(IllegalStateException.class,
+                () -> coordinator(ReservationCoordinator.LockMode.STRIPED).confirm(ROOM_ID, REQUEST_ID, START, END));
+        verify(handler, times(1)).confirmOptimistic(ROOM_ID, REQUEST_ID, START, END);
+    }
+
+    @Test
+    void requestIdClash_answersWithStoredHold() {
+        RoomReservation stored = RoomReservation.builder().roomId(ROOM_ID).requestId(REQUEST_ID).build();
+        when(handler.confirm(ROOM_ID, REQUEST_ID, START, END))
+                .thenThrow(new DataIntegrityViolationException("ux_request_id"));
+        when(handler.find(REQUEST_ID)).thenReturn(Optional.of(stored));
+
+        assertSame(stored, coordinator(ReservationCoordinator.LockMode.PESSIMISTIC).confirm(ROOM_ID, REQUEST_ID, START, END));
+        verify(handler, times(1)).confirm(ROOM_ID, REQUEST_ID, START, END);
+    }
+
+    @Test
+    void otherIntegrityViolation_isRethrown() {
+        when(handler.confirmOptimistic(ROOM_ID, REQUEST_ID, START, END))
+                .thenThrow(new DataIntegrityViolationException("room_id not null"));
+        when(handler.find(REQUEST_ID)).thenReturn(Optional.empty());
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> coordinator(ReservationCoordinator.LockMode.STRIPED).confirm(ROOM_ID, REQUEST_ID, START, END));
+    }
+}
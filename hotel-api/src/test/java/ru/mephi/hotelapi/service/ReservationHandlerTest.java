@@ -4,6 +4,7 @@ import ru.mephi.hotelapi.domain.Room;
 import ru.mephi.hotelapi.domain.RoomReservation;
 import ru.mephi.hotelapi.repo.RoomReservationRepository;
 import ru.mephi.hotelapi.repo.RoomRepository;
+import ru.mephi.commonlib.error.exceptions.HoldExpiredException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,9 +13,11 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -30,6 +33,18 @@ class ReservationHandlerTest {
     @Mock
     private RoomRepository rooms;
 
+    @Mock
+    private RoomHoldIndex index;
+
+    @Mock
+    private LeastBookedIndex ranking;
+
+    @Mock
+    private HoldExpirySweeper sweeper;
+
+    @Mock
+    private SeenHoldRequests seenRequests;
+
     @InjectMocks
     private ReservationHandler holdService;
 
@@ -39,6 +54,7 @@ class ReservationHandlerTest {
     @BeforeEach
     void setUp() {
         reset(holds, rooms);
+        lenient().when(seenRequests.find(any())).thenAnswer(inv -> holds.findByRequestId(inv.getArgument(0)));
     }
 
     @Test
@@ -255,4 +271,167 @@ class ReservationHandlerTest {
 
         verify(holds).updateStatusByRequest(REQUEST_ID, ROOM_ID, RoomReservation.Status.RELEASED);
     }
+
+    @Test
+    void confirm_publishesCommittedHoldToIndex() {
+        LocalDate start = LocalDate.of(2025, 10, 1);
+        LocalDate end = LocalDate.of(2025, 10, 5);
+
+        when(holds.findByRequestId(REQUEST_ID)).thenReturn(Optional.empty());
+        when(holds.findIntersectingForUpdate(ROOM_ID, start, end)).thenReturn(Collections.emptyList());
+        when(rooms.findById(ROOM_ID)).thenReturn(Optional.of(Room.builder().id(ROOM_ID).hotelId(1L).build()));
+        when(holds.save(any(RoomReservation.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        RoomReservation saved = holdService.confirm(ROOM_ID, REQUEST_ID, start, end);
+
+        verify(index).onCommitted(saved);
+    }
+
+    @Test
+    void release_removesHoldFromIndex() {
+        when(holds.findByRequestId(REQUEST_ID)).thenReturn(Optional.of(RoomReservation.builder()
+                .roomId(ROOM_ID)
+                .requestId(REQUEST_ID)
+                .status(RoomReservation.Status.COMMITTED)
+                .build()));
+
+        holdService.release(ROOM_ID, REQUEST_ID);
+
+        verify(index).onReleased(REQUEST_ID);
+    }
+
+    @Test
+    void confirmOptimistic_checksWithoutRowLocks_andBumpsRoom() {
+        LocalDate start = LocalDate.of(2025, 10, 1);
+        LocalDate end = LocalDate.of(2025, 10, 5);
+
+        when(holds.findByRequestId(REQUEST_ID)).thenReturn(Optional.empty());
+        when(holds.findIntersecting(ROOM_ID, start, end)).thenReturn(Collections.emptyList());
+        when(rooms.findById(ROOM_ID)).thenReturn(Optional.of(Room.builder().id(ROOM_ID).hotelId(1L).timesBooked(2).build()));
+        when(holds.save(any(RoomReservation.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        RoomReservation result = holdService.confirmOptimistic(ROOM_ID, REQUEST_ID, start, end);
+
+        assertEquals(RoomReservation.Status.COMMITTED, result.getStatus());
+        verify(holds, never()).findIntersectingForUpdate(any(), any(), any());
+        ArgumentCaptor<Room> roomCaptor = ArgumentCaptor.forClass(Room.class);
+        verify(rooms).save(roomCaptor.capture());
+        assertEquals(3, roomCaptor.getValue().getTimesBooked());
+    }
+
+    @Test
+    void confirmOptimistic_throwsException_whenRoomNotAvailable() {
+        LocalDate start = LocalDate.of(2025, 10, 1);
+        LocalDate end = LocalDate.of(2025, 10, 5);
+
+        when(holds.findByRequestId(REQUEST_ID)).thenReturn(Optional.empty());
+        when(holds.findIntersecting(ROOM_ID, start, end)).thenReturn(List.of(RoomReservation.builder()
+                .roomId(ROOM_ID)
+                .requestId("other-request")
+                .startDate(start)
+                .endDate(end)
+                .status(RoomReservation.Status.COMMITTED)
+                .build()));
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> holdService.confirmOptimistic(ROOM_ID, REQUEST_ID, start, end));
+
+        assertEquals("ROOM_NOT_AVAILABLE", exception.getMessage());
+        verify(holds, never()).save(any());
+    }
+
+    @Test
+    void hold_writesHeldWithExpiry_andSchedulesIt() {
+        LocalDate start = LocalDate.of(2025, 10, 1);
+        LocalDate end = LocalDate.of(2025, 10, 5);
+        Instant expiresAt = Instant.now().plusSeconds(900);
+
+        when(holds.findByRequestId(REQUEST_ID)).thenReturn(Optional.empty());
+        when(holds.findIntersectingForUpdate(ROOM_ID, start, end)).thenReturn(Collections.emptyList());
+        when(rooms.findById(ROOM_ID)).thenReturn(Optional.of(Room.builder().id(ROOM_ID).hotelId(1L).build()));
+        when(holds.save(any(RoomReservation.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        RoomReservation result = holdService.hold(ROOM_ID, REQUEST_ID, start, end, expiresAt);
+
+        assertEquals(RoomReservation.Status.HELD, result.getStatus());
+        assertEquals(expiresAt, result.getExpiresAt());
+        verify(sweeper).onHeld(result);
+        verify(index).onCommitted(result);
+    }
+
+    @Test
+    void confirm_doesNotScheduleExpiry() {
+        LocalDate start = LocalDate.of(2025, 10, 1);
+        LocalDate end = LocalDate.of(2025, 10, 5);
+
+        when(holds.findByRequestId(REQUEST_ID)).thenReturn(Optional.empty());
+        when(holds.findIntersectingForUpdate(ROOM_ID, start, end)).thenReturn(Collections.emptyList());
+        when(rooms.findById(ROOM_ID)).thenReturn(Optional.of(Room.builder().id(ROOM_ID).hotelId(1L).build()));
+        when(holds.save(any(RoomReservation.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        RoomReservation result = holdService.confirm(ROOM_ID, REQUEST_ID, start, end);
+
+        assertNull(result.getExpiresAt());
+        verify(sweeper, never()).onHeld(any());
+    }
+
+    @Test
+    void commitHold_commitsLiveHold() {
+        when(holds.findByRequestId(REQUEST_ID)).thenReturn(Optional.of(RoomReservation.builder()
+                .roomId(ROOM_ID)
+                .requestId(REQUEST_ID)
+                .status(RoomReservation.Status.HELD)
+                .expiresAt(Instant.now().plusSeconds(60))
+                .build()));
+        when(holds.commitHeld(eq(REQUEST_ID), any())).thenReturn(1);
+
+        RoomReservation result = holdService.commitHold(REQUEST_ID);
+
+        assertEquals(RoomReservation.Status.COMMITTED, result.getStatus());
+        assertNull(result.getExpiresAt());
+    }
+
+    @Test
+    void commitHold_isIdempotent_onceCommitted() {
+        when(holds.findByRequestId(REQUEST_ID)).thenReturn(Optional.of(RoomReservation.builder()
+                .roomId(ROOM_ID)
+                .requestId(REQUEST_ID)
+                .status(RoomReservation.Status.COMMITTED)
+                .build()));
+
+        assertEquals(RoomReservation.Status.COMMITTED, holdService.commitHold(REQUEST_ID).getStatus());
+        verify(holds, never()).commitHeld(any(), any());
+    }
+
+    @Test
+    void commitHold_throwsHoldExpired_whenDeadlinePassed() {
+        when(holds.findByRequestId(REQUEST_ID)).thenReturn(Optional.of(RoomReservation.builder()
+                .roomId(ROOM_ID)
+                .requestId(REQUEST_ID)
+                .status(RoomReservation.Status.HELD)
+                .expiresAt(Instant.now().minusSeconds(1))
+                .build()));
+        when(holds.commitHeld(eq(REQUEST_ID), any())).thenReturn(0);
+
+        assertThrows(HoldExpiredException.class, () -> holdService.commitHold(REQUEST_ID));
+    }
+
+    @Test
+    void commitHold_throwsHoldExpired_whenReleased() {
+        when(holds.findByRequestId(REQUEST_ID)).thenReturn(Optional.of(RoomReservation.builder()
+                .roomId(ROOM_ID)
+                .requestId(REQUEST_ID)
+                .status(RoomReservation.Status.RELEASED)
+                .build()));
+
+        assertThrows(HoldExpiredException.class, () -> holdService.commitHold(REQUEST_ID));
+        verify(holds, never()).commitHeld(any(), any());
+    }
+
+    @Test
+    void commitHold_throwsNotFound_forUnknownRequest() {
+        when(holds.findByRequestId(REQUEST_ID)).thenReturn(Optional.empty());
+
+        assertThrows(NoSuchElementException.class, () -> holdService.commitHold(REQUEST_ID));
+    }
 }
@@ -0,0 +1,97 @@
+package ru.mephi.hotelapi.service;
+
+import ru.mephi.hotelapi.domain.Room;
+import ru.mephi.hotelapi.domain.RoomReservation;
+import ru.mephi.hotelapi.repo.RoomReservationRepository;
+import ru.mephi.hotelapi.repo.RoomRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ReservationLockModesTest {
+
+    @Autowired ReservationCoordinator coordinator;
+    @Autowired RoomRepository rooms;
+    @Autowired RoomReservationRepository holds;
+
+    private static final int THREADS = 12;
+
+    private Room room;
+
+    @BeforeEach
+    void setUp() {
+        holds.deleteAll();
+        rooms.deleteAll();
+        room = rooms.save(Room.builder().hotelId(1L).number("101").available(true).build());
+    }
+
+    @ParameterizedTest
+    @EnumSource(ReservationCoordinator.LockMode.class)
+    void overlappingConcurrentConfirms_commitExactlyOnce(ReservationCoordinator.LockMode mode) throws Exception {
+        int committed = race(i -> {
+            coordinator.confirm(mode, room.getId(), mode + "-overlap-" + i,
+                    LocalDate.of(2025, 10, 1), LocalDate.of(2025, 10, 5));
+            return null;
+        });
+
+        assertEquals(1, committed);
+        assertEquals(1, holds.findIntersecting(room.getId(), LocalDate.of(2025, 10, 1), LocalDate.of(2025, 10, 5)).size());
+        assertEquals(1, rooms.findById(room.getId()).orElseThrow().getTimesBooked());
+    }
+
+    @Test
+    void stripedMode_disjointConcurrentConfirms_allCommit_withoutLostUpdates() throws Exception {
+        int committed = race(i -> {
+            LocalDate start = LocalDate.of(2025, 1, 1).plusDays(10L * i);
+            coordinator.confirm(ReservationCoordinator.LockMode.STRIPED, room.getId(), "disjoint-" + i, start, start.plusDays(2));
+            return null;
+        });
+
+        assertEquals(THREADS, committed);
+        assertEquals(THREADS, rooms.findById(room.getId()).orElseThrow().getTimesBooked());
+        assertEquals(THREADS, holds.findByStatusNot(RoomReservation.Status.RELEASED).size());
+    }
+
+    private int race(IntFunction<Void> confirm) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            int n = i;
+            results.add(pool.submit(() -> {
+                go.await();
+                try {
+                    confirm.apply(n);
+                    return true;
+                } catch (RuntimeException e) {
+                    return false;
+                }
+            }));
+        }
+        go.countDown();
+        int committed = 0;
+        for (Future<Boolean> r : results) {
+            if (r.get(30, TimeUnit.SECONDS)) committed++;
+        }
+        pool.shutdown();
+        return committed;
+    }
+}
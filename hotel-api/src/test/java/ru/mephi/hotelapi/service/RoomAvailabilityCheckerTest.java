@@ -1,6 +1,8 @@
 package ru.mephi.hotelapi.service;
 
+import ru.mephi.hotelapi.domain.Room;
 import ru.mephi.hotelapi.domain.RoomReservation;
+import ru.mephi.hotelapi.repo.RoomRepository;
 import ru.mephi.hotelapi.repo.RoomReservationRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -22,6 +24,12 @@ class RoomAvailabilityCheckerTest {
     @Mock
     private RoomReservationRepository holds;
 
+    @Mock
+    private RoomRepository rooms;
+
+    @Mock
+    private RoomHoldIndex index;
+
     @InjectMocks
     private RoomAvailabilityChecker availabilityService;
 
@@ -29,7 +37,7 @@ class RoomAvailabilityCheckerTest {
 
     @BeforeEach
     void setUp() {
-        reset(holds);
+        reset(holds, rooms);
     }
 
     @Test
@@ -155,4 +163,47 @@ class RoomAvailabilityCheckerTest {
         assertTrue(result);
         verify(holds).findIntersecting(ROOM_ID, date, date);
     }
+
+    @Test
+    void availableRoomIds_usesSingleSetBasedQuery() {
+        LocalDate start = LocalDate.of(2025, 10, 1);
+        LocalDate end = LocalDate.of(2025, 10, 5);
+
+        when(rooms.findFreeRooms(7L, start, end)).thenReturn(List.of(
+                Room.builder().id(3L).hotelId(7L).available(true).build(),
+                Room.builder().id(1L).hotelId(7L).available(true).build()));
+
+        assertEquals(List.of(3L, 1L), List.copyOf(availabilityService.availableRoomIds(7L, start, end)));
+        verify(rooms).findFreeRooms(7L, start, end);
+        verifyNoInteractions(holds);
+    }
+
+    @Test
+    void isAvailable_answersFromIndex_whenReady() {
+        LocalDate start = LocalDate.of(2025, 10, 1);
+        LocalDate end = LocalDate.of(2025, 10, 5);
+
+        when(index.isReady()).thenReturn(true);
+        when(index.isFree(ROOM_ID, start, end)).thenReturn(false);
+
+        assertFalse(availabilityService.isAvailable(ROOM_ID, start, end));
+        verifyNoInteractions(holds);
+    }
+
+    @Test
+    void availableRoomIds_filtersHotelRoomsThroughIndex_whenReady() {
+        LocalDate start = LocalDate.of(2025, 10, 1);
+        LocalDate end = LocalDate.of(2025, 10, 5);
+
+        when(index.isReady()).thenReturn(true);
+        when(rooms.findByHotelId(7L)).thenReturn(List.of(
+                Room.builder().id(1L).hotelId(7L).available(true).build(),
+                Room.builder().id(2L).hotelId(7L).available(false).build(),
+                Room.builder().id(3L).hotelId(7L).available(true).build()));
+        when(index.isFree(1L, start, end)).thenReturn(false);
+        when(index.isFree(3L, start, end)).thenReturn(true);
+
+        assertEquals(List.of(3L), List.copyOf(availabilityService.availableRoomIds(7L, start, end)));
+        verify(rooms, never()).findFreeRooms(any(), any(), any());
+    }
 }
@@ -0,0 +1,130 @@
+package ru.mephi.hotelapi.service;
+
+import ru.mephi.hotelapi.domain.RoomReservation;
+import ru.mephi.hotelapi.repo.RoomReservationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RoomHoldIndexTest {
+
+    @Mock
+    private RoomReservationRepository holds;
+
+    private RoomHoldIndex index;
+
+    private static final Long ROOM_ID = 1L;
+
+    @BeforeEach
+    void setUp() {
+        index = new RoomHoldIndex(holds, true, 730, Clock.fixed(Instant.parse("2025-09-01T00:00:00Z"), ZoneOffset.UTC));
+    }
+
+    private static RoomReservation hold(String requestId, Long roomId, LocalDate start, LocalDate end) {
+        return RoomReservation.builder()
+                .roomId(roomId)
+                .requestId(requestId)
+                .startDate(start)
+                .endDate(end)
+                .status(RoomReservation.Status.COMMITTED)
+                .build();
+    }
+
+    @Test
+    void isNotReady_untilBuilt() {
+        assertFalse(index.isReady());
+
+        when(holds.findByStatusNot(RoomReservation.Status.RELEASED)).thenReturn(List.of());
+        index.rebuild();
+
+        assertTrue(index.isReady());
+    }
+
+    @Test
+    void rebuild_loadsLiveHolds_andAnswersOverlaps() {
+        when(holds.findByStatusNot(RoomReservation.Status.RELEASED)).thenReturn(List.of(
+                hold("a", ROOM_ID, LocalDate.of(2025, 10, 1), LocalDate.of(2025, 10, 5)),
+                hold("b", ROOM_ID, LocalDate.of(2025, 10, 10), LocalDate.of(2025, 10, 12))));
+
+        assertEquals(2, index.rebuild());
+
+        assertFalse(index.isFree(ROOM_ID, LocalDate.of(2025, 10, 3), LocalDate.of(2025, 10, 4)));
+        assertFalse(index.isFree(ROOM_ID, LocalDate.of(2025, 9, 28), LocalDate.of(2025, 10, 1)));
+        assertFalse(index.isFree(ROOM_ID, LocalDate.of(2025, 10, 5), LocalDate.of(2025, 10, 10)));
+        assertFalse(index.isFree(ROOM_ID, LocalDate.of(2025, 9, 1), LocalDate.of(2025, 12, 1)));
+        assertTrue(index.isFree(ROOM_ID, LocalDate.of(2025, 10, 6), LocalDate.of(2025, 10, 9)));
+        assertTrue(index.isFree(ROOM_ID, LocalDate.of(2025, 10, 13), LocalDate.of(2025, 10, 20)));
+        assertTrue(index.isFree(2L, LocalDate.of(2025, 10, 1), LocalDate.of(2025, 10, 5)));
+    }
+
+    @Test
+    void onCommitted_andOnReleased_keepIndexInSync_outsideTransaction() {
+        when(holds.findByStatusNot(RoomReservation.Status.RELEASED)).thenReturn(List.of());
+        index.rebuild();
+
+        index.onCommitted(hold("a", ROOM_ID, LocalDate.of(2025, 10, 1), LocalDate.of(2025, 10, 5)));
+        assertFalse(index.isFree(ROOM_ID, LocalDate.of(2025, 10, 2), LocalDate.of(2025, 10, 2)));
+
+        index.onReleased("a");
+        assertTrue(index.isFree(ROOM_ID, LocalDate.of(2025, 10, 2), LocalDate.of(2025, 10, 2)));
+    }
+
+    @Test
+    void verify_reportsMissingAndStaleHolds() {
+        RoomReservation a = hold("a", ROOM_ID, LocalDate.of(2025, 10, 1), LocalDate.of(2025, 10, 5));
+        RoomReservation b = hold("b", 2L, LocalDate.of(2025, 10, 1), LocalDate.of(2025, 10, 5));
+        when(holds.findByStatusNot(RoomReservation.Status.RELEASED)).thenReturn(List.of(a));
+        index.rebuild();
+        index.onCommitted(b);
+
+        RoomReservation c = hold("c", 3L, LocalDate.of(2025, 11, 1), LocalDate.of(2025, 11, 5));
+        when(holds.findByStatusNot(RoomReservation.Status.RELEASED)).thenReturn(List.of(a, c));
+
+        RoomHoldIndex.ConsistencyReport report = index.verify();
+
+        assertFalse(report.consistent());
+        assertEquals(List.of("c"), report.missing());
+        assertEquals(List.of("b"), report.stale());
+    }
+
+    @Test
+    void disabledIndex_ignoresUpdates() {
+        RoomHoldIndex disabled = new RoomHoldIndex(holds, false, 730, Clock.systemUTC());
+
+        disabled.onCommitted(hold("a", ROOM_ID, LocalDate.of(2025, 10, 1), LocalDate.of(2025, 10, 5)));
+
+        assertFalse(disabled.isReady());
+        assertTrue(disabled.isFree(ROOM_ID, LocalDate.of(2025, 10, 1), LocalDate.of(2025, 10, 5)));
+    }
+
+    @Test
+    void rangesOutsideHorizon_fallBackToHoldRanges() {
+        RoomHoldIndex shortHorizon = new RoomHoldIndex(
+                holds, true, 30, Clock.fixed(Instant.parse("2025-09-01T00:00:00Z"), ZoneOffset.UTC));
+        when(holds.findByStatusNot(RoomReservation.Status.RELEASED)).thenReturn(List.of(
+                hold("past", ROOM_ID, LocalDate.of(2025, 8, 20), LocalDate.of(2025, 9, 2)),
+                hold("edge", ROOM_ID, LocalDate.of(2025, 9, 28), LocalDate.of(2025, 10, 4)),
+                hold("far", ROOM_ID, LocalDate.of(2026, 3, 1), LocalDate.of(2026, 3, 5))));
+        shortHorizon.rebuild();
+
+        assertFalse(shortHorizon.isFree(ROOM_ID, LocalDate.of(2025, 8, 25), LocalDate.of(2025, 8, 26)));
+        assertFalse(shortHorizon.isFree(ROOM_ID, LocalDate.of(2025, 9, 2), LocalDate.of(2025, 9, 2)));
+        assertTrue(shortHorizon.isFree(ROOM_ID, LocalDate.of(2025, 9, 3), LocalDate.of(2025, 9, 27)));
+        assertFalse(shortHorizon.isFree(ROOM_ID, LocalDate.of(2025, 9, 30), LocalDate.of(2025, 9, 30)));
+        assertFalse(shortHorizon.isFree(ROOM_ID, LocalDate.of(2025, 10, 3), LocalDate.of(2025, 10, 10)));
+        assertTrue(shortHorizon.isFree(ROOM_ID, LocalDate.of(2025, 10, 5), LocalDate.of(2026, 2, 28)));
+        assertFalse(shortHorizon.isFree(ROOM_ID, LocalDate.of(2026, 3, 5), LocalDate.of(2026, 3, 9)));
+    }
+}
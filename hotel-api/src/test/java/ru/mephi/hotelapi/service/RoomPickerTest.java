@@ -0,0 +1,144 @@
+package ru.mephi.hotelapi.service;
+
+import ru.mephi.commonlib.error.exceptions.RoomNotAvailableException;
+import ru.mephi.hotelapi.domain.Room;
+import ru.mephi.hotelapi.domain.RoomReservation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RoomPickerTest {
+
+    @Mock
+    private SeenHoldRequests seenRequests;
+
+    @Mock
+    private RoomAvailabilityChecker availability;
+
+    @Mock
+    private LeastBookedIndex ranking;
+
+    @Mock
+    private ReservationCoordinator coordinator;
+
+    @Mock
+    private ReservationHandler handler;
+
+    private RoomPicker picker;
+
+    private static final Long HOTEL_ID = 1L;
+    private static final String REQUEST_ID = "req-123";
+    private static final LocalDate START = LocalDate.of(2025, 10, 1);
+    private static final LocalDate END = LocalDate.of(2025, 10, 5);
+
+    @BeforeEach
+    void setUp() {
+        picker = new RoomPicker(seenRequests, availability, ranking, coordinator, handler, 3);
+        lenient().when(seenRequests.find(REQUEST_ID)).thenReturn(Optional.empty());
+    }
+
+    private static RoomReservation hold(Long roomId) {
+        return RoomReservation.builder().roomId(roomId).requestId(REQUEST_ID).status(RoomReservation.Status.COMMITTED).build();
+    }
+
+    private static Room room(long id, int timesBooked) {
+        return Room.builder().id(id).hotelId(HOTEL_ID).available(true).timesBooked(timesBooked).build();
+    }
+
+    @Test
+    void returnsExistingHold_forRepeatedRequest() {
+        RoomReservation existing = hold(7L);
+        when(seenRequests.find(REQUEST_ID)).thenReturn(Optional.of(existing));
+
+        assertSame(existing, picker.pick(HOTEL_ID, REQUEST_ID, START, END));
+        verifyNoInteractions(coordinator);
+    }
+
+    @Test
+    void walksIndex_skippingRoomsThatAreBusy() {
+        when(ranking.isReady()).thenReturn(true);
+        when(ranking.leastBookedRooms(HOTEL_ID)).thenReturn(List.of(1L, 2L, 3L));
+        when(availability.isAvailable(1L, START, END)).thenReturn(false);
+        when(availability.isAvailable(2L, START, END)).thenReturn(true);
+        when(coordinator.confirm(2L, REQUEST_ID, START, END)).thenReturn(hold(2L));
+
+        assertEquals(2L, picker.pick(HOTEL_ID, REQUEST_ID, START, END).getRoomId());
+        verify(coordinator, never()).confirm(eq(1L), any(), any(), any());
+        verify(availability, never()).availableRooms(any(), any(), any());
+    }
+
+    @Test
+    void movesOn_whenCandidateIsTakenConcurrently() {
+        when(ranking.isReady()).thenReturn(true);
+        when(ranking.leastBookedRooms(HOTEL_ID)).thenReturn(List.of(1L, 2L));
+        when(availability.isAvailable(anyLong(), eq(START), eq(END))).thenReturn(true);
+        when(coordinator.confirm(1L, REQUEST_ID, START, END)).thenThrow(new IllegalStateException("ROOM_NOT_AVAILABLE"));
+        when(coordinator.confirm(2L, REQUEST_ID, START, END)).thenReturn(hold(2L));
+
+        assertEquals(2L, picker.pick(HOTEL_ID, REQUEST_ID, START, END).getRoomId());
+    }
+
+    @Test
+    void givesUp_afterMaxAttempts() {
+        when(ranking.isReady()).thenReturn(true);
+        when(ranking.leastBookedRooms(HOTEL_ID)).thenReturn(List.of(1L, 2L, 3L, 4L));
+        when(availability.isAvailable(anyLong(), eq(START), eq(END))).thenReturn(true);
+        when(coordinator.confirm(anyLong(), eq(REQUEST_ID), eq(START), eq(END)))
+                .thenThrow(new IllegalStateException("ROOM_NOT_AVAILABLE"));
+
+        assertThrows(RoomNotAvailableException.class, () -> picker.pick(HOTEL_ID, REQUEST_ID, START, END));
+        verify(coordinator, times(3)).confirm(anyLong(), eq(REQUEST_ID), eq(START), eq(END));
+    }
+
+    @Test
+    void otherFailures_propagate() {
+        when(ranking.isReady()).thenReturn(true);
+        when(ranking.leastBookedRooms(HOTEL_ID)).thenReturn(List.of(1L, 2L));
+        when(availability.isAvailable(1L, START, END)).thenReturn(true);
+        when(coordinator.confirm(1L, REQUEST_ID, START, END)).thenThrow(new IllegalStateException("ROOM_LOCK_TIMEOUT"));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> picker.pick(HOTEL_ID, REQUEST_ID, START, END));
+        assertEquals("ROOM_LOCK_TIMEOUT", e.getMessage());
+    }
+
+    @Test
+    void fallsBackToAvailabilityQuery_whenIndexNotReady() {
+        when(ranking.isReady()).thenReturn(false);
+        when(availability.availableRooms(HOTEL_ID, START, END)).thenReturn(List.of(room(1, 4), room(2, 0)));
+        when(coordinator.confirm(2L, REQUEST_ID, START, END)).thenReturn(hold(2L));
+
+        assertEquals(2L, picker.pick(HOTEL_ID, REQUEST_ID, START, END).getRoomId());
+        verify(availability, never()).isAvailable(any(), any(), any());
+    }
+
+    @Test
+    void throwsRoomNotAvailable_whenHotelHasNoFreeRoom() {
+        when(ranking.isReady()).thenReturn(false);
+        when(availability.availableRooms(HOTEL_ID, START, END)).thenReturn(List.of());
+
+        assertThrows(RoomNotAvailableException.class, () -> picker.pick(HOTEL_ID, REQUEST_ID, START, END));
+    }
+
+    @Test
+    void returnsStoredHold_whenFilterMissedIt_andNoRoomIsLeft() {
+        // the earlier pick, written by another replica, took the last free room
+        RoomReservation stored = hold(7L);
+        when(ranking.isReady()).thenReturn(false);
+        when(availability.availableRooms(HOTEL_ID, START, END)).thenReturn(List.of());
+        when(handler.find(REQUEST_ID)).thenReturn(Optional.of(stored));
+
+        assertSame(stored, picker.pick(HOTEL_ID, REQUEST_ID, START, END));
+        verifyNoInteractions(coordinator);
+    }
+}
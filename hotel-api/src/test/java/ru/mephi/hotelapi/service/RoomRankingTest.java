@@ -0,0 +1,57 @@
+package ru.mephi.hotelapi.service;
+
+import ru.mephi.hotelapi.domain.Room;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoomRankingTest {
+
+    private static Room room(long id, int timesBooked) {
+        return Room.builder().id(id).hotelId(1L).available(true).timesBooked(timesBooked).build();
+    }
+
+    private static List<Room> shuffledRooms(int n, long seed) {
+        Random rnd = new Random(seed);
+        List<Room> rooms = new ArrayList<>();
+        for (int i = 1; i <= n; i++) rooms.add(room(i, rnd.nextInt(5)));
+        Collections.shuffle(rooms, rnd);
+        return rooms;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 5, 37, 400, 1000})
+    void leastBooked_matchesFullSortPrefix(int k) {
+        List<Room> candidates = shuffledRooms(400, k);
+
+        List<Room> expected = candidates.stream()
+                .sorted(RoomRanking.LEAST_BOOKED_FIRST)
+                .limit(k)
+                .toList();
+
+        assertEquals(expected, RoomRanking.leastBooked(candidates, k));
+    }
+
+    @Test
+    void leastBooked_breaksTiesById() {
+        List<Room> candidates = List.of(room(9, 1), room(3, 1), room(7, 0), room(5, 1));
+
+        assertEquals(List.of(7L, 3L, 5L),
+                RoomRanking.leastBooked(candidates, 3).stream().map(Room::getId).toList());
+        assertEquals(List.of(7L),
+                RoomRanking.leastBooked(candidates, 1).stream().map(Room::getId).toList());
+    }
+
+    @Test
+    void leastBooked_handlesEmptyInputAndNonPositiveK() {
+        assertTrue(RoomRanking.leastBooked(List.of(), 3).isEmpty());
+        assertTrue(RoomRanking.leastBooked(List.of(room(1, 0)), 0).isEmpty());
+    }
+}
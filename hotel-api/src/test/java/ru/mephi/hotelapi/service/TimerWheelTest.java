@@ -0,0 +1,80 @@
+package ru.mephi.hotelapi.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerWheelTest {
+
+    private static final long START = 1_000_000L;
+
+    @Test
+    void firesOnlyOnceDeadlinePassed() {
+        TimerWheel<String> wheel = new TimerWheel<>(10, 8, 3, START);
+        wheel.schedule("a", START + 25);
+
+        assertEquals(List.of(), wheel.advance(START + 20));
+        assertEquals(1, wheel.size());
+        assertEquals(List.of("a"), wheel.advance(START + 30));
+        assertEquals(0, wheel.size());
+        assertEquals(List.of(), wheel.advance(START + 1000));
+    }
+
+    @Test
+    void pastDeadline_firesOnNextAdvance() {
+        TimerWheel<String> wheel = new TimerWheel<>(10, 8, 3, START);
+        wheel.schedule("late", START - 500);
+
+        assertEquals(List.of("late"), wheel.advance(START));
+    }
+
+    @Test
+    void cascadesFromUpperLevels() {
+        // 8 slots of 10 ms, then 80 ms, then 640 ms
+        TimerWheel<String> wheel = new TimerWheel<>(10, 8, 3, START);
+        wheel.schedule("l1", START + 150);
+        wheel.schedule("l2", START + 2_000);
+
+        assertEquals(List.of(), wheel.advance(START + 140));
+        assertEquals(List.of("l1"), wheel.advance(START + 150));
+        assertEquals(List.of(), wheel.advance(START + 1_990));
+        assertEquals(List.of("l2"), wheel.advance(START + 2_000));
+    }
+
+    @Test
+    void beyondTopLevel_isParkedUntilInRange() {
+        // the three levels cover 5120 ms
+        TimerWheel<String> wheel = new TimerWheel<>(10, 8, 3, START);
+        wheel.schedule("far", START + 20_000);
+
+        assertEquals(List.of(), wheel.advance(START + 19_990));
+        assertEquals(List.of("far"), wheel.advance(START + 20_000));
+    }
+
+    @Test
+    void randomDeadlines_neverFireEarlyOrMoreThanOneTickLate() {
+        Random random = new Random(42);
+        TimerWheel<Long> wheel = new TimerWheel<>(10, 16, 3, START);
+        List<Long> deadlines = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            long deadline = START + random.nextInt(100_000);
+            deadlines.add(deadline);
+            wheel.schedule(deadline, deadline);
+        }
+
+        int fired = 0;
+        for (long now = START; now <= START + 100_010; now += 10) {
+            for (long deadline : wheel.advance(now)) {
+                assertTrue(deadline <= now, "fired early");
+                assertTrue(now - deadline < 10, "fired late");
+                fired++;
+            }
+        }
+        assertEquals(deadlines.size(), fired);
+        assertEquals(0, wheel.size());
+    }
+}
@@ -0,0 +1,103 @@
+package ru.mephi.hotelapi.web;
+
+import ru.mephi.hotelapi.domain.Room;
+import ru.mephi.hotelapi.domain.RoomReservation;
+import ru.mephi.hotelapi.repo.RoomReservationRepository;
+import ru.mephi.hotelapi.repo.RoomRepository;
+import ru.mephi.hotelapi.service.ReservationHandler;
+import ru.mephi.hotelapi.service.RoomAvailabilityChecker;
+import ru.mephi.hotelapi.service.RoomHoldIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.time.LocalDate;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "hotel.availability.index.enabled=true",
+        "management.endpoints.web.exposure.include=holdindex"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class HoldIndexEndpointTest {
+
+    @Autowired MockMvc mvc;
+    @Autowired RoomRepository rooms;
+    @Autowired RoomReservationRepository holds;
+    @Autowired RoomHoldIndex index;
+    @Autowired ReservationHandler reservationHandler;
+    @Autowired RoomAvailabilityChecker availability;
+
+    private static final RequestPostProcessor ADMIN = jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN"));
+
+    private Room room;
+
+    @BeforeEach
+    void setUp() {
+        holds.deleteAll();
+        rooms.deleteAll();
+        room = rooms.save(Room.builder().hotelId(1L).number("101").available(true).build());
+        index.rebuild();
+    }
+
+    @Test
+    void confirmAndRelease_areReflectedInIndex_afterCommit() {
+        LocalDate start = LocalDate.of(2025, 10, 1);
+        LocalDate end = LocalDate.of(2025, 10, 5);
+
+        reservationHandler.confirm(room.getId(), "idx-1", start, end);
+        assertTrue(index.isReady());
+        assertFalse(availability.isAvailable(room.getId(), start, end));
+
+        reservationHandler.release(room.getId(), "idx-1");
+        assertTrue(availability.isAvailable(room.getId(), start, end));
+        assertTrue(index.verify().consistent());
+    }
+
+    @Test
+    void endpoint_reportsDrift_andRebuildRepairsIt() throws Exception {
+        holds.save(RoomReservation.builder()
+                .roomId(room.getId())
+                .requestId("written-behind-index")
+                .startDate(LocalDate.of(2025, 10, 1))
+                .endDate(LocalDate.of(2025, 10, 5))
+                .status(RoomReservation.Status.COMMITTED)
+                .build());
+
+        mvc.perform(get("/actuator/holdindex").with(ADMIN))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.consistent").value(false))
+                .andExpect(jsonPath("$.missing", contains("written-behind-index")));
+
+        mvc.perform(post("/actuator/holdindex").with(ADMIN))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.holds").value(1));
+
+        mvc.perform(get("/actuator/holdindex").with(ADMIN))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.consistent").value(true))
+                .andExpect(jsonPath("$.indexedHolds").value(1));
+        assertFalse(availability.isAvailable(room.getId(), LocalDate.of(2025, 10, 3), LocalDate.of(2025, 10, 3)));
+    }
+
+    @Test
+    void endpoint_isForAdminsOnly() throws Exception {
+        mvc.perform(get("/actuator/holdindex")).andExpect(status().isUnauthorized());
+        mvc.perform(post("/actuator/holdindex")).andExpect(status().isUnauthorized());
+        mvc.perform(post("/actuator/holdindex").with(jwt().authorities(new SimpleGrantedAuthority("ROLE_USER"))))
+                .andExpect(status().isForbidden());
+    }
+}
@@ -15,7 +15,10 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -152,6 +155,222 @@ class InternalRoomControllerTest {
                 .andExpect(status().isUnauthorized());
     }
 
+    @Test
+    void pick_reservesLeastBookedFreeRoom() throws Exception {
+        Room busy = rooms.save(Room.builder().hotelId(1L).number("102").available(true).timesBooked(0).build());
+        testRoom.setTimesBooked(3);
+        rooms.save(testRoom);
+        rooms.save(Room.builder().hotelId(1L).number("103").available(true).timesBooked(5).build());
+        holds.save(RoomReservation.builder()
+                .roomId(busy.getId())
+                .requestId(UUID.randomUUID().toString())
+                .startDate(LocalDate.of(2025, 10, 3))
+                .endDate(LocalDate.of(2025, 10, 8))
+                .status(RoomReservation.Status.COMMITTED)
+                .build());
+
+        String requestId = UUID.randomUUID().toString();
+        String body = objectMapper.writeValueAsString(Map.of(
+                "hotelId", 1,
+                "start", "2025-10-01",
+                "end", "2025-10-05"
+        ));
+
+        mvc.perform(post("/internal/rooms/pick")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN")))
+                        .header("X-Request-Id", requestId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMMITTED"))
+                .andExpect(jsonPath("$.roomId").value(testRoom.getId()));
+
+        mvc.perform(post("/internal/rooms/pick")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN")))
+                        .header("X-Request-Id", requestId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.roomId").value(testRoom.getId()));
+
+        assertEquals(4, rooms.findById(testRoom.getId()).orElseThrow().getTimesBooked());
+    }
+
+    @Test
+    void pick_conflict_whenNoRoomIsFree() throws Exception {
+        holds.save(RoomReservation.builder()
+                .roomId(testRoom.getId())
+                .requestId(UUID.randomUUID().toString())
+                .startDate(LocalDate.of(2025, 10, 1))
+                .endDate(LocalDate.of(2025, 10, 5))
+                .status(RoomReservation.Status.COMMITTED)
+                .build());
+
+        String body = objectMapper.writeValueAsString(Map.of(
+                "hotelId", 1,
+                "start", "2025-10-02",
+                "end", "2025-10-03"
+        ));
+
+        mvc.perform(post("/internal/rooms/pick")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN")))
+                        .header("X-Request-Id", UUID.randomUUID().toString())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.code").value("ROOM_NOT_AVAILABLE"));
+    }
+
+    @Test
+    void pick_forbidden_forNonAdmin() throws Exception {
+        String body = objectMapper.writeValueAsString(Map.of(
+                "hotelId", 1,
+                "start", "2025-10-01",
+                "end", "2025-10-05"
+        ));
+
+        mvc.perform(post("/internal/rooms/pick")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_USER")))
+                        .header("X-Request-Id", "req-123")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void confirm_badRequest_whenDateMissing() throws Exception {
+        String body = objectMapper.writeValueAsString(Map.of(
+                "requestId", "req-123",
+                "start", "2025-10-01"
+        ));
+
+        mvc.perform(post("/internal/rooms/{roomId}/confirm-availability", testRoom.getId())
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN")))
+                        .header("X-Request-Id", "req-123")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void confirm_badRequest_whenStartAfterEnd() throws Exception {
+        String body = objectMapper.writeValueAsString(Map.of(
+                "requestId", "req-123",
+                "start", "2025-10-05",
+                "end", "2025-10-01"
+        ));
+
+        mvc.perform(post("/internal/rooms/{roomId}/confirm-availability", testRoom.getId())
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN")))
+                        .header("X-Request-Id", "req-123")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isBadRequest());
+
+        assertTrue(holds.findByRequestId("req-123").isEmpty());
+    }
+
+    @Test
+    void confirmBatch_badRequest_whenItemStartsAfterItEnds() throws Exception {
+        String body = objectMapper.writeValueAsString(Map.of(
+                "mode", "BEST_EFFORT",
+                "items", List.of(
+                        Map.of("roomId", testRoom.getId(), "requestId", "g-1", "start", "2025-10-05", "end", "2025-10-01"))
+        ));
+
+        mvc.perform(post("/internal/rooms/confirm-batch")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN")))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void pick_badRequest_whenHotelIdMissing() throws Exception {
+        String body = objectMapper.writeValueAsString(Map.of(
+                "start", "2025-10-01",
+                "end", "2025-10-05"
+        ));
+
+        mvc.perform(post("/internal/rooms/pick")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN")))
+                        .header("X-Request-Id", "req-123")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isBadRequest());
+
+        assertTrue(holds.findByRequestId("req-123").isEmpty());
+    }
+
+    @Test
+    void confirmBatch_commitsAllItems() throws Exception {
+        Room other = rooms.save(Room.builder().hotelId(1L).number("102").available(true).build());
+        String body = objectMapper.writeValueAsString(Map.of(
+                "mode", "ALL_OR_NOTHING",
+                "items", List.of(
+                        Map.of("roomId", testRoom.getId(), "requestId", "g-1", "start", "2025-10-01", "end", "2025-10-05"),
+                        Map.of("roomId", other.getId(), "requestId", "g-2", "start", "2025-10-01", "end", "2025-10-05"))
+        ));
+
+        mvc.perform(post("/internal/rooms/confirm-batch")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN")))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].requestId").value("g-1"))
+                .andExpect(jsonPath("$[*].outcome", everyItem(is("COMMITTED"))));
+
+        assertTrue(holds.findByRequestId("g-2").isPresent());
+    }
+
+    @Test
+    void confirmBatch_allOrNothing_conflict_whenAnItemIsRejected() throws Exception {
+        holds.save(RoomReservation.builder()
+                .roomId(testRoom.getId())
+                .requestId(UUID.randomUUID().toString())
+                .startDate(LocalDate.of(2025, 10, 3))
+                .endDate(LocalDate.of(2025, 10, 8))
+                .status(RoomReservation.Status.COMMITTED)
+                .build());
+        Room other = rooms.save(Room.builder().hotelId(1L).number("102").available(true).build());
+        String body = objectMapper.writeValueAsString(Map.of(
+                "mode", "ALL_OR_NOTHING",
+                "items", List.of(
+                        Map.of("roomId", other.getId(), "requestId", "g-1", "start", "2025-10-01", "end", "2025-10-05"),
+                        Map.of("roomId", testRoom.getId(), "requestId", "g-2", "start", "2025-10-01", "end", "2025-10-05"))
+        ));
+
+        mvc.perform(post("/internal/rooms/confirm-batch")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN")))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$[0].outcome").value("ABORTED"))
+                .andExpect(jsonPath("$[1].outcome").value("REJECTED"))
+                .andExpect(jsonPath("$[1].error").value("ROOM_NOT_AVAILABLE"));
+
+        assertTrue(holds.findByRequestId("g-1").isEmpty());
+    }
+
+    @Test
+    void confirmBatch_badRequest_whenItemsMissing() throws Exception {
+        mvc.perform(post("/internal/rooms/confirm-batch")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN")))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"mode\":\"BEST_EFFORT\",\"items\":[]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void confirmBatch_forbidden_forNonAdmin() throws Exception {
+        mvc.perform(post("/internal/rooms/confirm-batch")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_USER")))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"mode\":\"BEST_EFFORT\",\"items\":[]}"))
+                .andExpect(status().isForbidden());
+    }
+
     @Test
     void release_releasesExistingHold() throws Exception {
         String requestId = UUID.randomUUID().toString();
@@ -204,6 +423,39 @@ class InternalRoomControllerTest {
                 .andExpect(status().isAccepted());
     }
 
+    @Test
+    void releaseBatch_releasesHoldsByRequestId_skippingUnknown() throws Exception {
+        String first = UUID.randomUUID().toString();
+        String second = UUID.randomUUID().toString();
+        for (String requestId : List.of(first, second)) {
+            holds.save(RoomReservation.builder()
+                    .roomId(testRoom.getId())
+                    .requestId(requestId)
+                    .startDate(LocalDate.of(2025, 10, requestId.equals(first) ? 1 : 10))
+                    .endDate(LocalDate.of(2025, 10, requestId.equals(first) ? 5 : 15))
+                    .status(RoomReservation.Status.COMMITTED)
+                    .build());
+        }
+
+        mvc.perform(post("/internal/rooms/release-batch")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN")))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"requestIds\":[\"" + first + "\",\"" + second + "\",\"unknown\"]}"))
+                .andExpect(status().isAccepted());
+
+        assertEquals(RoomReservation.Status.RELEASED, holds.findByRequestId(first).orElseThrow().getStatus());
+        assertEquals(RoomReservation.Status.RELEASED, holds.findByRequestId(second).orElseThrow().getStatus());
+    }
+
+    @Test
+    void releaseBatch_badRequest_whenEmpty() throws Exception {
+        mvc.perform(post("/internal/rooms/release-batch")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN")))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"requestIds\":[]}"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void release_forbidden_forNonAdmin() throws Exception {
         mvc.perform(post("/internal/rooms/{roomId}/release", testRoom.getId())
@@ -218,4 +470,105 @@ class InternalRoomControllerTest {
                         .header("X-Request-Id", "req-123"))
                 .andExpect(status().isUnauthorized());
     }
+
+    @Test
+    void hold_writesHeldWithTtl_thenCommitMakesItCommitted() throws Exception {
+        String requestId = UUID.randomUUID().toString();
+
+        mvc.perform(post("/internal/rooms/{roomId}/hold", testRoom.getId())
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN")))
+                        .header("X-Request-Id", requestId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"start\":\"2025-10-01\",\"end\":\"2025-10-05\",\"ttlSeconds\":120}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("HELD"))
+                .andExpect(jsonPath("$.expiresAt").exists());
+
+        Duration ttl = Duration.between(Instant.now(), holds.findByRequestId(requestId).orElseThrow().getExpiresAt());
+        assertTrue(ttl.toSeconds() > 100 && ttl.toSeconds() <= 120);
+
+        mvc.perform(post("/internal/rooms/holds/{requestId}/commit", requestId)
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMMITTED"));
+
+        RoomReservation committed = holds.findByRequestId(requestId).orElseThrow();
+        assertEquals(RoomReservation.Status.COMMITTED, committed.getStatus());
+        assertNull(committed.getExpiresAt());
+    }
+
+    @Test
+    void hold_capsTtl() throws Exception {
+        String requestId = UUID.randomUUID().toString();
+
+        mvc.perform(post("/internal/rooms/{roomId}/hold", testRoom.getId())
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN")))
+                        .header("X-Request-Id", requestId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"start\":\"2025-10-01\",\"end\":\"2025-10-05\",\"ttlSeconds\":999999}"))
+                .andExpect(status().isOk());
+
+        Instant expiresAt = holds.findByRequestId(requestId).orElseThrow().getExpiresAt();
+        assertFalse(expiresAt.isAfter(Instant.now().plusSeconds(3600)));
+    }
+
+    @Test
+    void commitHold_conflict_onceExpired() throws Exception {
+        holds.save(RoomReservation.builder()
+                .roomId(testRoom.getId())
+                .requestId("lapsed")
+                .startDate(LocalDate.of(2025, 10, 1))
+                .endDate(LocalDate.of(2025, 10, 5))
+                .status(RoomReservation.Status.HELD)
+                .expiresAt(Instant.now().minusSeconds(1))
+                .build());
+
+        mvc.perform(post("/internal/rooms/holds/{requestId}/commit", "lapsed")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN"))))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.code").value("HOLD_EXPIRED"));
+
+        assertEquals(RoomReservation.Status.HELD, holds.findByRequestId("lapsed").orElseThrow().getStatus());
+    }
+
+    @Test
+    void commitHold_notFound_forUnknownRequest() throws Exception {
+        mvc.perform(post("/internal/rooms/holds/{requestId}/commit", "unknown")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN"))))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void hold_badRequest_forNonPositiveTtl() throws Exception {
+        mvc.perform(post("/internal/rooms/{roomId}/hold", testRoom.getId())
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN")))
+                        .header("X-Request-Id", "req-ttl")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"start\":\"2025-10-01\",\"end\":\"2025-10-05\",\"ttlSeconds\":0}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void confirm_replayOfHoldUnknownToFilter_returnsStoredHold() throws Exception {
+        // written behind the filter's back, as by another replica
+        RoomReservation stored = holds.save(RoomReservation.builder()
+                .roomId(testRoom.getId())
+                .requestId("req-replica")
+                .startDate(LocalDate.of(2025, 11, 1))
+                .endDate(LocalDate.of(2025, 11, 5))
+                .status(RoomReservation.Status.COMMITTED)
+                .build());
+
+        mvc.perform(post("/internal/rooms/{roomId}/confirm-availability", testRoom.getId())
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_ADMIN")))
+                        .header("X-Request-Id", "req-replica")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"requestId\":\"req-replica\",\"start\":\"2025-12-01\",\"end\":\"2025-12-05\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(stored.getId()))
+                .andExpect(jsonPath("$.startDate").value("2025-11-01"));
+
+        assertEquals(1, holds.count());
+        assertEquals(0, rooms.findById(testRoom.getId()).orElseThrow().getTimesBooked());
+    }
 }
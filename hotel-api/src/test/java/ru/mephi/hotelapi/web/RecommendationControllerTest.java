@@ -1,13 +1,24 @@
 package ru.mephi.hotelapi.web;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import ru.mephi.hotelapi.domain.Hotel;
+import ru.mephi.hotelapi.domain.Room;
+import ru.mephi.hotelapi.domain.RoomReservation;
 import ru.mephi.hotelapi.repo.HotelRepository;
 import ru.mephi.hotelapi.repo.RoomRepository;
+import ru.mephi.hotelapi.repo.RoomReservationRepository;
+import jakarta.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,7 +29,7 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
-@SpringBootTest
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 @AutoConfigureMockMvc
 @ActiveProfiles("test")
 class RecommendationControllerTest {
@@ -26,11 +37,14 @@ class RecommendationControllerTest {
     @Autowired MockMvc mvc;
     @Autowired HotelRepository hotels;
     @Autowired RoomRepository rooms;
+    @Autowired RoomReservationRepository holds;
+    @Autowired EntityManagerFactory entityManagerFactory;
 
     private Long hotelId;
 
     @BeforeEach
     void setUp() throws Exception {
+        holds.deleteAll();
         rooms.deleteAll();
         hotels.deleteAll();
 
@@ -68,4 +82,74 @@ class RecommendationControllerTest {
                 .andExpect(jsonPath("$", hasSize(1)))
                 .andExpect(jsonPath("$[0].id", notNullValue()));
     }
+
+    @Test
+    void recommend_queryCount_doesNotGrowWithHotelSize() throws Exception {
+        long small = recommendStatementCount(seedHotel("SmallHotel", 10));
+        long large = recommendStatementCount(seedHotel("LargeHotel", 400));
+
+        assertEquals(1, small);
+        assertEquals(small, large);
+    }
+
+    @Test
+    void recommend_skipsRoomsWithLiveHoldsAndUnavailableRooms() throws Exception {
+        Long largeHotelId = seedHotel("BusyHotel", 400);
+
+        mvc.perform(get("/api/rooms/recommend")
+                        .queryParam("hotelId", largeHotelId.toString())
+                        .queryParam("start", "2025-10-25")
+                        .queryParam("end", "2025-10-27")
+                        .queryParam("limit", "500")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_USER"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(200)))
+                .andExpect(jsonPath("$[*].number", everyItem(endsWith("-odd"))));
+    }
+
+    /**
+     * Seeds {@code size} rooms: even rooms carry a COMMITTED hold over the probed dates, every
+     * tenth of them is additionally marked unavailable, and one odd room has a RELEASED hold.
+     */
+    private Long seedHotel(String name, int size) {
+        Long id = hotels.save(Hotel.builder().name(name).city("Berlin").build()).getId();
+        List<Room> seeded = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            seeded.add(Room.builder()
+                    .hotelId(id)
+                    .number(i + (i % 2 == 0 ? "-even" : "-odd"))
+                    .available(i % 20 != 0)
+                    .timesBooked(i % 7)
+                    .build());
+        }
+        seeded = rooms.saveAll(seeded);
+        List<RoomReservation> seededHolds = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (i % 2 == 0 || i == 1) {
+                seededHolds.add(RoomReservation.builder()
+                        .roomId(seeded.get(i).getId())
+                        .requestId(name + "-" + i)
+                        .startDate(LocalDate.of(2025, 10, 26))
+                        .endDate(LocalDate.of(2025, 10, 28))
+                        .status(i == 1 ? RoomReservation.Status.RELEASED : RoomReservation.Status.COMMITTED)
+                        .build());
+            }
+        }
+        holds.saveAll(seededHolds);
+        return id;
+    }
+
+    private long recommendStatementCount(Long targetHotelId) throws Exception {
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        mvc.perform(get("/api/rooms/recommend")
+                        .queryParam("hotelId", targetHotelId.toString())
+                        .queryParam("start", "2025-10-25")
+                        .queryParam("end", "2025-10-27")
+                        .queryParam("limit", "1")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_USER"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+        return stats.getPrepareStatementCount();
+    }
 }